@@ -0,0 +1,151 @@
+package api;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stops sending while the server is failing. Outcomes are counted in one-second buckets over a
+ * sliding window; when at least minRequests were seen and the failure rate reaches the
+ * threshold the breaker opens and callers are rejected without a request for openMillis. It
+ * then lets a few probe requests through (half-open): if they all succeed it closes again,
+ * any failure re-opens it.
+ */
+public class CircuitBreaker {
+  public enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final double failureRateThreshold;
+  private final int minRequests;
+  private final long openNanos;
+  private final int halfOpenProbes;
+
+  private final long[] successes;
+  private final long[] failures;
+  private final long[] bucketSecond;
+
+  private volatile State state = State.CLOSED;
+  private volatile long openUntilNanos;
+  private final AtomicInteger probesLeft = new AtomicInteger();
+  private final AtomicInteger probeSuccesses = new AtomicInteger();
+  private final AtomicInteger timesOpened = new AtomicInteger();
+
+  public CircuitBreaker(double failureRateThreshold, int minRequests, int windowSeconds,
+      long openMillis, int halfOpenProbes) {
+    this.failureRateThreshold = failureRateThreshold;
+    this.minRequests = minRequests;
+    this.openNanos = openMillis * 1_000_000L;
+    this.halfOpenProbes = halfOpenProbes;
+    this.successes = new long[windowSeconds];
+    this.failures = new long[windowSeconds];
+    this.bucketSecond = new long[windowSeconds];
+  }
+
+  /**
+   * Whether a request may be sent now. Closed is a single volatile read.
+   */
+  public boolean allowRequest() {
+    State current = state;
+    if (current == State.CLOSED) {
+      return true;
+    }
+    if (current == State.OPEN) {
+      if (System.nanoTime() - openUntilNanos < 0) {
+        return false;
+      }
+      toHalfOpen();
+    }
+    return probesLeft.getAndDecrement() > 0;
+  }
+
+  /**
+   * @param failure the server failed (5xx, 429 or an I/O error), as opposed to answering
+   */
+  public void record(boolean failure) {
+    State current = state;
+    if (current == State.HALF_OPEN) {
+      if (failure) {
+        open();
+      } else if (probeSuccesses.incrementAndGet() >= halfOpenProbes) {
+        close();
+      }
+      return;
+    }
+    if (current == State.OPEN) {
+      return;
+    }
+    if (recordInWindow(failure)) {
+      open();
+    }
+  }
+
+  // Returns true when the window now trips the breaker
+  private synchronized boolean recordInWindow(boolean failure) {
+    long second = System.nanoTime() / 1_000_000_000L;
+    int index = (int) (second % successes.length);
+    if (bucketSecond[index] != second) {
+      bucketSecond[index] = second;
+      successes[index] = 0;
+      failures[index] = 0;
+    }
+    if (failure) {
+      failures[index]++;
+    } else {
+      successes[index]++;
+    }
+
+    long total = 0;
+    long failed = 0;
+    for (int i = 0; i < successes.length; i++) {
+      if (second - bucketSecond[i] < successes.length) {
+        total += successes[i] + failures[i];
+        failed += failures[i];
+      }
+    }
+    return total >= minRequests && failed >= failureRateThreshold * total;
+  }
+
+  private synchronized void open() {
+    if (state == State.OPEN) {
+      return;
+    }
+    openUntilNanos = System.nanoTime() + openNanos;
+    state = State.OPEN;
+    timesOpened.incrementAndGet();
+  }
+
+  private synchronized void toHalfOpen() {
+    if (state != State.OPEN) {
+      return;
+    }
+    probesLeft.set(halfOpenProbes);
+    probeSuccesses.set(0);
+    state = State.HALF_OPEN;
+  }
+
+  private synchronized void close() {
+    if (state != State.HALF_OPEN) {
+      return;
+    }
+    // Start the window afresh so the failures that opened it don't re-open it
+    Arrays.fill(successes, 0);
+    Arrays.fill(failures, 0);
+    state = State.CLOSED;
+  }
+
+  /**
+   * How long until the breaker next lets probes through; 0 unless it is open.
+   */
+  public long millisUntilProbe() {
+    if (state != State.OPEN) {
+      return 0;
+    }
+    return Math.max(0, (openUntilNanos - System.nanoTime()) / 1_000_000L);
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public int getTimesOpened() {
+    return timesOpened.get();
+  }
+}
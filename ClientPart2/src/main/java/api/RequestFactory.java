@@ -0,0 +1,71 @@
+package api;
+
+import config.SkierClientConfig;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import model.SkierEvent;
+
+/**
+ * Builds lift ride POSTs from events. The URL prefix for each resort/season/day and a request
+ * builder carrying the fixed headers are cached, so per event only the skier ID is appended and
+ * the small JSON body is encoded straight to bytes.
+ *
+ * Each request carries an Idempotency-Key (run ID plus sequence number). Retries resend the
+ * same HttpRequest, so every attempt for an event shares one key and the server and consumer
+ * can recognise a ride they have already seen.
+ */
+public class RequestFactory {
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+  private final String serverUrl;
+  private final HttpRequest.Builder template;
+  private final Map<Long, String> prefixes = new ConcurrentHashMap<>();
+  private final boolean idempotencyKeys;
+  private final String keyPrefix;
+  private final AtomicLong sequence = new AtomicLong();
+
+  public RequestFactory() {
+    this(SkierClientConfig.SERVER_URL, SkierClientConfig.IDEMPOTENCY_KEYS);
+  }
+
+  public RequestFactory(String serverUrl) {
+    this(serverUrl, true);
+  }
+
+  public RequestFactory(String serverUrl, boolean idempotencyKeys) {
+    this.serverUrl = serverUrl;
+    this.idempotencyKeys = idempotencyKeys;
+    // Random per run, so keys from separate client processes never collide
+    this.keyPrefix = Long.toHexString(new SecureRandom().nextLong()) + "-";
+    this.template = HttpRequest.newBuilder().header("Content-Type", "application/json");
+  }
+
+  public HttpRequest postRequest(SkierEvent event) {
+    String prefix = prefixFor(event.getResortID(), event.getSeasonID(), event.getDayID());
+    byte[] body = ("{\"time\": " + event.getTime() + ", \"liftID\": " + event.getLiftID() + "}")
+        .getBytes(StandardCharsets.UTF_8);
+    HttpRequest.Builder builder = template.copy()
+        .uri(URI.create(prefix + event.getSkierID()))
+        .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+    if (idempotencyKeys) {
+      builder.header(IDEMPOTENCY_KEY_HEADER, keyPrefix + Long.toString(sequence.incrementAndGet(), 36));
+    }
+    return builder.build();
+  }
+
+  private String prefixFor(int resortID, int seasonID, int dayID) {
+    long key = ((long) resortID << 32) | ((long) seasonID << 12) | dayID;
+    String prefix = prefixes.get(key);
+    if (prefix == null) {
+      // Same layout the client has always produced
+      prefix = prefixes.computeIfAbsent(key, k ->
+          serverUrl + "/" + resortID + "/seasons/" + seasonID + "/days/" + dayID + "/skiers/");
+    }
+    return prefix;
+  }
+}
@@ -1,57 +1,120 @@
 package api;
 
-import static config.SkierClientConfig.MAX_RETRIES;
-
-import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 public class RequestSender {
-  public static int sendPostRequestWithRetry(HttpClient client, String endpoint, String jsonBody) {
-    HttpRequest request = HttpRequest.newBuilder()
-        .uri(URI.create(endpoint))
-        .header("Content-Type", "application/json")
-        .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-        .build();
+  /**
+   * Response code reported when the circuit breaker rejected a request before it was sent.
+   */
+  public static final int CIRCUIT_OPEN = 0;
+
+  private static final RetryPolicy retryPolicy = RetryPolicy.fromConfig();
+
+  public static RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  public static long getRetryCount() {
+    return retryPolicy.getRetries();
+  }
 
-    int lastResponseCode = 500;
+  /**
+   * Sends a prebuilt POST (see {@link RequestFactory}), retrying retryable failures as the
+   * {@link RetryPolicy} allows. Returns the final response code, 500 for an I/O error, or
+   * {@link #CIRCUIT_OPEN} if the request was shed.
+   */
+  public static int sendPostRequestWithRetry(HttpClient client, HttpRequest request) {
+    retryPolicy.onRequest();
+    int lastResponseCode = CIRCUIT_OPEN;
 
-    for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+    for (int attempt = 0; ; attempt++) {
+      if (!retryPolicy.allowAttempt()) {
+        return lastResponseCode;
+      }
       try {
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
         lastResponseCode = response.statusCode(); // Store last received status code
+        retryPolicy.onResponse(lastResponseCode);
 
         if (lastResponseCode == 201) {
           return 201; // Success
         }
-
-        // Retry on 4XX (client error from servlet) and 5XX (server error)
-        if (lastResponseCode >= 400 && lastResponseCode < 600) {
-          System.err.printf("Request failed with status %d (attempt %d/%d)%n", lastResponseCode, attempt + 1, MAX_RETRIES);
-
-          if (attempt < MAX_RETRIES - 1) {
-            Thread.sleep(100 * (attempt + 1)); // Exponential backoff
-          }
-        } else {
-          return lastResponseCode; // Do not retry for other response codes
+        if (!RetryPolicy.isRetryableStatus(lastResponseCode)) {
+          return lastResponseCode; // A retry would get the same answer
         }
+        System.err.printf("Request failed with status %d (attempt %d)%n", lastResponseCode, attempt + 1);
 
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return 500; // Interrupted, return failure
       } catch (Exception e) {
-        System.err.printf("Request exception (attempt %d/%d): %s%n",
-            attempt + 1, MAX_RETRIES, e.getMessage());
-
-        if (attempt < MAX_RETRIES - 1) {
-          try {
-            Thread.sleep(100 * (attempt + 1));
-          } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            return 500; // Interrupted, return failure
-          }
+        System.err.printf("Request exception (attempt %d): %s%n", attempt + 1, e.getMessage());
+        lastResponseCode = 500;
+        if (!RetryPolicy.isRetryable(e)) {
+          return lastResponseCode;
         }
+        retryPolicy.onError(e);
+      }
+
+      if (!retryPolicy.shouldRetry(attempt)) {
+        return lastResponseCode;
+      }
+      try {
+        Thread.sleep(retryPolicy.backoffMillis(attempt));
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        return 500; // Interrupted, return failure
       }
     }
-    return lastResponseCode; // Return the last response code received after all retries
   }
-}
 
+  /**
+   * Non-blocking version of {@link #sendPostRequestWithRetry}: same retry rules, but the backoff
+   * is scheduled instead of slept, so no thread is held while a request is outstanding.
+   * The future completes with the final response code.
+   */
+  public static CompletableFuture<Integer> sendPostRequestAsync(HttpClient client, HttpRequest request) {
+    CompletableFuture<Integer> result = new CompletableFuture<>();
+    retryPolicy.onRequest();
+    attemptAsync(client, request, 0, CIRCUIT_OPEN, result);
+    return result;
+  }
+
+  private static void attemptAsync(HttpClient client, HttpRequest request, int attempt, int lastResponseCode,
+      CompletableFuture<Integer> result) {
+    if (!retryPolicy.allowAttempt()) {
+      result.complete(lastResponseCode);
+      return;
+    }
+    client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+      int code;
+      if (error == null) {
+        code = response.statusCode();
+        retryPolicy.onResponse(code);
+        if (code == 201 || !RetryPolicy.isRetryableStatus(code)) {
+          result.complete(code);
+          return;
+        }
+      } else {
+        code = 500;
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        if (!RetryPolicy.isRetryable(cause)) {
+          result.complete(code);
+          return;
+        }
+        retryPolicy.onError(cause);
+      }
+      if (!retryPolicy.shouldRetry(attempt)) {
+        result.complete(code);
+        return;
+      }
+      Executor backoff = CompletableFuture.delayedExecutor(retryPolicy.backoffMillis(attempt), TimeUnit.MILLISECONDS);
+      backoff.execute(() -> attemptAsync(client, request, attempt + 1, code, result));
+    });
+  }
+}
@@ -0,0 +1,48 @@
+package api;
+
+/**
+ * Caps retries at a fraction of request traffic, so a struggling server sees at most
+ * (1 + ratio) times the offered load instead of every request multiplied by the attempt count.
+ *
+ * Every request deposits ratio of a token and every retry spends a whole one; a small
+ * per-second allowance keeps retries possible at low traffic. The balance is capped so a quiet
+ * period can't bank an unbounded burst.
+ */
+public class RetryBudget {
+  private final double ratio;
+  private final double minPerSecond;
+  private final double maxBalance;
+  private double balance;
+  private long lastRefillNanos = System.nanoTime();
+
+  public RetryBudget(double ratio, double minPerSecond, double maxBalance) {
+    this.ratio = ratio;
+    this.minPerSecond = minPerSecond;
+    this.maxBalance = maxBalance;
+    this.balance = Math.min(minPerSecond, maxBalance);
+  }
+
+  public synchronized void onRequest() {
+    refill();
+    balance = Math.min(maxBalance, balance + ratio);
+  }
+
+  /**
+   * Spends one retry if the budget allows it.
+   */
+  public synchronized boolean tryRetry() {
+    refill();
+    if (balance >= 1.0) {
+      balance -= 1.0;
+      return true;
+    }
+    return false;
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    double seconds = (now - lastRefillNanos) / 1e9;
+    lastRefillNanos = now;
+    balance = Math.min(maxBalance, balance + seconds * minPerSecond);
+  }
+}
@@ -0,0 +1,142 @@
+package api;
+
+import config.SkierClientConfig;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether and when a failed POST is retried, and whether it is sent at all.
+ *
+ * Only failures a retry can fix are retried: I/O errors, 408, 429 and 5xx other than 501/505.
+ * Backoff is exponential with full jitter (a uniform delay between 0 and the capped exponential
+ * step), so threads that failed together don't retry together. Retries also need a token from
+ * the {@link RetryBudget}, and every attempt needs the {@link CircuitBreaker} to be closed or
+ * probing; rejected requests are counted as shed.
+ */
+public class RetryPolicy {
+  // Half-open with every probe in flight still rejects; don't spin on it
+  private static final long MIN_SHED_PAUSE_MILLIS = 10;
+
+  private final int maxAttempts;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+  private final RetryBudget budget;
+  private final CircuitBreaker breaker;
+
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder budgetDenied = new LongAdder();
+  private final LongAdder shed = new LongAdder();
+
+  public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+      RetryBudget budget, CircuitBreaker breaker) {
+    this.maxAttempts = maxAttempts;
+    this.baseDelayMillis = baseDelayMillis;
+    this.maxDelayMillis = maxDelayMillis;
+    this.budget = budget;
+    this.breaker = breaker;
+  }
+
+  public static RetryPolicy fromConfig() {
+    return new RetryPolicy(SkierClientConfig.MAX_RETRIES,
+        SkierClientConfig.RETRY_BASE_DELAY_MS, SkierClientConfig.RETRY_MAX_DELAY_MS,
+        new RetryBudget(SkierClientConfig.RETRY_BUDGET_RATIO, SkierClientConfig.RETRY_BUDGET_MIN_PER_SECOND,
+            Math.max(10, SkierClientConfig.RETRY_BUDGET_MIN_PER_SECOND * 10)),
+        new CircuitBreaker(SkierClientConfig.BREAKER_FAILURE_RATE, SkierClientConfig.BREAKER_MIN_REQUESTS,
+            SkierClientConfig.BREAKER_WINDOW_SECONDS, SkierClientConfig.BREAKER_OPEN_MILLIS,
+            SkierClientConfig.BREAKER_HALF_OPEN_PROBES));
+  }
+
+  public static boolean isRetryableStatus(int status) {
+    if (status == 408 || status == 429) {
+      return true;
+    }
+    return status >= 500 && status < 600 && status != 501 && status != 505;
+  }
+
+  public static boolean isRetryable(Throwable error) {
+    return error instanceof IOException;
+  }
+
+  /**
+   * Called once per logical request, before its first attempt.
+   */
+  public void onRequest() {
+    budget.onRequest();
+  }
+
+  /**
+   * Whether an attempt may be sent now; false means the circuit is open and it was shed.
+   */
+  public boolean allowAttempt() {
+    if (breaker.allowRequest()) {
+      return true;
+    }
+    shed.increment();
+    return false;
+  }
+
+  /**
+   * Feeds an attempt's outcome to the circuit breaker. Client errors mean the server is up.
+   */
+  public void onResponse(int status) {
+    breaker.record(isRetryableStatus(status));
+  }
+
+  public void onError(Throwable error) {
+    breaker.record(true);
+  }
+
+  /**
+   * Whether the attempt that just failed (0-based) may be retried, spending budget if so.
+   */
+  public boolean shouldRetry(int attempt) {
+    if (attempt + 1 >= maxAttempts) {
+      return false;
+    }
+    if (!budget.tryRetry()) {
+      budgetDenied.increment();
+      return false;
+    }
+    retries.increment();
+    return true;
+  }
+
+  /**
+   * Full-jitter backoff before retrying after the given failed attempt.
+   */
+  public long backoffMillis(int attempt) {
+    long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 30));
+    return ThreadLocalRandom.current().nextLong(cap + 1);
+  }
+
+  /**
+   * How long a closed-loop caller whose request was shed should wait before taking more work, so
+   * an open circuit pauses the run instead of racing through the remaining events.
+   */
+  public long shedPauseMillis() {
+    return Math.max(MIN_SHED_PAUSE_MILLIS, breaker.millisUntilProbe());
+  }
+
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  public long getBudgetDenied() {
+    return budgetDenied.sum();
+  }
+
+  public long getShed() {
+    return shed.sum();
+  }
+
+  public CircuitBreaker getBreaker() {
+    return breaker;
+  }
+
+  public String statsReport() {
+    return String.format("Retries: %d, retries denied by budget: %d, requests shed by open circuit: %d, "
+            + "circuit opened %d times (now %s)",
+        getRetries(), getBudgetDenied(), getShed(), breaker.getTimesOpened(), breaker.getState());
+  }
+}
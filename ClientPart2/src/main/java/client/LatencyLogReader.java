@@ -0,0 +1,81 @@
+package client;
+
+import config.SkierClientConfig;
+import consumer.LogConsumer;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import metrics.LatencyHistogram;
+
+/**
+ * Computes the end-of-run statistics from a binary latency log written by {@link LogConsumer},
+ * memory-mapping the file instead of parsing text.
+ *
+ * Usage: LatencyLogReader [path]   (defaults to SkierClientConfig.BINARY_LOG_PATH)
+ */
+public class LatencyLogReader {
+  // Whole records per mapping, keeping each mapping under the 2 GB limit
+  private static final long RECORDS_PER_MAP = Integer.MAX_VALUE / LogConsumer.BINARY_RECORD_BYTES;
+
+  public static void main(String[] args) throws IOException {
+    String path = args.length > 0 ? args[0] : SkierClientConfig.BINARY_LOG_PATH;
+    LatencyHistogram histogram = SkierClientPart2.newHistogram();
+    long successful = 0;
+    long failed = 0;
+    long firstStart = Long.MAX_VALUE;
+    long lastEnd = Long.MIN_VALUE;
+
+    try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < LogConsumer.BINARY_HEADER_BYTES) {
+        throw new IOException(path + " is too short to be a latency log");
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, LogConsumer.BINARY_HEADER_BYTES);
+      if (header.getInt() != LogConsumer.BINARY_MAGIC) {
+        throw new IOException(path + " is not a binary latency log");
+      }
+      int version = header.getInt();
+      int recordBytes = header.getInt();
+      if (version != LogConsumer.BINARY_VERSION || recordBytes != LogConsumer.BINARY_RECORD_BYTES) {
+        throw new IOException("Unsupported latency log version " + version + " with " + recordBytes + " byte records");
+      }
+
+      // A run that was killed mid-write can leave a partial last record; ignore it
+      long records = (size - LogConsumer.BINARY_HEADER_BYTES) / recordBytes;
+      for (long first = 0; first < records; first += RECORDS_PER_MAP) {
+        long count = Math.min(RECORDS_PER_MAP, records - first);
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY,
+            LogConsumer.BINARY_HEADER_BYTES + first * recordBytes, count * recordBytes);
+        for (long i = 0; i < count; i++) {
+          long startTime = map.getLong();
+          long latency = map.getLong();
+          int responseCode = map.getInt();
+          map.getInt(); // request type
+
+          histogram.record(latency * 1000);
+          if (responseCode == 201) {
+            successful++;
+          } else {
+            failed++;
+          }
+          firstStart = Math.min(firstStart, startTime);
+          lastEnd = Math.max(lastEnd, startTime + latency);
+        }
+      }
+    }
+
+    long totalTime = histogram.getTotalCount() == 0 ? 0 : lastEnd - firstStart;
+    System.out.println("Latency log: " + path);
+    System.out.println("=============Total===============");
+    System.out.println("Total successful requests: " + successful);
+    System.out.println("Total failed requests: " + failed);
+    System.out.println("Total runtime (first start to last completion): " + totalTime + " ms");
+    if (totalTime > 0) {
+      System.out.printf("Throughput: %.2f requests/second%n", histogram.getTotalCount() / (totalTime / 1000.0));
+    }
+    // The log stores whole milliseconds, so these are at millisecond resolution
+    SkierClientPart2.printLatencyMetrics(histogram);
+  }
+}
@@ -0,0 +1,179 @@
+package client;
+
+import api.RequestFactory;
+import api.RequestSender;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import metrics.ClientMetrics;
+import metrics.LatencyHistogram;
+import model.RequestLog;
+import model.SkierEvent;
+import producer.EventGenerator;
+import schedule.ArrivalSchedule;
+
+/**
+ * Open-loop load generation: requests are issued on the arrival schedule regardless of how
+ * quickly earlier ones complete, and latency is measured from each request's intended send
+ * time, so a slow server shows up as latency instead of as a lower request rate
+ * (no coordinated omission).
+ *
+ * The scheduler thread only timestamps arrivals and draws events; building and submitting the request happens on
+ * a small dispatcher pool because HttpClient.sendAsync does enough work on the calling thread
+ * to make a single thread fall behind the schedule at a few thousand requests/second.
+ */
+public class OpenLoopRunner {
+  private final HttpClient client;
+  private final ArrivalSchedule schedule;
+  private final int maxOutstanding;
+  private final EventGenerator.EventStream events;
+  private final RequestFactory requestFactory;
+  private final int dispatcherThreads;
+  private final ClientMetrics liveMetrics;
+
+  private final ConcurrentLinkedQueue<RequestLog> logQueue;
+  private final LatencyHistogram latencies = SkierClientPart2.newHistogram();
+  private final LatencyHistogram serviceTimes = SkierClientPart2.newHistogram();
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private final AtomicInteger successful = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final AtomicLong maxSendLagNanos = new AtomicLong();
+  private int scheduled;
+  private int dropped;
+
+  /**
+   * @param logQueue per-request CSV records, or null to keep only the histograms
+   * @param maxOutstanding requests allowed in flight before new arrivals are counted as dropped
+   *     instead of sent, so an unresponsive server can't exhaust client memory
+   */
+  public OpenLoopRunner(HttpClient client, ArrivalSchedule schedule, int maxOutstanding,
+      int dispatcherThreads, EventGenerator eventGenerator, RequestFactory requestFactory, ClientMetrics liveMetrics,
+      ConcurrentLinkedQueue<RequestLog> logQueue) {
+    this.client = client;
+    this.schedule = schedule;
+    this.maxOutstanding = maxOutstanding;
+    this.dispatcherThreads = dispatcherThreads;
+    this.liveMetrics = liveMetrics;
+    // Events come from the scheduler thread, so a seeded run sends the same sequence
+    this.events = eventGenerator.stream(0);
+    this.requestFactory = requestFactory;
+    this.logQueue = logQueue;
+  }
+
+  /**
+   * @param beforeReport called once requests have drained, before the final report is printed
+   */
+  public void run(long drainTimeoutMillis, Runnable beforeReport) {
+    ExecutorService dispatchers = Executors.newFixedThreadPool(dispatcherThreads);
+    long start = System.nanoTime();
+    long startMillis = System.currentTimeMillis();
+    long arrival;
+    long lastArrival = 0;
+
+    while ((arrival = schedule.nextArrivalNanos()) >= 0) {
+      lastArrival = arrival;
+      long intended = start + arrival;
+      waitUntil(intended);
+      scheduled++;
+
+      long lag = System.nanoTime() - intended;
+      if (lag > maxSendLagNanos.get()) {
+        maxSendLagNanos.set(lag);
+      }
+      if (outstanding.get() >= maxOutstanding) {
+        dropped++;
+        continue;
+      }
+
+      long intendedMillis = startMillis + TimeUnit.NANOSECONDS.toMillis(arrival);
+      outstanding.incrementAndGet();
+      SkierEvent event = events.next();
+      dispatchers.execute(() -> dispatch(event, intended, intendedMillis));
+    }
+    long scheduleEnd = System.nanoTime();
+
+    long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+    while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    long end = System.nanoTime();
+    dispatchers.shutdown();
+
+    beforeReport.run();
+    report(lastArrival, scheduleEnd - start, end - start);
+  }
+
+  private void dispatch(SkierEvent event, long intended, long intendedMillis) {
+    HttpRequest request = requestFactory.postRequest(event);
+    long sentAt = System.nanoTime();
+    liveMetrics.requestStarted();
+    RequestSender.sendPostRequestAsync(client, request).whenComplete((code, error) -> {
+      long now = System.nanoTime();
+      int responseCode = error == null ? code : 500;
+      liveMetrics.requestCompleted(responseCode, TimeUnit.NANOSECONDS.toMicros(now - intended));
+      // Completions arrive on the client's executor threads
+      synchronized (latencies) {
+        latencies.record(TimeUnit.NANOSECONDS.toMicros(now - intended));
+        serviceTimes.record(TimeUnit.NANOSECONDS.toMicros(now - sentAt));
+      }
+      if (logQueue != null) {
+        logQueue.offer(new RequestLog(intendedMillis, "POST", TimeUnit.NANOSECONDS.toMillis(now - intended), responseCode));
+      }
+      if (responseCode == 201) {
+        successful.incrementAndGet();
+      } else {
+        failed.incrementAndGet();
+      }
+      outstanding.decrementAndGet();
+    });
+  }
+
+  // Park for most of the gap, then spin the last stretch for sub-millisecond accuracy
+  private static void waitUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      if (remaining > 200_000) {
+        LockSupport.parkNanos(remaining - 100_000);
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  private void report(long lastArrivalNanos, long sendingNanos, long totalNanos) {
+    double sendingSeconds = sendingNanos / 1e9;
+    double totalSeconds = totalNanos / 1e9;
+    double scheduleSeconds = Math.max(lastArrivalNanos / 1e9, 1e-9);
+
+    System.out.println("\nOpen-loop Results:");
+    System.out.println("=============Rate================");
+    System.out.printf("Target rate (schedule average): %.2f requests/second%n", scheduled / scheduleSeconds);
+    System.out.printf("Target rate at end of schedule: %.2f requests/second%n", schedule.targetRateAt(lastArrivalNanos));
+    System.out.printf("Sent rate: %.2f requests/second%n", (scheduled - dropped) / sendingSeconds);
+    System.out.printf("Achieved rate (successful): %.2f requests/second%n", successful.get() / totalSeconds);
+    System.out.println("Scheduled requests: " + scheduled);
+    System.out.println("Dropped (over " + maxOutstanding + " outstanding): " + dropped);
+    System.out.println("Still outstanding after drain: " + outstanding.get());
+    System.out.println("Total successful requests: " + successful.get());
+    System.out.println("Total failed requests: " + failed.get());
+    System.out.printf("Max send lag behind schedule: %.2f ms%n", maxSendLagNanos.get() / 1e6);
+    System.out.println(RequestSender.getRetryPolicy().statsReport());
+
+    System.out.println("\nLatency from intended send time:");
+    synchronized (latencies) {
+      SkierClientPart2.printLatencyMetrics(latencies);
+
+      if (serviceTimes.getTotalCount() > 0) {
+        System.out.println("\nService time (from actual send):");
+        System.out.printf("Median service time: %.3f ms%n", serviceTimes.getValueAtPercentile(50) / 1000.0);
+        System.out.printf("99th percentile service time: %.3f ms%n", serviceTimes.getValueAtPercentile(99) / 1000.0);
+      }
+    }
+  }
+}
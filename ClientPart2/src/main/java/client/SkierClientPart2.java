@@ -1,15 +1,22 @@
 package client;
 
-import static config.SkierClientConfig.INITIAL_THREADS;
-
+import api.RequestFactory;
+import api.RequestSender;
+import config.Phase;
+import config.RunProfile;
 import config.SkierClientConfig;
+import consumer.AsyncSkierConsumer;
 import consumer.LogConsumer;
 import consumer.SkierConsumerPart2;
+import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
@@ -18,114 +25,377 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import metrics.ClientMetrics;
+import metrics.IntervalReporter;
+import metrics.LatencyHistogram;
 import model.RequestLog;
+import model.SkierEvent;
+import producer.EventGenerator;
+import producer.EventSource;
 import producer.SkierProducer;
+import producer.WorkloadProfile;
+import schedule.ArrivalSchedule;
 
 public class SkierClientPart2 {
-  private static final AtomicInteger successfulRequests = new AtomicInteger(0);
-  private static final AtomicInteger failedRequests = new AtomicInteger(0);
-
+  // Used by the threads and open-loop engines. The default executor is an unbounded pool of
+  // daemon threads, so it neither caps in-flight requests nor keeps the JVM alive after a run.
   private static final HttpClient sharedClient = HttpClient.newBuilder()
       .connectTimeout(Duration.ofSeconds(10))
-      .executor(Executors.newFixedThreadPool(100))
       .version(HttpClient.Version.HTTP_1_1)
       .build();
 
+  // Built in main once the run profile has been applied to the config
+  private static ClientMetrics liveMetrics;
+  private static EventGenerator eventGenerator;
+  private static RequestFactory requestFactory;
+
+  private static LogConsumer logWriter;
+  private static Thread logWriterThread;
+
   public static void main(String[] args) {
+    RunProfile profile = RunProfile.load(args);
+    liveMetrics = new ClientMetrics(SkierClientConfig.HISTOGRAM_MAX_LATENCY_MICROS, SkierClientConfig.HISTOGRAM_SIGNIFICANT_DIGITS);
+    eventGenerator = new EventGenerator(WorkloadProfile.load(SkierClientConfig.WORKLOAD_PROFILE), SkierClientConfig.WORKLOAD_SEED);
+    requestFactory = new RequestFactory();
 
-    long startTime = System.currentTimeMillis();
-    BlockingQueue<String> eventQueue = new LinkedBlockingQueue<>(SkierClientConfig.QUEUE_SIZE);
-    ConcurrentLinkedQueue<RequestLog> logQueue = new ConcurrentLinkedQueue<>();
+    IntervalReporter reporter = null;
+    if (SkierClientConfig.REPORT_INTERVAL_SECONDS > 0) {
+      reporter = new IntervalReporter(liveMetrics, RequestSender.getRetryPolicy(),
+          SkierClientConfig.REPORT_INTERVAL_SECONDS, SkierClientConfig.INTERVAL_METRICS_PATH);
+      reporter.start();
+    }
+    ConcurrentLinkedQueue<RequestLog> logQueue = newLogQueue();
+
+    String engine = SkierClientConfig.CLIENT_ENGINE.toLowerCase();
+    if ("open".equalsIgnoreCase(SkierClientConfig.LOAD_MODE)) {
+      runOpenLoop(reporter, logQueue);
+      return;
+    }
+    if (!profile.getSweepConcurrency().isEmpty()) {
+      runSweep(engine, profile.getSweepConcurrency(), logQueue);
+      stopReporter(reporter);
+      finishLatencyLog();
+      return;
+    }
 
-    // Start event producer thread
-    Thread eventProducer = new Thread(new SkierProducer(eventQueue, SkierClientConfig.TOTAL_REQUESTS));
-    eventProducer.start();
+    RunResult result = "threads".equals(engine)
+        ? runThreadPhases(profile.getPhases(), logQueue)
+        : runNonBlocking(engine, logQueue);
+    stopReporter(reporter);
+    finishLatencyLog();
+    result.print();
+  }
 
-    // Phase 1: Initial 32 threads
-    CountDownLatch initialPhaseLatch = new CountDownLatch(1);
-    ExecutorService initialExecutor = Executors.newFixedThreadPool(INITIAL_THREADS);
+  /**
+   * Closed-loop run on the "threads" engine: each phase gets its own pool of consumer threads,
+   * started when its trigger fires, and the run ends when every phase has finished.
+   */
+  private static RunResult runThreadPhases(List<Phase> phases, ConcurrentLinkedQueue<RequestLog> logQueue) {
+    long startTime = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    List<LatencyHistogram> histograms = new ArrayList<>();
 
-    for (int i = 0; i < INITIAL_THREADS; i++) {
-      initialExecutor.execute(new SkierConsumerPart2(eventQueue, successfulRequests, failedRequests, sharedClient, SkierClientConfig.INITIAL_REQUESTS_PER_THREAD, initialPhaseLatch, logQueue));
+    int plannedRequests = 0;
+    boolean timed = false;
+    for (Phase phase : phases) {
+      System.out.println("Phase " + phase);
+      if (phase.isTimed()) {
+        timed = true;
+      } else {
+        plannedRequests += phase.getRequests();
+      }
     }
 
-    // Wait for one thread of phase 1 to complete then start phase2
+    // Start event producer threads; timed phases consume until their deadline, so produce until stopped
+    List<Thread> producers = new ArrayList<>();
+    IntFunction<EventSource> events = startEventSources(producers, timed ? -1 : plannedRequests);
+
+    List<PhaseRun> runs = new ArrayList<>();
+    int consumerIndex = 0;
     try {
-      initialPhaseLatch.await();
+      for (Phase phase : phases) {
+        PhaseRun previous = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+        awaitStart(phase, previous, startNanos);
+
+        PhaseRun run = new PhaseRun(phase);
+        long deadline = phase.isTimed() ? System.nanoTime() + TimeUnit.SECONDS.toNanos(phase.getDurationSeconds()) : 0;
+        for (int i = 0; i < phase.getThreads(); i++) {
+          LatencyHistogram histogram = newHistogram();
+          histograms.add(histogram);
+          int requestCount = phase.isTimed() ? Integer.MAX_VALUE : phase.requestsForThread(i);
+          SkierConsumerPart2 consumer = new SkierConsumerPart2(events.apply(consumerIndex++), requestFactory,
+              run.successful, run.failed, sharedClient, requestCount, deadline, run.allDone, histogram, liveMetrics, logQueue);
+          run.executor.execute(() -> {
+            try {
+              consumer.run();
+            } finally {
+              run.firstDone.countDown();
+            }
+          });
+        }
+        runs.add(run);
+      }
+
+      // Wait for all requests to complete
+      for (PhaseRun run : runs) {
+        run.allDone.await();
+      }
+      for (Thread producer : producers) {
+        if (timed) {
+          producer.interrupt();
+        }
+        producer.join();
+      }
     } catch (InterruptedException e) {
       e.printStackTrace();
     }
 
-    // Phase 2: Process remaining requests
-    int remainingRequests = SkierClientConfig.TOTAL_REQUESTS - (INITIAL_THREADS * SkierClientConfig.INITIAL_REQUESTS_PER_THREAD);
-    int requestsPerThread = remainingRequests / SkierClientConfig.SECOND_PHASE_THREADS;
+    // Shutdown executors
+    for (PhaseRun run : runs) {
+      shutdownExecutor(run.executor, "Phase " + run.phase.getName());
+    }
+    return new RunResult(System.currentTimeMillis() - startTime, merge(histograms), runs);
+  }
+
+  private static void awaitStart(Phase phase, PhaseRun previous, long runStartNanos) throws InterruptedException {
+    if (phase.getStart() == Phase.Start.AT || previous == null) {
+      long wait = runStartNanos + TimeUnit.SECONDS.toNanos(phase.getStartSeconds()) - System.nanoTime();
+      if (wait > 0) {
+        TimeUnit.NANOSECONDS.sleep(wait);
+      }
+    } else if (phase.getStart() == Phase.Start.FIRST) {
+      previous.firstDone.await();
+    } else {
+      previous.allDone.await();
+    }
+  }
 
-    ExecutorService remainingExecutor = Executors.newFixedThreadPool(SkierClientConfig.SECOND_PHASE_THREADS);
-    CountDownLatch remainingPhaseLatch = new CountDownLatch(SkierClientConfig.SECOND_PHASE_THREADS);
+  /**
+   * Closed-loop run on the "async" or "virtual" engine: the same events, counters and request
+   * logs as the thread phases, but concurrency is MAX_IN_FLIGHT requests rather than one OS
+   * thread per request.
+   */
+  private static RunResult runNonBlocking(String engine, ConcurrentLinkedQueue<RequestLog> logQueue) {
+    if (!"async".equals(engine) && !"virtual".equals(engine)) {
+      throw new IllegalArgumentException("Unknown client engine: " + engine);
+    }
+    long startTime = System.currentTimeMillis();
+    List<LatencyHistogram> histograms = new ArrayList<>();
+    PhaseRun run = new PhaseRun(new Phase(engine, 1, SkierClientConfig.TOTAL_REQUESTS, 0, Phase.Start.AT, 0));
+    AtomicInteger successfulRequests = run.successful;
+    AtomicInteger failedRequests = run.failed;
+
+    // The client's executor only handles responses, so a few threads serve any number of requests
+    ExecutorService clientExecutor = Executors.newFixedThreadPool(SkierClientConfig.ASYNC_CLIENT_THREADS);
+    HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .executor(clientExecutor)
+        .version(HttpClient.Version.HTTP_1_1)
+        .build();
 
-    for (int i = 0; i < SkierClientConfig.SECOND_PHASE_THREADS; i++) {
-      remainingExecutor.execute(new SkierConsumerPart2(eventQueue, successfulRequests, failedRequests, sharedClient, requestsPerThread, remainingPhaseLatch, logQueue));
+    List<Thread> producers = new ArrayList<>();
+    IntFunction<EventSource> events = startEventSources(producers, SkierClientConfig.TOTAL_REQUESTS);
+
+    ExecutorService virtualExecutor = "virtual".equals(engine) ? newVirtualThreadExecutor() : null;
+    if ("virtual".equals(engine) && virtualExecutor == null) {
+      System.err.println("Virtual threads need JDK 21 or later, falling back to the async engine.");
     }
 
-    // Wait for all requests to complete
     try {
-      remainingPhaseLatch.await();
-      eventProducer.join();
+      if (virtualExecutor != null) {
+        int threads = Math.min(SkierClientConfig.MAX_IN_FLIGHT, SkierClientConfig.TOTAL_REQUESTS);
+        int perThread = SkierClientConfig.TOTAL_REQUESTS / threads;
+        int remainder = SkierClientConfig.TOTAL_REQUESTS % threads;
+        // A histogram per virtual thread would cost more than the requests, so they share stripes
+        int stripes = Math.min(SkierClientConfig.HISTOGRAM_STRIPES, threads);
+        for (int i = 0; i < stripes; i++) {
+          histograms.add(newHistogram());
+        }
+        CountDownLatch doneLatch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+          int requestCount = perThread + (i < remainder ? 1 : 0);
+          virtualExecutor.execute(new SkierConsumerPart2(events.apply(i), requestFactory, successfulRequests, failedRequests, client, requestCount, doneLatch,
+              histograms.get(i % stripes), liveMetrics, logQueue));
+        }
+        doneLatch.await();
+        shutdownExecutor(virtualExecutor, "Virtual Thread");
+      } else {
+        LatencyHistogram histogram = newHistogram();
+        histograms.add(histogram);
+        CountDownLatch doneLatch = new CountDownLatch(1);
+        new Thread(new AsyncSkierConsumer(events.apply(0), requestFactory, successfulRequests, failedRequests, client,
+            SkierClientConfig.TOTAL_REQUESTS, SkierClientConfig.MAX_IN_FLIGHT, doneLatch, histogram, liveMetrics, logQueue)).start();
+        doneLatch.await();
+      }
+      for (Thread producer : producers) {
+        producer.join();
+      }
     } catch (InterruptedException e) {
       e.printStackTrace();
     }
+    clientExecutor.shutdown();
 
-    // Shutdown executors
-    shutdownExecutor(initialExecutor, "Initial Phase");
-    shutdownExecutor(remainingExecutor, "Remaining Phase");
+    return new RunResult(System.currentTimeMillis() - startTime, merge(histograms), List.of(run));
+  }
+
+  // Looked up reflectively so the client still builds and runs on JDK 17
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Runs one closed-loop point per concurrency level and tabulates throughput, latency and
+   * errors against concurrency, to find where the server saturates. The threads engine uses
+   * that many consumer threads; the async and virtual engines use it as MAX_IN_FLIGHT.
+   */
+  private static void runSweep(String engine, List<Integer> levels, ConcurrentLinkedQueue<RequestLog> logQueue) {
+    int requests = SkierClientConfig.SWEEP_REQUESTS_PER_POINT;
+    List<String> rows = new ArrayList<>();
+    rows.add("concurrency,requests,successful,failed,retries,runtime_ms,throughput,p50_ms,p99_ms,error_rate");
+    System.out.printf("%nSweep on the %s engine, %d requests per point%n", engine, requests);
+
+    for (int concurrency : levels) {
+      long retriesBefore = RequestSender.getRetryCount();
+      RunResult result;
+      if ("threads".equals(engine)) {
+        result = runThreadPhases(List.of(new Phase("c" + concurrency, concurrency, requests, 0, Phase.Start.AT, 0)), logQueue);
+      } else {
+        SkierClientConfig.MAX_IN_FLIGHT = concurrency;
+        SkierClientConfig.TOTAL_REQUESTS = requests;
+        result = runNonBlocking(engine, logQueue);
+      }
+      long retries = RequestSender.getRetryCount() - retriesBefore;
+      int completed = result.successful + result.failed;
+      double p50 = result.histogram.getTotalCount() == 0 ? 0 : result.histogram.getValueAtPercentile(50) / 1000.0;
+      double p99 = result.histogram.getTotalCount() == 0 ? 0 : result.histogram.getValueAtPercentile(99) / 1000.0;
+      double errorRate = completed == 0 ? 0 : (double) result.failed / completed;
+      rows.add(String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%.2f,%.3f,%.3f,%.4f", concurrency, completed,
+          result.successful, result.failed, retries, result.totalMillis, result.throughput(), p50, p99, errorRate));
+      System.out.printf("  concurrency %d: %.2f requests/second, p99 %.3f ms, %d failed%n",
+          concurrency, result.throughput(), p99, result.failed);
+    }
 
-    List<RequestLog> metricsLogs = new ArrayList<>(logQueue);
+    System.out.println("\nSweep Results:");
+    System.out.printf("%12s %14s %10s %10s %8s %8s%n", "concurrency", "throughput/s", "p50 ms", "p99 ms", "failed", "retries");
+    for (String row : rows.subList(1, rows.size())) {
+      String[] f = row.split(",");
+      System.out.printf("%12s %14s %10s %10s %8s %8s%n", f[0], f[6], f[7], f[8], f[3], f[4]);
+    }
+    if (!SkierClientConfig.SWEEP_OUTPUT_PATH.isEmpty()) {
+      try {
+        Files.write(Path.of(SkierClientConfig.SWEEP_OUTPUT_PATH), rows);
+        System.out.println("Sweep results written to " + SkierClientConfig.SWEEP_OUTPUT_PATH);
+      } catch (IOException e) {
+        System.err.println("Failed to write sweep results: " + e.getMessage());
+      }
+    }
+  }
+
+  private static void runOpenLoop(IntervalReporter reporter, ConcurrentLinkedQueue<RequestLog> logQueue) {
+    ArrivalSchedule schedule = ArrivalSchedule.create(SkierClientConfig.ARRIVAL_PATTERN,
+        SkierClientConfig.TARGET_RATE, SkierClientConfig.OPEN_LOOP_DURATION_SECONDS,
+        SkierClientConfig.STEP_RATE_INCREMENT, SkierClientConfig.STEP_SECONDS, SkierClientConfig.SCHEDULE_SEED);
+
+    // The scheduler thread draws events itself, so there is no producer queue
+    new OpenLoopRunner(sharedClient, schedule, SkierClientConfig.MAX_OUTSTANDING_REQUESTS,
+        SkierClientConfig.DISPATCHER_THREADS, eventGenerator, requestFactory, liveMetrics, logQueue)
+        .run(30_000, () -> stopReporter(reporter));
+
+    finishLatencyLog();
+  }
+
+  private static LatencyHistogram merge(List<LatencyHistogram> histograms) {
+    LatencyHistogram merged = newHistogram();
+    for (LatencyHistogram histogram : histograms) {
+      synchronized (histogram) {
+        merged.add(histogram);
+      }
+    }
+    return merged;
+  }
+
+  private static void stopReporter(IntervalReporter reporter) {
+    if (reporter != null) {
+      reporter.stop();
+    }
+  }
+
+  static LatencyHistogram newHistogram() {
+    return new LatencyHistogram(SkierClientConfig.HISTOGRAM_MAX_LATENCY_MICROS, SkierClientConfig.HISTOGRAM_SIGNIFICANT_DIGITS);
+  }
 
-    Thread logWriterThread = new Thread(new LogConsumer(logQueue));
+  /**
+   * Starts PRODUCER_THREADS producers that share totalEvents events (unbounded when negative)
+   * through a bounded queue
+   * and returns the queue as every consumer's source, or, with LOCAL_EVENT_GENERATION, gives
+   * consumer i its own generator stream. Stream indexes are fixed, so seeded runs repeat.
+   */
+  private static IntFunction<EventSource> startEventSources(List<Thread> producers, int totalEvents) {
+    System.out.println("Workload " + eventGenerator.getProfile()
+        + (SkierClientConfig.WORKLOAD_SEED == 0 ? ", unseeded" : ", seed " + SkierClientConfig.WORKLOAD_SEED));
+    if (SkierClientConfig.LOCAL_EVENT_GENERATION) {
+      return consumer -> EventSource.local(eventGenerator.stream(consumer));
+    }
+    BlockingQueue<SkierEvent> eventQueue = new LinkedBlockingQueue<>(SkierClientConfig.QUEUE_SIZE);
+    int producerCount = SkierClientConfig.PRODUCER_THREADS;
+    for (int i = 0; i < producerCount; i++) {
+      int share = totalEvents < 0 ? -1 : totalEvents / producerCount + (i < totalEvents % producerCount ? 1 : 0);
+      Thread producer = new Thread(new SkierProducer(eventQueue, share, eventGenerator.stream(i)), "event-producer-" + i);
+      producer.start();
+      producers.add(producer);
+    }
+    EventSource shared = EventSource.fromQueue(eventQueue);
+    return consumer -> shared;
+  }
+
+  /**
+   * Creates the request log queue and starts the writer that streams it to disk during the run,
+   * or returns null when the per-request log is disabled.
+   */
+  private static ConcurrentLinkedQueue<RequestLog> newLogQueue() {
+    if (!SkierClientConfig.WRITE_LATENCY_LOG) {
+      return null;
+    }
+    ConcurrentLinkedQueue<RequestLog> logQueue = new ConcurrentLinkedQueue<>();
+    boolean binary = "binary".equalsIgnoreCase(SkierClientConfig.LATENCY_LOG_FORMAT);
+    logWriter = new LogConsumer(logQueue, binary ? SkierClientConfig.BINARY_LOG_PATH : SkierClientConfig.FILE_PATH, binary);
+    logWriterThread = new Thread(logWriter, "latency-log-writer");
     logWriterThread.start();
+    return logQueue;
+  }
+
+  private static void finishLatencyLog() {
+    if (logWriter == null) {
+      return;
+    }
+    logWriter.finish();
     try {
       logWriterThread.join();
     } catch (InterruptedException e) {
       e.printStackTrace();
     }
-
-    // Calculate and print statistics
-    long endTime = System.currentTimeMillis();
-    long totalTime = endTime - startTime;
-    double throughput = SkierClientConfig.TOTAL_REQUESTS / (totalTime / 1000.0);
-
-    System.out.println("\nClient Part 2 Performance Results:");
-    System.out.println("=============Total===============");
-    System.out.println("Total successful requests: " + successfulRequests.get());
-    System.out.println("Total failed requests: " + failedRequests.get());
-    System.out.println("Total runtime: " + totalTime + " ms");
-    System.out.printf("Throughput: %.2f requests/second%n", throughput);
-    processLatencyMetrics(metricsLogs);
   }
 
-  private static void processLatencyMetrics(List<RequestLog> logQueue) {
-    List<Long> latencies = new ArrayList<>();
-    for (RequestLog log : logQueue) {
-      latencies.add(log.getLatency());
-    }
-    if (latencies.isEmpty()) {
+  static void printLatencyMetrics(LatencyHistogram histogram) {
+    if (histogram.getTotalCount() == 0) {
       System.out.println("No latency data collected.");
       return;
     }
 
-    Collections.sort(latencies);
-    long minLatency = latencies.get(0);
-    long maxLatency = latencies.get(latencies.size() - 1);
-    double meanLatency = latencies.stream().mapToLong(Long::longValue).average().orElse(0.0);
-    long medianLatency = latencies.get(latencies.size() / 2);
-    long p99Latency = latencies.get((int) (latencies.size() * 0.99));
-
     System.out.println("\nResponse Metrics:");
-    System.out.println("Min response time: " + minLatency + " ms");
-    System.out.println("Max response time: " + maxLatency + " ms");
-    System.out.printf("Mean response time: %.2f ms%n", meanLatency);
-    System.out.println("Median response time: " + medianLatency + " ms");
-    System.out.println("99th percentile response time: " + p99Latency + " ms");
+    System.out.printf("Min response time: %.3f ms%n", histogram.getMin() / 1000.0);
+    System.out.printf("Max response time: %.3f ms%n", histogram.getMax() / 1000.0);
+    System.out.printf("Mean response time: %.3f ms%n", histogram.getMean() / 1000.0);
+    System.out.printf("Median response time: %.3f ms%n", histogram.getValueAtPercentile(50) / 1000.0);
+    System.out.printf("90th percentile response time: %.3f ms%n", histogram.getValueAtPercentile(90) / 1000.0);
+    System.out.printf("99th percentile response time: %.3f ms%n", histogram.getValueAtPercentile(99) / 1000.0);
+    System.out.printf("99.9th percentile response time: %.3f ms%n", histogram.getValueAtPercentile(99.9) / 1000.0);
   }
 
   private static void shutdownExecutor(ExecutorService executor, String phaseName) {
@@ -141,4 +411,71 @@ public class SkierClientPart2 {
     }
   }
 
-}
\ No newline at end of file
+  /**
+   * Consumer pool and counters of one phase as it runs.
+   */
+  private static final class PhaseRun {
+    private final Phase phase;
+    private final ExecutorService executor;
+    private final AtomicInteger successful = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    // Released when the first consumer finishes and when all have, for the next phase's trigger
+    private final CountDownLatch firstDone = new CountDownLatch(1);
+    private final CountDownLatch allDone;
+
+    private PhaseRun(Phase phase) {
+      this.phase = phase;
+      this.executor = Executors.newFixedThreadPool(phase.getThreads());
+      this.allDone = new CountDownLatch(phase.getThreads());
+    }
+  }
+
+  /**
+   * Totals of a closed-loop run. Throughput counts the requests that actually completed, which
+   * for timed phases isn't known until the end.
+   */
+  private static final class RunResult {
+    private final long totalMillis;
+    private final LatencyHistogram histogram;
+    private final List<PhaseRun> phases;
+    private final int successful;
+    private final int failed;
+
+    private RunResult(long totalMillis, LatencyHistogram histogram, List<PhaseRun> phases) {
+      this.totalMillis = totalMillis;
+      this.histogram = histogram;
+      this.phases = phases;
+      int ok = 0;
+      int errors = 0;
+      for (PhaseRun run : phases) {
+        ok += run.successful.get();
+        errors += run.failed.get();
+      }
+      this.successful = ok;
+      this.failed = errors;
+    }
+
+    private double throughput() {
+      return (successful + failed) / (Math.max(totalMillis, 1) / 1000.0);
+    }
+
+    private void print() {
+      System.out.println("\nClient Part 2 Performance Results:");
+      if (phases.size() > 1 || phases.get(0).phase.isTimed()) {
+        System.out.println("=============Phases==============");
+        for (PhaseRun run : phases) {
+          String planned = run.phase.isTimed() ? run.phase.getDurationSeconds() + " s" : run.phase.getRequests() + " planned";
+          System.out.printf("%s (%d threads, %s): %d successful, %d failed%n", run.phase.getName(),
+              run.phase.getThreads(), planned, run.successful.get(), run.failed.get());
+        }
+      }
+      System.out.println("=============Total===============");
+      System.out.println("Total successful requests: " + successful);
+      System.out.println("Total failed requests: " + failed);
+      System.out.println("Total runtime: " + totalMillis + " ms");
+      System.out.printf("Throughput: %.2f requests/second%n", throughput());
+      System.out.println(RequestSender.getRetryPolicy().statsReport());
+      printLatencyMetrics(histogram);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package config;
+
+/**
+ * One stage of a closed-loop run on the threads engine: how many consumer threads, how much
+ * work (a request count split exactly across the threads, or a duration), and when it starts.
+ */
+public final class Phase {
+  /**
+   * When a phase starts relative to the run or the phase before it.
+   */
+  public enum Start {
+    /** as soon as any thread of the previous phase has finished (the original ramp) */
+    FIRST,
+    /** once every thread of the previous phase has finished */
+    DONE,
+    /** a fixed number of seconds after the run started */
+    AT
+  }
+
+  private final String name;
+  private final int threads;
+  private final int requests;
+  private final int durationSeconds;
+  private final Start start;
+  private final int startSeconds;
+
+  /**
+   * @param requests total requests for the phase, or -1 when it runs for durationSeconds
+   */
+  public Phase(String name, int threads, int requests, int durationSeconds, Start start, int startSeconds) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Phase " + name + " needs at least one thread");
+    }
+    if ((requests >= 0) == (durationSeconds > 0)) {
+      throw new IllegalArgumentException("Phase " + name + " needs exactly one of requests or seconds");
+    }
+    this.name = name;
+    this.threads = threads;
+    this.requests = requests;
+    this.durationSeconds = durationSeconds;
+    this.start = start;
+    this.startSeconds = startSeconds;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public int getRequests() {
+    return requests;
+  }
+
+  public boolean isTimed() {
+    return requests < 0;
+  }
+
+  public int getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public Start getStart() {
+    return start;
+  }
+
+  public int getStartSeconds() {
+    return startSeconds;
+  }
+
+  /**
+   * Requests for thread i: the count divided evenly, with the remainder going to the first
+   * threads so the phase total is exact.
+   */
+  public int requestsForThread(int i) {
+    return requests / threads + (i < requests % threads ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    String work = isTimed() ? durationSeconds + " s" : requests + " requests";
+    String when = start == Start.AT ? "at " + startSeconds + " s" : "after " + start.name().toLowerCase() + " of previous";
+    return name + ": " + threads + " threads, " + work + ", " + when;
+  }
+}
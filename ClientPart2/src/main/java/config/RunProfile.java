@@ -0,0 +1,174 @@
+package config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Loads a run's settings from a properties file and the command line, on top of the defaults
+ * in {@link SkierClientConfig}.
+ *
+ * <pre>
+ *   java client.SkierClientPart2 [--profile=run.properties] [--KEY=value ...]
+ * </pre>
+ * Keys are SkierClientConfig field names, case-insensitive, with '-' accepted for '_'
+ * (so --total-requests=50000 works); command-line values win over the file. Phases are
+ * listed in PHASES and described by phase.&lt;name&gt;.threads, .requests or .seconds, and
+ * .start = first | done | at:&lt;seconds&gt;.
+ */
+public final class RunProfile {
+  private final List<Phase> phases;
+  private final List<Integer> sweepConcurrency;
+
+  private RunProfile(List<Phase> phases, List<Integer> sweepConcurrency) {
+    this.phases = phases;
+    this.sweepConcurrency = sweepConcurrency;
+  }
+
+  /**
+   * Applies the profile file and command-line overrides to SkierClientConfig and parses the
+   * phases and sweep points.
+   */
+  public static RunProfile load(String[] args) {
+    Properties values = new Properties();
+    Properties cli = new Properties();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+        throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+      }
+      int eq = arg.indexOf('=');
+      cli.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+    }
+
+    String profilePath = cli.getProperty("profile");
+    if (profilePath != null) {
+      cli.remove("profile");
+      try (Reader reader = Files.newBufferedReader(Path.of(profilePath))) {
+        values.load(reader);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Cannot read run profile " + profilePath + ": " + e.getMessage(), e);
+      }
+    }
+    values.putAll(cli);
+
+    Properties phaseValues = new Properties();
+    for (String key : values.stringPropertyNames()) {
+      String value = values.getProperty(key).trim();
+      if (key.startsWith("phase.")) {
+        phaseValues.setProperty(key, value);
+      } else {
+        setField(key, value);
+      }
+    }
+    return new RunProfile(parsePhases(phaseValues), parseSweep(SkierClientConfig.SWEEP_CONCURRENCY));
+  }
+
+  public List<Phase> getPhases() {
+    return phases;
+  }
+
+  public List<Integer> getSweepConcurrency() {
+    return sweepConcurrency;
+  }
+
+  private static void setField(String key, String value) {
+    String name = key.replace('-', '_').replace('.', '_').toUpperCase(Locale.ROOT);
+    Field field;
+    try {
+      field = SkierClientConfig.class.getField(name);
+    } catch (NoSuchFieldException e) {
+      throw new IllegalArgumentException("Unknown setting: " + key);
+    }
+    if (!Modifier.isStatic(field.getModifiers())) {
+      throw new IllegalArgumentException("Unknown setting: " + key);
+    }
+    try {
+      Class<?> type = field.getType();
+      if (type == int.class) {
+        field.setInt(null, Integer.parseInt(value.replace("_", "")));
+      } else if (type == long.class) {
+        field.setLong(null, Long.parseLong(value.replace("_", "")));
+      } else if (type == double.class) {
+        field.setDouble(null, Double.parseDouble(value));
+      } else if (type == boolean.class) {
+        field.setBoolean(null, Boolean.parseBoolean(value));
+      } else {
+        field.set(null, value);
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Bad value for " + key + ": " + value);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static List<Phase> parsePhases(Properties values) {
+    if (SkierClientConfig.PHASES.isBlank()) {
+      if (!values.isEmpty()) {
+        throw new IllegalArgumentException("phase.* settings need PHASES to list the phase names");
+      }
+      return legacyPhases();
+    }
+    List<Phase> phases = new ArrayList<>();
+    for (String name : SkierClientConfig.PHASES.split(",")) {
+      name = name.trim();
+      String prefix = "phase." + name + ".";
+      String threads = values.getProperty(prefix + "threads");
+      if (threads == null) {
+        throw new IllegalArgumentException("Missing " + prefix + "threads");
+      }
+      int requests = Integer.parseInt(values.getProperty(prefix + "requests", "-1").replace("_", ""));
+      int seconds = Integer.parseInt(values.getProperty(prefix + "seconds", "0"));
+      String start = values.getProperty(prefix + "start", phases.isEmpty() ? "at:0" : "first").toLowerCase(Locale.ROOT);
+      Phase.Start trigger;
+      int startSeconds = 0;
+      if (start.startsWith("at:")) {
+        trigger = Phase.Start.AT;
+        startSeconds = Integer.parseInt(start.substring(3));
+      } else if ("first".equals(start) || "done".equals(start)) {
+        trigger = Phase.Start.valueOf(start.toUpperCase(Locale.ROOT));
+      } else {
+        throw new IllegalArgumentException("Bad " + prefix + "start: " + start);
+      }
+      phases.add(new Phase(name, Integer.parseInt(threads), requests, seconds, trigger, startSeconds));
+    }
+    for (String key : values.stringPropertyNames()) {
+      String name = key.substring("phase.".length(), Math.max("phase.".length(), key.lastIndexOf('.')));
+      if (phases.stream().noneMatch(phase -> phase.getName().equals(name))) {
+        throw new IllegalArgumentException(key + " is not for a phase listed in PHASES");
+      }
+    }
+    return Collections.unmodifiableList(phases);
+  }
+
+  // The original ramp: INITIAL_THREADS threads, then the rest of TOTAL_REQUESTS once one finishes
+  private static List<Phase> legacyPhases() {
+    int initialRequests = SkierClientConfig.INITIAL_THREADS * SkierClientConfig.INITIAL_REQUESTS_PER_THREAD;
+    List<Phase> phases = new ArrayList<>();
+    phases.add(new Phase("initial", SkierClientConfig.INITIAL_THREADS, initialRequests, 0, Phase.Start.AT, 0));
+    int remaining = SkierClientConfig.TOTAL_REQUESTS - initialRequests;
+    if (remaining > 0) {
+      phases.add(new Phase("remaining", SkierClientConfig.SECOND_PHASE_THREADS, remaining, 0, Phase.Start.FIRST, 0));
+    }
+    return Collections.unmodifiableList(phases);
+  }
+
+  private static List<Integer> parseSweep(String spec) {
+    List<Integer> points = new ArrayList<>();
+    if (spec == null || spec.isBlank()) {
+      return points;
+    }
+    for (String point : spec.split(",")) {
+      points.add(Integer.parseInt(point.trim()));
+    }
+    return Collections.unmodifiableList(points);
+  }
+}
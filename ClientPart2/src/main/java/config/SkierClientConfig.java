@@ -1,21 +1,97 @@
 package config;
+
+/**
+ * Client settings. The values here are defaults: any field can be overridden at startup from a
+ * run profile file or the command line by {@link RunProfile}, so sizing experiments don't need
+ * a rebuild.
+ */
 public class SkierClientConfig {
   // Server URL
-  public static final String SERVER_URL = "http://44.245.120.39:8080/Assignment1_war/skiers/";
-  //  public static final String SERVER_URL = "http://localhost:8080/Assignment1/skiers/";
+  public static String SERVER_URL = "http://44.245.120.39:8080/Assignment1_war/skiers/";
+  //  public static String SERVER_URL = "http://localhost:8080/Assignment1/skiers/";
+
+  public static String FILE_PATH = "latency_data.csv";
+  // Per-request log, streamed to disk during the run; the latency report comes from histograms either way
+  public static boolean WRITE_LATENCY_LOG = true;
+  public static String LATENCY_LOG_FORMAT = "csv"; // csv (FILE_PATH) or binary (BINARY_LOG_PATH)
+  public static String BINARY_LOG_PATH = "latency_data.bin";
+
+  // Live Metrics: print an interval report every N seconds (0 disables), optionally as CSV too
+  public static int REPORT_INTERVAL_SECONDS = 5;
+  public static String INTERVAL_METRICS_PATH = ""; // e.g. "interval_metrics.csv"
 
-  public static final String FILE_PATH = "latency_data.csv";
+  // Latency Histogram Configuration
+  public static long HISTOGRAM_MAX_LATENCY_MICROS = 60_000_000L;
+  public static int HISTOGRAM_SIGNIFICANT_DIGITS = 2;
+  // Histograms shared by the virtual-thread engine's consumers, instead of one per thread
+  public static int HISTOGRAM_STRIPES = 64;
 
   // Thread Configuration
-  public static final int INITIAL_THREADS = 32;
-  public static final int SECOND_PHASE_THREADS = 200;
+  public static int INITIAL_THREADS = 32;
+  public static int SECOND_PHASE_THREADS = 200;
 
   // Request Configuration
-  public static final int INITIAL_REQUESTS_PER_THREAD = 1000;
-  public static final int TOTAL_REQUESTS = 200000;
+  public static int INITIAL_REQUESTS_PER_THREAD = 1000;
+  public static int TOTAL_REQUESTS = 200000;
+
+  // Phases for the threads engine, e.g. "warmup,peak" with phase.<name>.* keys in the run profile
+  // (see RunProfile); empty runs the two phases described by the thread/request settings above
+  public static String PHASES = "";
+
+  // Sweep: comma-separated concurrency levels, each run as its own single-phase point
+  public static String SWEEP_CONCURRENCY = ""; // e.g. "8,16,32,64,128,256"
+  public static int SWEEP_REQUESTS_PER_POINT = 20000;
+  public static String SWEEP_OUTPUT_PATH = "sweep_results.csv";
 
   // Retry and Queue Configuration
-  public static final int MAX_RETRIES = 5;
-  public static final int QUEUE_SIZE = 10000;
+  public static int MAX_RETRIES = 5; // attempts per request, including the first
+  public static long RETRY_BASE_DELAY_MS = 100; // full-jitter backoff: random up to base * 2^attempt
+  public static long RETRY_MAX_DELAY_MS = 5000;
+  // Send an Idempotency-Key per event so a retried POST that was already published is
+  // counted once by the consumer
+  public static boolean IDEMPOTENCY_KEYS = true;
+  // Retries allowed as a fraction of requests, plus a small per-second allowance for low traffic
+  public static double RETRY_BUDGET_RATIO = 0.2;
+  public static double RETRY_BUDGET_MIN_PER_SECOND = 10;
+  // Circuit breaker: open when at least half of the requests in the window failed, shed for a
+  // while, then let a few probes through
+  public static double BREAKER_FAILURE_RATE = 0.5;
+  public static int BREAKER_MIN_REQUESTS = 100;
+  public static int BREAKER_WINDOW_SECONDS = 10;
+  public static long BREAKER_OPEN_MILLIS = 5000;
+  public static int BREAKER_HALF_OPEN_PROBES = 10;
+  public static int QUEUE_SIZE = 10000;
+
+  // Event Generation: producers feeding the shared queue, or (when local) each consumer
+  // generates its own events and the queue is skipped
+  public static int PRODUCER_THREADS = 2;
+  public static boolean LOCAL_EVENT_GENERATION = false;
+
+  // Workload: "uniform", "zipf", "season" or the path of a .properties profile (see WorkloadProfile)
+  public static String WORKLOAD_PROFILE = "uniform";
+  // Non-zero makes each producer/consumer event stream reproducible
+  public static long WORKLOAD_SEED = 0;
+
+  // Closed-loop engine: "threads" (one blocking platform thread per concurrent request),
+  // "async" (sendAsync with a bounded in-flight window) or "virtual" (blocking requests on
+  // virtual threads; needs JDK 21+, falls back to "async" otherwise)
+  public static String CLIENT_ENGINE = "threads";
+  // Concurrent requests for the async and virtual engines; above ~1000 raise the open file limit
+  public static int MAX_IN_FLIGHT = 10000;
+  // HttpClient executor size for the async and virtual engines (only runs response handling)
+  public static int ASYNC_CLIENT_THREADS = 4;
+
+  // Load Mode: "closed" (fixed thread phases) or "open" (requests issued on an arrival schedule)
+  public static String LOAD_MODE = "closed";
+
+  // Open-loop Configuration
+  public static String ARRIVAL_PATTERN = "constant"; // constant, step or poisson
+  public static double TARGET_RATE = 3000; // requests/second (starting rate for step)
+  public static int OPEN_LOOP_DURATION_SECONDS = 60;
+  public static double STEP_RATE_INCREMENT = 500; // requests/second added per step
+  public static int STEP_SECONDS = 10;
+  public static int MAX_OUTSTANDING_REQUESTS = 20000;
+  public static int DISPATCHER_THREADS = 8;
+  public static long SCHEDULE_SEED = 42;
 
 }
\ No newline at end of file
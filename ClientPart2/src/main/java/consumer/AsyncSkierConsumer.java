@@ -0,0 +1,101 @@
+package consumer;
+
+import api.RequestFactory;
+import api.RequestSender;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import metrics.ClientMetrics;
+import metrics.LatencyHistogram;
+import model.RequestLog;
+import producer.EventSource;
+
+/**
+ * Non-blocking counterpart of {@link SkierConsumerPart2}: one thread takes events from the queue
+ * and issues them with HttpClient.sendAsync, keeping at most maxInFlight requests outstanding.
+ * Completions are counted and logged exactly like the blocking consumer, so concurrency is
+ * bounded by the window instead of by the number of OS threads.
+ */
+public class AsyncSkierConsumer implements Runnable {
+  private final EventSource eventSource;
+  private final RequestFactory requestFactory;
+  private final AtomicInteger successfulRequests;
+  private final AtomicInteger failedRequests;
+  private final HttpClient sharedClient;
+  private final int requestCount;
+  private final int maxInFlight;
+  private final CountDownLatch doneLatch;
+  private final LatencyHistogram histogram;
+  private final ClientMetrics liveMetrics;
+  private final ConcurrentLinkedQueue<RequestLog> logQueue;
+
+  public AsyncSkierConsumer(EventSource eventSource, RequestFactory requestFactory, AtomicInteger successfulRequests, AtomicInteger failedRequests,
+      HttpClient sharedClient, int requestCount, int maxInFlight, CountDownLatch doneLatch,
+      LatencyHistogram histogram, ClientMetrics liveMetrics, ConcurrentLinkedQueue<RequestLog> logQueue) {
+    this.eventSource = eventSource;
+    this.requestFactory = requestFactory;
+    this.successfulRequests = successfulRequests;
+    this.failedRequests = failedRequests;
+    this.sharedClient = sharedClient;
+    this.requestCount = requestCount;
+    this.maxInFlight = maxInFlight;
+    this.doneLatch = doneLatch;
+    this.histogram = histogram;
+    this.liveMetrics = liveMetrics;
+    this.logQueue = logQueue;
+  }
+
+  @Override
+  public void run() {
+    Semaphore window = new Semaphore(maxInFlight);
+    CountDownLatch completed = new CountDownLatch(requestCount);
+
+    try {
+      for (int i = 0; i < requestCount; i++) {
+        HttpRequest request = requestFactory.postRequest(eventSource.next());
+
+        // Wait for a free slot so a slow server can't pile up unbounded requests
+        window.acquire();
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        liveMetrics.requestStarted();
+        RequestSender.sendPostRequestAsync(sharedClient, request).whenComplete((code, error) -> {
+          long latencyNanos = System.nanoTime() - startNanos;
+          int responseCode = error == null ? code : 500;
+          liveMetrics.requestCompleted(responseCode, latencyNanos / 1000);
+          // Completions arrive on the client's executor threads
+          synchronized (histogram) {
+            histogram.record(latencyNanos / 1000);
+          }
+          if (logQueue != null) {
+            logQueue.offer(new RequestLog(startTime, "POST", latencyNanos / 1_000_000, responseCode));
+          }
+          if (responseCode == 201) {
+            successfulRequests.incrementAndGet();
+          } else {
+            failedRequests.incrementAndGet();
+          }
+          if (responseCode == RequestSender.CIRCUIT_OPEN) {
+            // Hold the slot while the circuit is open rather than feeding it more doomed events
+            CompletableFuture.delayedExecutor(RequestSender.getRetryPolicy().shedPauseMillis(), TimeUnit.MILLISECONDS)
+                .execute(window::release);
+          } else {
+            window.release();
+          }
+          completed.countDown();
+        });
+      }
+      completed.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("Request processing interrupted: " + e.getMessage());
+    } finally {
+      doneLatch.countDown();
+    }
+  }
+}
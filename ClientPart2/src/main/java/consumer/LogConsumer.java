@@ -1,36 +1,153 @@
 package consumer;
 
-import static config.SkierClientConfig.FILE_PATH;
-
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import model.RequestLog;
 
+/**
+ * Streams request logs to disk while the test runs: the queue is drained in batches into a
+ * direct buffer that is written to a FileChannel whenever it fills or the queue goes idle, so
+ * the queue stays short and there is nothing left to do when the run ends.
+ *
+ * Output is either CSV or a fixed-width big-endian binary file that can be memory-mapped by
+ * {@link client.LatencyLogReader}: a 16 byte header (magic, version, record size, reserved)
+ * followed by 24 byte records (startTime, latency ms, response code, request type).
+ */
 public class LogConsumer implements Runnable {
+  public static final int BINARY_MAGIC = 0x534B4C47; // "SKLG"
+  public static final int BINARY_VERSION = 1;
+  public static final int BINARY_HEADER_BYTES = 16;
+  public static final int BINARY_RECORD_BYTES = 24;
+  public static final int TYPE_POST = 0;
+  public static final int TYPE_GET = 1;
+
+  private static final int BUFFER_BYTES = 256 * 1024;
+  // Room for the longest CSV line, so a record never straddles a flush
+  private static final int MAX_RECORD_BYTES = 128;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final byte[] CSV_HEADER = "StartTime,RequestType,Latency(ms),ResponseCode\n".getBytes(StandardCharsets.US_ASCII);
+
   private final ConcurrentLinkedQueue<RequestLog> queue;
+  private final String filePath;
+  private final boolean binary;
+  private final byte[] digits = new byte[20];
+  private volatile boolean finished;
+  private long recordsWritten;
 
-  public LogConsumer(ConcurrentLinkedQueue<RequestLog> queue) {
+  public LogConsumer(ConcurrentLinkedQueue<RequestLog> queue, String filePath, boolean binary) {
     this.queue = queue;
+    this.filePath = filePath;
+    this.binary = binary;
+  }
+
+  /**
+   * Signals that no more logs will be offered; the writer drains what is left and exits.
+   */
+  public void finish() {
+    finished = true;
   }
 
   @Override
   public void run() {
-    try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH))) {
-      writer.write("StartTime,RequestType,Latency(ms),ResponseCode\n");
-
-      RequestLog log;
-      while ((log = queue.poll()) != null) {
-        writer.write(String.format("%d,%s,%d,%d\n",
-            log.getStartTime(),
-            log.getRequestType(),
-            log.getLatency(),
-            log.getResponseCode()));
+    try (FileChannel channel = FileChannel.open(Path.of(filePath),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+      if (binary) {
+        buffer.putInt(BINARY_MAGIC).putInt(BINARY_VERSION).putInt(BINARY_RECORD_BYTES).putInt(0);
+      } else {
+        buffer.put(CSV_HEADER);
       }
-      System.out.println("Latency data saved to latency_data.csv");
+
+      while (true) {
+        // Read the flag before draining so logs offered before finish() are never missed
+        boolean done = finished;
+        RequestLog log;
+        boolean drained = false;
+        while ((log = queue.poll()) != null) {
+          if (buffer.remaining() < MAX_RECORD_BYTES) {
+            flush(channel, buffer);
+          }
+          if (binary) {
+            appendBinary(buffer, log);
+          } else {
+            appendCsv(buffer, log);
+          }
+          recordsWritten++;
+          drained = true;
+        }
+        if (done) {
+          break;
+        }
+        if (!drained) {
+          flush(channel, buffer);
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+      }
+      flush(channel, buffer);
+      System.out.println("Latency data saved to " + filePath + " (" + recordsWritten + " records)");
     } catch (IOException e) {
       System.err.println("Error writing to file: " + e.getMessage());
     }
   }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static void appendBinary(ByteBuffer buffer, RequestLog log) {
+    buffer.putLong(log.getStartTime())
+        .putLong(log.getLatency())
+        .putInt(log.getResponseCode())
+        .putInt(typeCode(log.getRequestType()));
+  }
+
+  private void appendCsv(ByteBuffer buffer, RequestLog log) {
+    appendLong(buffer, log.getStartTime());
+    buffer.put((byte) ',');
+    String type = log.getRequestType();
+    for (int i = 0; i < type.length() && i < 16; i++) {
+      buffer.put((byte) type.charAt(i));
+    }
+    buffer.put((byte) ',');
+    appendLong(buffer, log.getLatency());
+    buffer.put((byte) ',');
+    appendLong(buffer, log.getResponseCode());
+    buffer.put((byte) '\n');
+  }
+
+  // Decimal ASCII without going through String
+  private void appendLong(ByteBuffer buffer, long value) {
+    if (value < 0) {
+      buffer.put((byte) '-');
+      value = -value;
+    }
+    int pos = digits.length;
+    do {
+      digits[--pos] = (byte) ('0' + (value % 10));
+      value /= 10;
+    } while (value > 0);
+    buffer.put(digits, pos, digits.length - pos);
+  }
+
+  public static int typeCode(String requestType) {
+    switch (requestType) {
+      case "POST":
+        return TYPE_POST;
+      case "GET":
+        return TYPE_GET;
+      default:
+        return -1;
+    }
+  }
 }
@@ -1,36 +1,62 @@
 package consumer;
 
-import static config.SkierClientConfig.MAX_RETRIES;
-
+import api.RequestFactory;
 import api.RequestSender;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import metrics.ClientMetrics;
+import metrics.LatencyHistogram;
 import model.RequestLog;
+import producer.EventSource;
 
 public class SkierConsumerPart2 implements Runnable {
-  private final BlockingQueue<String> eventQueue;
+  private final EventSource eventSource;
+  private final RequestFactory requestFactory;
   private final AtomicInteger successfulRequests;
   private final AtomicInteger failedRequests;
   private final HttpClient sharedClient;
 
   private final CountDownLatch startLatch;
   private final int requestCount;
+  private final long deadlineNanos;
+  private final LatencyHistogram histogram;
+  private final ClientMetrics liveMetrics;
   private final ConcurrentLinkedQueue<RequestLog> logQueue;
 
-  public SkierConsumerPart2(BlockingQueue<String> eventQueue, AtomicInteger successfulRequests, AtomicInteger failedRequests,
-      HttpClient sharedClient, int requestCount, CountDownLatch startLatch, ConcurrentLinkedQueue<RequestLog> logQueue) {
-    this.eventQueue = eventQueue;
+  /**
+   * @param liveMetrics run-wide counters read by the interval reporter
+   * @param histogram latency recorder, normally owned by this consumer alone
+   * @param logQueue per-request CSV records, or null to keep only the histogram
+   */
+  public SkierConsumerPart2(EventSource eventSource, RequestFactory requestFactory, AtomicInteger successfulRequests, AtomicInteger failedRequests,
+      HttpClient sharedClient, int requestCount, CountDownLatch startLatch, LatencyHistogram histogram, ClientMetrics liveMetrics,
+      ConcurrentLinkedQueue<RequestLog> logQueue) {
+    this(eventSource, requestFactory, successfulRequests, failedRequests, sharedClient, requestCount, 0, startLatch,
+        histogram, liveMetrics, logQueue);
+  }
+
+  /**
+   * @param deadlineNanos System.nanoTime() after which no new request is started, or 0 to stop
+   *     only after requestCount requests
+   */
+  public SkierConsumerPart2(EventSource eventSource, RequestFactory requestFactory, AtomicInteger successfulRequests, AtomicInteger failedRequests,
+      HttpClient sharedClient, int requestCount, long deadlineNanos, CountDownLatch startLatch, LatencyHistogram histogram,
+      ClientMetrics liveMetrics, ConcurrentLinkedQueue<RequestLog> logQueue) {
+    this.eventSource = eventSource;
+    this.requestFactory = requestFactory;
     this.successfulRequests = successfulRequests;
     this.failedRequests = failedRequests;
     this.sharedClient = sharedClient;
     this.requestCount = requestCount;
+    this.deadlineNanos = deadlineNanos;
     this.startLatch = startLatch;
+    this.histogram = histogram;
+    this.liveMetrics = liveMetrics;
     this.logQueue = logQueue;
   }
 
@@ -39,21 +65,25 @@ public class SkierConsumerPart2 implements Runnable {
     int processedRequests = 0;
 
     try {
-      while (processedRequests < requestCount) {
+      while (processedRequests < requestCount && !pastDeadline()) {
 
-        String event = eventQueue.take();
-        String[] parts = event.split("::");
-        String endpoint = parts[0];
-        String jsonBody = parts[1];
+        HttpRequest request = requestFactory.postRequest(eventSource.next());
 
         // capture start time, end time and latency
         long startTime = System.currentTimeMillis();
-        int responseCode = RequestSender.sendPostRequestWithRetry(sharedClient, endpoint, jsonBody);
-        long endTime = System.currentTimeMillis();
-        long latency = endTime - startTime;
+        long startNanos = System.nanoTime();
+        liveMetrics.requestStarted();
+        int responseCode = RequestSender.sendPostRequestWithRetry(sharedClient, request);
+        long latencyNanos = System.nanoTime() - startNanos;
+        liveMetrics.requestCompleted(responseCode, latencyNanos / 1000);
 
-        // Add log to queue
-        logQueue.offer(new RequestLog(startTime, "POST", latency, responseCode));
+        // Uncontended unless several virtual-thread consumers share the histogram
+        synchronized (histogram) {
+          histogram.record(latencyNanos / 1000);
+        }
+        if (logQueue != null) {
+          logQueue.offer(new RequestLog(startTime, "POST", latencyNanos / 1_000_000, responseCode));
+        }
 
         // capture end time
         if (responseCode == 201) {
@@ -61,6 +91,9 @@ public class SkierConsumerPart2 implements Runnable {
         } else {
           failedRequests.incrementAndGet();
         }
+        if (responseCode == RequestSender.CIRCUIT_OPEN) {
+          Thread.sleep(RequestSender.getRetryPolicy().shedPauseMillis());
+        }
 
         processedRequests++;
       }
@@ -72,4 +105,8 @@ public class SkierConsumerPart2 implements Runnable {
     }
   }
 
+  private boolean pastDeadline() {
+    return deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0;
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free live counters for a client run, read periodically by {@link IntervalReporter}.
+ *
+ * Everything is cumulative: request threads only increment, and the reporter diffs successive
+ * snapshots to get per-interval throughput, error rates and latency percentiles per response
+ * code, so recording never blocks on reporting.
+ */
+public class ClientMetrics {
+  private final HistogramLayout layout;
+  private final LongAdder started = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final Map<Integer, CodeStats> byCode = new ConcurrentHashMap<>();
+
+  public ClientMetrics(long highestTrackableMicros, int significantDigits) {
+    this.layout = new HistogramLayout(highestTrackableMicros, significantDigits);
+  }
+
+  public void requestStarted() {
+    started.increment();
+  }
+
+  /**
+   * @param responseCode final code after retries; anything but 201 counts as an error
+   */
+  public void requestCompleted(int responseCode, long latencyMicros) {
+    completed.increment();
+    if (responseCode != 201) {
+      failed.increment();
+    }
+    CodeStats stats = byCode.get(responseCode);
+    if (stats == null) {
+      stats = byCode.computeIfAbsent(responseCode, code -> new CodeStats(layout.length));
+    }
+    stats.counts.incrementAndGet(layout.indexOf(latencyMicros));
+    stats.sum.add(latencyMicros);
+  }
+
+  public long getCompleted() {
+    return completed.sum();
+  }
+
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  public long getInFlight() {
+    return started.sum() - completed.sum();
+  }
+
+  HistogramLayout layout() {
+    return layout;
+  }
+
+  Map<Integer, CodeStats> byCode() {
+    return byCode;
+  }
+
+  static final class CodeStats {
+    final AtomicLongArray counts;
+    final LongAdder sum = new LongAdder();
+
+    private CodeStats(int length) {
+      counts = new AtomicLongArray(length);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package metrics;
+
+/**
+ * Log-linear bucket layout shared by the histograms: every power-of-two range of values is
+ * split into enough linear sub-buckets to keep the configured number of significant decimal
+ * digits, the same scheme HdrHistogram uses.
+ */
+final class HistogramLayout {
+  final long highestTrackableValue;
+  final int significantDigits;
+  final int length;
+
+  private final int subBucketHalfCountMagnitude;
+  private final int subBucketHalfCount;
+  private final long subBucketMask;
+  private final int leadingZeroCountBase;
+
+  HistogramLayout(long highestTrackableValue, int significantDigits) {
+    if (significantDigits < 1 || significantDigits > 4) {
+      throw new IllegalArgumentException("significantDigits must be between 1 and 4");
+    }
+    if (highestTrackableValue < 2) {
+      throw new IllegalArgumentException("highestTrackableValue must be at least 2");
+    }
+    this.highestTrackableValue = highestTrackableValue;
+    this.significantDigits = significantDigits;
+
+    // Enough linear sub-buckets per power of two to resolve 1 part in 10^digits
+    long largestSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+    int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestSingleUnitResolution - 1);
+    subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+    int subBucketCount = 1 << subBucketCountMagnitude;
+    subBucketHalfCount = subBucketCount / 2;
+    subBucketMask = subBucketCount - 1;
+    leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+    int bucketCount = 1;
+    long trackable = subBucketCount;
+    while (trackable <= highestTrackableValue) {
+      trackable <<= 1;
+      bucketCount++;
+    }
+    length = (bucketCount + 1) * subBucketHalfCount;
+  }
+
+  boolean sameAs(HistogramLayout other) {
+    return length == other.length && significantDigits == other.significantDigits;
+  }
+
+  /**
+   * Counts-array index for a value, clamping negatives to 0 and large values to the top bucket.
+   */
+  int indexOf(long value) {
+    long clamped = Math.min(Math.max(0, value), highestTrackableValue);
+    int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(clamped | subBucketMask);
+    int subBucketIndex = (int) (clamped >>> bucketIndex);
+    return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+  }
+
+  /**
+   * Largest value that lands in the bucket at index, so percentiles are never understated.
+   */
+  long highestValueAt(int index) {
+    int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+    int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+    if (bucketIndex < 0) {
+      subBucketIndex -= subBucketHalfCount;
+      bucketIndex = 0;
+    }
+    long lowest = (long) subBucketIndex << bucketIndex;
+    return lowest + (1L << bucketIndex) - 1;
+  }
+
+  /**
+   * Percentile over a counts array in this layout, capped at max.
+   */
+  long valueAtPercentile(long[] counts, long totalCount, double percentile, long max) {
+    if (totalCount == 0) {
+      return 0;
+    }
+    long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= countAtPercentile) {
+        return Math.min(highestValueAt(i), max);
+      }
+    }
+    return max;
+  }
+}
@@ -0,0 +1,180 @@
+package metrics;
+
+import api.RetryPolicy;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints throughput, in-flight requests, error and retry rates, retries denied by the budget,
+ * requests shed by the circuit breaker and per-response-code latency
+ * percentiles for each interval of a run, and optionally appends them to a time-series CSV
+ * (one row per response code per interval) for lining up with server and broker graphs.
+ */
+public class IntervalReporter {
+  private final ClientMetrics metrics;
+  private final RetryPolicy retryPolicy;
+  private final int intervalSeconds;
+  private final String csvPath;
+
+  private final Map<Integer, long[]> previousCounts = new HashMap<>();
+  private final Map<Integer, Long> previousSums = new HashMap<>();
+  private ScheduledExecutorService scheduler;
+  private BufferedWriter csv;
+  private long startNanos;
+  private long lastNanos;
+  private long lastCompleted;
+  private long lastFailed;
+  private long lastRetries;
+  private long lastDenied;
+  private long lastShed;
+
+  /**
+   * @param retryPolicy source of the retry, budget and circuit breaker counters
+   * @param csvPath time-series output, or null/empty to only print
+   */
+  public IntervalReporter(ClientMetrics metrics, RetryPolicy retryPolicy, int intervalSeconds, String csvPath) {
+    this.metrics = metrics;
+    this.retryPolicy = retryPolicy;
+    this.intervalSeconds = intervalSeconds;
+    this.csvPath = csvPath;
+  }
+
+  public void start() {
+    if (csvPath != null && !csvPath.isEmpty()) {
+      try {
+        csv = new BufferedWriter(new FileWriter(csvPath));
+        csv.write("ElapsedSeconds,Throughput,InFlight,ErrorRate,RetriesPerSecond,RetriesDeniedPerSecond,ShedPerSecond,Breaker,ResponseCode,Count,MeanMs,P50Ms,P90Ms,P99Ms,MaxMs\n");
+      } catch (IOException e) {
+        System.err.println("Interval metrics CSV disabled: " + e.getMessage());
+        csv = null;
+      }
+    }
+    startNanos = System.nanoTime();
+    lastNanos = startNanos;
+    lastRetries = retryPolicy.getRetries();
+    lastDenied = retryPolicy.getBudgetDenied();
+    lastShed = retryPolicy.getShed();
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "interval-reporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops the schedule and reports the final, possibly partial, interval.
+   */
+  public void stop() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(intervalSeconds, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    report();
+    if (csv != null) {
+      try {
+        csv.close();
+      } catch (IOException e) {
+        System.err.println("Error closing interval metrics CSV: " + e.getMessage());
+      }
+    }
+  }
+
+  private synchronized void report() {
+    long now = System.nanoTime();
+    double seconds = (now - lastNanos) / 1e9;
+    if (seconds <= 0) {
+      return;
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toSeconds(now - startNanos);
+    long completed = metrics.getCompleted();
+    long failed = metrics.getFailed();
+    long retryCount = retryPolicy.getRetries();
+    long denied = retryPolicy.getBudgetDenied();
+    long shed = retryPolicy.getShed();
+    String breaker = retryPolicy.getBreaker().getState().name();
+
+    long intervalCompleted = completed - lastCompleted;
+    double throughput = intervalCompleted / seconds;
+    double errorRate = intervalCompleted == 0 ? 0.0 : (double) (failed - lastFailed) / intervalCompleted;
+    double retryRate = (retryCount - lastRetries) / seconds;
+    double deniedRate = (denied - lastDenied) / seconds;
+    double shedRate = (shed - lastShed) / seconds;
+    long inFlight = metrics.getInFlight();
+
+    StringBuilder line = new StringBuilder(String.format(
+        "[%4ds] %.1f req/s | in-flight %d | errors %.2f%% | retries %.1f/s (%.1f/s denied) | shed %.1f/s | circuit %s",
+        elapsed, throughput, inFlight, errorRate * 100, retryRate, deniedRate, shedRate, breaker));
+
+    HistogramLayout layout = metrics.layout();
+    boolean wroteRow = false;
+    for (Map.Entry<Integer, ClientMetrics.CodeStats> entry : new TreeMap<>(metrics.byCode()).entrySet()) {
+      int code = entry.getKey();
+      ClientMetrics.CodeStats stats = entry.getValue();
+      long[] previous = previousCounts.computeIfAbsent(code, c -> new long[layout.length]);
+
+      // Cumulative counts minus the last snapshot are exactly this interval's samples
+      long[] interval = new long[layout.length];
+      long count = 0;
+      long max = 0;
+      for (int i = 0; i < interval.length; i++) {
+        long current = stats.counts.get(i);
+        interval[i] = current - previous[i];
+        previous[i] = current;
+        if (interval[i] > 0) {
+          count += interval[i];
+          max = layout.highestValueAt(i);
+        }
+      }
+      long sum = stats.sum.sum();
+      long intervalSum = sum - previousSums.getOrDefault(code, 0L);
+      previousSums.put(code, sum);
+      if (count == 0) {
+        continue;
+      }
+
+      double meanMs = intervalSum / 1000.0 / count;
+      double p50 = layout.valueAtPercentile(interval, count, 50, max) / 1000.0;
+      double p90 = layout.valueAtPercentile(interval, count, 90, max) / 1000.0;
+      double p99 = layout.valueAtPercentile(interval, count, 99, max) / 1000.0;
+      line.append(String.format(" | %d: n=%d p50=%.1f p99=%.1f max=%.1f ms", code, count, p50, p99, max / 1000.0));
+      writeCsv(String.format("%d,%.2f,%d,%.5f,%.2f,%.2f,%.2f,%s,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+          elapsed, throughput, inFlight, errorRate, retryRate, deniedRate, shedRate, breaker, code, count, meanMs, p50, p90, p99, max / 1000.0));
+      wroteRow = true;
+    }
+    if (!wroteRow) {
+      // Keep stalled intervals in the time series
+      writeCsv(String.format("%d,%.2f,%d,%.5f,%.2f,%.2f,%.2f,%s,,0,,,,,%n",
+          elapsed, throughput, inFlight, errorRate, retryRate, deniedRate, shedRate, breaker));
+    }
+    System.out.println(line);
+
+    lastNanos = now;
+    lastCompleted = completed;
+    lastFailed = failed;
+    lastRetries = retryCount;
+    lastDenied = denied;
+    lastShed = shed;
+  }
+
+  private void writeCsv(String row) {
+    if (csv == null) {
+      return;
+    }
+    try {
+      csv.write(row);
+      csv.flush();
+    } catch (IOException e) {
+      System.err.println("Error writing interval metrics: " + e.getMessage());
+    }
+  }
+}
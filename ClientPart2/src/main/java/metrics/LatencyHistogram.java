@@ -0,0 +1,86 @@
+package metrics;
+
+/**
+ * Fixed-memory latency histogram in the style of HdrHistogram: values are bucketed on a
+ * log-linear scale so every recorded value keeps the configured number of significant decimal
+ * digits, and percentiles come from a walk over the buckets instead of a sort of every sample.
+ *
+ * Values are recorded in microseconds. Instances are not thread-safe; give each recording thread
+ * its own histogram and {@link #add} them together for the report, or synchronize on a shared one.
+ */
+public class LatencyHistogram {
+  private final HistogramLayout layout;
+  private final long[] counts;
+
+  private long totalCount;
+  private long totalSum;
+  private long minValue = Long.MAX_VALUE;
+  private long maxValue;
+
+  /**
+   * @param highestTrackableValue largest latency (microseconds) recorded exactly; larger values
+   *     are clamped to it but still counted, and still reported as the max
+   * @param significantDigits precision kept for every value, 1 to 4
+   */
+  public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+    layout = new HistogramLayout(highestTrackableValue, significantDigits);
+    counts = new long[layout.length];
+  }
+
+  public void record(long micros) {
+    long value = Math.max(0, micros);
+    if (value < minValue) {
+      minValue = value;
+    }
+    if (value > maxValue) {
+      maxValue = value;
+    }
+    totalSum += value;
+    totalCount++;
+    counts[layout.indexOf(value)]++;
+  }
+
+  /**
+   * Merges another histogram's samples into this one. Both must have the same configuration.
+   */
+  public void add(LatencyHistogram other) {
+    if (!layout.sameAs(other.layout)) {
+      throw new IllegalArgumentException("Histograms have different configurations");
+    }
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    totalCount += other.totalCount;
+    totalSum += other.totalSum;
+    minValue = Math.min(minValue, other.minValue);
+    maxValue = Math.max(maxValue, other.maxValue);
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  public long getMin() {
+    return totalCount == 0 ? 0 : minValue;
+  }
+
+  public long getMax() {
+    return maxValue;
+  }
+
+  public double getMean() {
+    return totalCount == 0 ? 0.0 : (double) totalSum / totalCount;
+  }
+
+  /**
+   * Latency at or below which the given percentage of samples fall, reported as the top of its
+   * bucket (so never understated) and never above the recorded max.
+   */
+  public long getValueAtPercentile(double percentile) {
+    return layout.valueAtPercentile(counts, totalCount, percentile, maxValue);
+  }
+
+  public int footprintBytes() {
+    return counts.length * Long.BYTES;
+  }
+}
@@ -0,0 +1,47 @@
+package model;
+
+/**
+ * One lift ride to POST, kept as fields so the request is built once by
+ * {@link api.RequestFactory} instead of being formatted into a string and split again.
+ */
+public final class SkierEvent {
+  private final int resortID;
+  private final int seasonID;
+  private final int dayID;
+  private final int skierID;
+  private final int time;
+  private final int liftID;
+
+  public SkierEvent(int resortID, int seasonID, int dayID, int skierID, int time, int liftID) {
+    this.resortID = resortID;
+    this.seasonID = seasonID;
+    this.dayID = dayID;
+    this.skierID = skierID;
+    this.time = time;
+    this.liftID = liftID;
+  }
+
+  public int getResortID() {
+    return resortID;
+  }
+
+  public int getSeasonID() {
+    return seasonID;
+  }
+
+  public int getDayID() {
+    return dayID;
+  }
+
+  public int getSkierID() {
+    return skierID;
+  }
+
+  public int getTime() {
+    return time;
+  }
+
+  public int getLiftID() {
+    return liftID;
+  }
+}
@@ -0,0 +1,114 @@
+package producer;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import model.SkierEvent;
+
+/**
+ * Lift ride events drawn from a {@link WorkloadProfile}. The generator itself is immutable and
+ * shared; each producer or consumer draws from its own {@link EventStream}.
+ *
+ * With a non-zero seed, stream i always produces the same sequence, so a run with fixed
+ * per-stream request counts generates the same multiset of events every time. With seed 0
+ * streams use ThreadLocalRandom.
+ */
+public class EventGenerator {
+  private final WorkloadProfile profile;
+  private final long seed;
+  private final WeightedSampler skiers;
+  private final WeightedSampler resorts;
+  private final WeightedSampler lifts;
+  private final WeightedSampler minutes;
+  private final int skierStride;
+  private final int resortStride;
+  private final int liftStride;
+
+  public EventGenerator(WorkloadProfile profile, long seed) {
+    this.profile = profile;
+    this.seed = seed;
+    this.skiers = WeightedSampler.zipf(profile.skiers, profile.skierSkew);
+    this.resorts = WeightedSampler.zipf(profile.resorts, profile.resortSkew);
+    this.lifts = WeightedSampler.zipf(profile.lifts, profile.liftSkew);
+    this.minutes = WorkloadProfile.CURVE_PEAKS.equals(profile.timeCurve)
+        ? WeightedSampler.fromWeights(peakWeights(profile.minutesPerDay))
+        : WeightedSampler.uniform(profile.minutesPerDay);
+    this.skierStride = coprimeStride(profile.skiers);
+    this.resortStride = coprimeStride(profile.resorts);
+    this.liftStride = coprimeStride(profile.lifts);
+  }
+
+  /**
+   * Original uniform workload, unseeded.
+   */
+  public EventGenerator() {
+    this(WorkloadProfile.load("uniform"), 0);
+  }
+
+  public WorkloadProfile getProfile() {
+    return profile;
+  }
+
+  public EventStream stream(int index) {
+    if (seed == 0) {
+      return () -> next(ThreadLocalRandom.current());
+    }
+    SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+    return () -> next(random);
+  }
+
+  public SkierEvent next(RandomGenerator random) {
+    // Popularity ranks are scattered over the ID space so hot keys aren't all the low IDs
+    int skierID = scatter(skiers.sample(random), skierStride, profile.skiers) + 1;
+    int resortID = scatter(resorts.sample(random), resortStride, profile.resorts) + 1;
+    int liftID = scatter(lifts.sample(random), liftStride, profile.lifts) + 1;
+    int seasonID = profile.firstSeason + (profile.seasons == 1 ? 0 : random.nextInt(profile.seasons));
+    int dayID = profile.days == 1 ? 1 : random.nextInt(profile.days) + 1;
+    int time = minutes.sample(random) + 1;
+    return new SkierEvent(resortID, seasonID, dayID, skierID, time, liftID);
+  }
+
+  private static int scatter(int rank, int stride, int size) {
+    return (int) ((long) rank * stride % size);
+  }
+
+  // A stride near 0.618 * size that shares no factor with size, so rank -> ID is a bijection
+  private static int coprimeStride(int size) {
+    if (size <= 2) {
+      return 1;
+    }
+    int stride = (int) (size * 0.6180339887) | 1;
+    while (gcd(stride, size) != 1) {
+      stride += 2;
+    }
+    return stride % size;
+  }
+
+  private static int gcd(int a, int b) {
+    while (b != 0) {
+      int t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+
+  // Opening rush around 15% of the day, lunch dip, smaller afternoon peak around 70%
+  private static double[] peakWeights(int minutesPerDay) {
+    double[] weights = new double[minutesPerDay];
+    for (int m = 0; m < minutesPerDay; m++) {
+      double x = (double) m / minutesPerDay;
+      weights[m] = 0.2
+          + Math.exp(-Math.pow((x - 0.15) / 0.08, 2))
+          + 0.7 * Math.exp(-Math.pow((x - 0.7) / 0.1, 2));
+    }
+    return weights;
+  }
+
+  /**
+   * One thread's source of events; seeded streams must not be shared between threads.
+   */
+  public interface EventStream {
+    SkierEvent next();
+  }
+}
@@ -0,0 +1,21 @@
+package producer;
+
+import java.util.concurrent.BlockingQueue;
+import model.SkierEvent;
+
+/**
+ * Where a consumer gets its next event: the shared producer queue, or generated on the
+ * consumer's own thread so no producer thread or queue hand-off sits on the request path.
+ */
+public interface EventSource {
+
+  SkierEvent next() throws InterruptedException;
+
+  static EventSource fromQueue(BlockingQueue<SkierEvent> eventQueue) {
+    return eventQueue::take;
+  }
+
+  static EventSource local(EventGenerator.EventStream events) {
+    return events::next;
+  }
+}
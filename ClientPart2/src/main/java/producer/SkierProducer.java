@@ -1,52 +1,34 @@
 package producer;
 
-import config.SkierClientConfig;
-import java.util.Random;
 import java.util.concurrent.BlockingQueue;
-import model.LiftRide;
+import model.SkierEvent;
 
 public class SkierProducer implements Runnable {
-  private final BlockingQueue<String> eventQueue;
+  private final BlockingQueue<SkierEvent> eventQueue;
   private final int totalRequests;
-  private final Random random;
+  private final EventGenerator.EventStream events;
 
-  public SkierProducer(BlockingQueue<String> eventQueue, int totalRequests) {
+  /**
+   * @param totalRequests events to produce, or a negative count to produce until interrupted
+   *     (runs with timed phases don't know their request count up front)
+   */
+  public SkierProducer(BlockingQueue<SkierEvent> eventQueue, int totalRequests, EventGenerator.EventStream events) {
     this.eventQueue = eventQueue;
     this.totalRequests = totalRequests;
-    this.random = new Random();
+    this.events = events;
   }
 
   @Override
   public void run() {
     try {
-      for (int i = 0; i < totalRequests; i++) {
-        eventQueue.put(generateRandomEvent());
+      for (int i = 0; totalRequests < 0 || i < totalRequests; i++) {
+        eventQueue.put(events.next());
       }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
-      System.err.println("Event generation interrupted: " + e.getMessage());
+      if (totalRequests >= 0) {
+        System.err.println("Event generation interrupted: " + e.getMessage());
+      }
     }
   }
-
-  public String generateRandomEvent(){
-    int skierID = random.nextInt(100000) + 1;
-    int resortID = random.nextInt(10) + 1;
-    int liftID = random.nextInt(40) + 1;
-    int seasonID = 2025;
-    int dayID = 1;
-    int time = random.nextInt(360) + 1;
-
-    LiftRide liftRide = new LiftRide(time, liftID);
-
-    String endpoint = String.format(
-        "%s/%d/seasons/%d/days/%d/skiers/%d",
-        SkierClientConfig.SERVER_URL,
-        resortID,
-        seasonID,
-        dayID,
-        skierID
-    );
-
-    return endpoint + "::" + liftRide.toString();
-  }
-}
\ No newline at end of file
+}
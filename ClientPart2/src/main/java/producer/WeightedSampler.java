@@ -0,0 +1,77 @@
+package producer;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws indexes 0..n-1 with probability proportional to fixed weights, by binary search over a
+ * precomputed cumulative table. Uniform weights skip the table entirely.
+ */
+public final class WeightedSampler {
+  private final int size;
+  private final double[] cumulative;
+
+  private WeightedSampler(int size, double[] cumulative) {
+    this.size = size;
+    this.cumulative = cumulative;
+  }
+
+  public static WeightedSampler uniform(int size) {
+    return new WeightedSampler(size, null);
+  }
+
+  /**
+   * Zipf popularity: index k has weight 1/(k+1)^exponent, so index 0 is the hottest. An
+   * exponent of 0 is uniform; ~1 is the classic heavily skewed web/cache workload.
+   */
+  public static WeightedSampler zipf(int size, double exponent) {
+    if (exponent <= 0) {
+      return uniform(size);
+    }
+    double[] weights = new double[size];
+    for (int k = 0; k < size; k++) {
+      weights[k] = 1.0 / Math.pow(k + 1, exponent);
+    }
+    return fromWeights(weights);
+  }
+
+  public static WeightedSampler fromWeights(double[] weights) {
+    double[] cumulative = new double[weights.length];
+    double total = 0;
+    for (int i = 0; i < weights.length; i++) {
+      if (weights[i] < 0) {
+        throw new IllegalArgumentException("Negative weight at " + i);
+      }
+      total += weights[i];
+      cumulative[i] = total;
+    }
+    if (total <= 0) {
+      throw new IllegalArgumentException("Weights must not all be zero");
+    }
+    for (int i = 0; i < cumulative.length; i++) {
+      cumulative[i] /= total;
+    }
+    return new WeightedSampler(weights.length, cumulative);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int sample(RandomGenerator random) {
+    if (cumulative == null) {
+      return random.nextInt(size);
+    }
+    double u = random.nextDouble();
+    int low = 0;
+    int high = size - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulative[mid] <= u) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
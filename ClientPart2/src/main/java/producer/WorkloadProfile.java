@@ -0,0 +1,134 @@
+package producer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Shape of the generated lift rides: how many skiers, resorts and lifts there are, how skewed
+ * their popularity is, how rides spread over seasons and days, and how they fall over the
+ * ski day.
+ *
+ * Profiles are the presets "uniform" (the original generator), "zipf" (hot skiers and lifts)
+ * and "season" (hot keys spread over two seasons of 120 days with morning/afternoon peaks), or a
+ * .properties file using the field names below, optionally starting from {@code base=<preset>}.
+ */
+public final class WorkloadProfile {
+  public static final String CURVE_UNIFORM = "uniform";
+  public static final String CURVE_PEAKS = "peaks";
+
+  final String name;
+  final int skiers;
+  final int resorts;
+  final int lifts;
+  final double skierSkew;
+  final double resortSkew;
+  final double liftSkew;
+  final int firstSeason;
+  final int seasons;
+  final int days;
+  final int minutesPerDay;
+  final String timeCurve;
+
+  private WorkloadProfile(String name, Properties values) {
+    this.name = name;
+    this.skiers = intValue(values, "skiers");
+    this.resorts = intValue(values, "resorts");
+    this.lifts = intValue(values, "lifts");
+    this.skierSkew = doubleValue(values, "skierSkew");
+    this.resortSkew = doubleValue(values, "resortSkew");
+    this.liftSkew = doubleValue(values, "liftSkew");
+    this.firstSeason = intValue(values, "firstSeason");
+    this.seasons = intValue(values, "seasons");
+    this.days = intValue(values, "days");
+    this.minutesPerDay = intValue(values, "minutesPerDay");
+    this.timeCurve = values.getProperty("timeCurve").trim().toLowerCase();
+    if (skiers < 1 || resorts < 1 || lifts < 1 || seasons < 1 || days < 1 || minutesPerDay < 1) {
+      throw new IllegalArgumentException("Workload profile " + name + " needs positive counts");
+    }
+    if (!CURVE_UNIFORM.equals(timeCurve) && !CURVE_PEAKS.equals(timeCurve)) {
+      throw new IllegalArgumentException("Unknown time curve: " + timeCurve);
+    }
+  }
+
+  /**
+   * A preset name, or the path of a .properties file.
+   */
+  public static WorkloadProfile load(String profile) {
+    Properties preset = presetValues(profile);
+    if (preset != null) {
+      return new WorkloadProfile(profile, preset);
+    }
+    Properties file = new Properties();
+    try (Reader reader = Files.newBufferedReader(Path.of(profile))) {
+      file.load(reader);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unknown workload profile " + profile + ": " + e.getMessage(), e);
+    }
+    String base = file.getProperty("base", "uniform");
+    Properties values = presetValues(base);
+    if (values == null) {
+      throw new IllegalArgumentException("Unknown base workload profile: " + base);
+    }
+    values.putAll(file);
+    return new WorkloadProfile(profile, values);
+  }
+
+  private static Properties presetValues(String preset) {
+    Properties values = new Properties();
+    values.setProperty("skiers", "100000");
+    values.setProperty("resorts", "10");
+    values.setProperty("lifts", "40");
+    values.setProperty("skierSkew", "0");
+    values.setProperty("resortSkew", "0");
+    values.setProperty("liftSkew", "0");
+    values.setProperty("firstSeason", "2025");
+    values.setProperty("seasons", "1");
+    values.setProperty("days", "1");
+    values.setProperty("minutesPerDay", "360");
+    values.setProperty("timeCurve", CURVE_UNIFORM);
+
+    switch (preset.toLowerCase()) {
+      case "uniform":
+        return values;
+      case "zipf":
+        values.setProperty("skierSkew", "0.99");
+        values.setProperty("resortSkew", "0.5");
+        values.setProperty("liftSkew", "0.8");
+        return values;
+      case "season":
+        values.setProperty("skierSkew", "0.99");
+        values.setProperty("resortSkew", "0.5");
+        values.setProperty("liftSkew", "0.8");
+        values.setProperty("firstSeason", "2024");
+        values.setProperty("seasons", "2");
+        values.setProperty("days", "120");
+        values.setProperty("timeCurve", CURVE_PEAKS);
+        return values;
+      default:
+        return null;
+    }
+  }
+
+  private static int intValue(Properties values, String key) {
+    return Integer.parseInt(values.getProperty(key).trim());
+  }
+
+  private static double doubleValue(Properties values, String key) {
+    return Double.parseDouble(values.getProperty(key).trim());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %d skiers (skew %.2f), %d resorts (skew %.2f), %d lifts (skew %.2f), "
+            + "seasons %d-%d, %d days, %d minutes/day (%s)",
+        name, skiers, skierSkew, resorts, resortSkew, lifts, liftSkew,
+        firstSeason, firstSeason + seasons - 1, days, minutesPerDay, timeCurve);
+  }
+}
@@ -0,0 +1,40 @@
+package schedule;
+
+/**
+ * When an open-loop run should issue its requests. Arrival times are fixed by the schedule,
+ * not by how fast the server answers, so latency can be measured from the intended send time.
+ */
+public interface ArrivalSchedule {
+
+  /**
+   * Nanoseconds after the start of the run at which the next request is due, or -1 once the
+   * schedule is exhausted.
+   */
+  long nextArrivalNanos();
+
+  /**
+   * Target request rate (requests/second) at the given point in the run.
+   */
+  double targetRateAt(long elapsedNanos);
+
+  /**
+   * Builds a schedule by name: "constant", "step" or "poisson".
+   *
+   * @param rate requests/second (the starting rate for "step")
+   * @param stepRate added to the rate every stepSeconds ("step" only)
+   */
+  static ArrivalSchedule create(String pattern, double rate, int durationSeconds,
+      double stepRate, int stepSeconds, long seed) {
+    long durationNanos = durationSeconds * 1_000_000_000L;
+    switch (pattern.toLowerCase()) {
+      case "constant":
+        return new ConstantRateSchedule(rate, durationNanos);
+      case "step":
+        return new StepRateSchedule(rate, stepRate, stepSeconds * 1_000_000_000L, durationNanos);
+      case "poisson":
+        return new PoissonSchedule(rate, durationNanos, seed);
+      default:
+        throw new IllegalArgumentException("Unknown arrival pattern: " + pattern);
+    }
+  }
+}
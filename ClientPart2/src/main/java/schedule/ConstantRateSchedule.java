@@ -0,0 +1,33 @@
+package schedule;
+
+/**
+ * Evenly spaced arrivals at a fixed rate.
+ */
+public class ConstantRateSchedule implements ArrivalSchedule {
+  private final double rate;
+  private final double intervalNanos;
+  private final long durationNanos;
+  private long sent;
+
+  public ConstantRateSchedule(double rate, long durationNanos) {
+    this.rate = rate;
+    this.intervalNanos = 1e9 / rate;
+    this.durationNanos = durationNanos;
+  }
+
+  @Override
+  public long nextArrivalNanos() {
+    // Multiply rather than accumulate so rounding error doesn't drift over long runs
+    long next = (long) (sent * intervalNanos);
+    if (next >= durationNanos) {
+      return -1;
+    }
+    sent++;
+    return next;
+  }
+
+  @Override
+  public double targetRateAt(long elapsedNanos) {
+    return rate;
+  }
+}
@@ -0,0 +1,35 @@
+package schedule;
+
+import java.util.Random;
+
+/**
+ * Arrivals with exponentially distributed gaps, i.e. a Poisson process at the given mean rate.
+ * Seeded so runs are repeatable.
+ */
+public class PoissonSchedule implements ArrivalSchedule {
+  private final double rate;
+  private final long durationNanos;
+  private final Random random;
+  private double next;
+
+  public PoissonSchedule(double rate, long durationNanos, long seed) {
+    this.rate = rate;
+    this.durationNanos = durationNanos;
+    this.random = new Random(seed);
+  }
+
+  @Override
+  public long nextArrivalNanos() {
+    long arrival = (long) next;
+    if (arrival >= durationNanos) {
+      return -1;
+    }
+    next += -Math.log(1.0 - random.nextDouble()) / rate * 1e9;
+    return arrival;
+  }
+
+  @Override
+  public double targetRateAt(long elapsedNanos) {
+    return rate;
+  }
+}
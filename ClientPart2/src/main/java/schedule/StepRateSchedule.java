@@ -0,0 +1,34 @@
+package schedule;
+
+/**
+ * Evenly spaced arrivals whose rate increases by stepRate every stepNanos, for ramp tests.
+ */
+public class StepRateSchedule implements ArrivalSchedule {
+  private final double startRate;
+  private final double stepRate;
+  private final long stepNanos;
+  private final long durationNanos;
+  private double next;
+
+  public StepRateSchedule(double startRate, double stepRate, long stepNanos, long durationNanos) {
+    this.startRate = startRate;
+    this.stepRate = stepRate;
+    this.stepNanos = stepNanos;
+    this.durationNanos = durationNanos;
+  }
+
+  @Override
+  public long nextArrivalNanos() {
+    long arrival = (long) next;
+    if (arrival >= durationNanos) {
+      return -1;
+    }
+    next += 1e9 / targetRateAt(arrival);
+    return arrival;
+  }
+
+  @Override
+  public double targetRateAt(long elapsedNanos) {
+    return Math.max(1.0, startRate + stepRate * (elapsedNanos / stepNanos));
+  }
+}
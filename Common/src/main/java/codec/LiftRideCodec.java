@@ -0,0 +1,157 @@
+package codec;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes the messages carried on the ski lift queue.
+ *
+ * Two formats are understood, told apart by the AMQP content-type property:
+ * <ul>
+ *   <li>{@link #CONTENT_TYPE_BINARY}: a fixed 19-byte big-endian layout
+ *   [version:1][resortID:4][seasonID:2][dayID:2][skierID:4][time:2][liftID:4]</li>
+ *   <li>{@link #CONTENT_TYPE_JSON} (or no content type): the original JSON text object</li>
+ * </ul>
+ */
+public final class LiftRideCodec {
+  public static final String CONTENT_TYPE_BINARY = "application/x-lift-ride";
+  public static final String CONTENT_TYPE_JSON = "application/json";
+
+  public static final byte VERSION = 1;
+  public static final int BINARY_LENGTH = 19;
+
+  private LiftRideCodec() {
+  }
+
+  public static byte[] encodeBinary(int resortID, int seasonID, int dayID, int skierID, int time, int liftID) {
+    byte[] out = new byte[BINARY_LENGTH];
+    encodeBinary(out, 0, resortID, seasonID, dayID, skierID, time, liftID);
+    return out;
+  }
+
+  /**
+   * Writes the binary layout into out at offset; out must have BINARY_LENGTH bytes free.
+   */
+  public static void encodeBinary(byte[] out, int offset, int resortID, int seasonID, int dayID,
+      int skierID, int time, int liftID) {
+    out[offset] = VERSION;
+    putInt(out, offset + 1, resortID);
+    putShort(out, offset + 5, seasonID);
+    putShort(out, offset + 7, dayID);
+    putInt(out, offset + 9, skierID);
+    putShort(out, offset + 13, time);
+    putInt(out, offset + 15, liftID);
+  }
+
+  /**
+   * Writes the JSON text format, with the path IDs as strings as the servlet always sent them.
+   */
+  public static byte[] encodeJson(int resortID, int seasonID, int dayID, int skierID, int time, int liftID) {
+    byte[] out = new byte[128];
+    int n = 0;
+    n = writeAscii(out, n, "{\"resortID\":\"");
+    n = writeInt(out, n, resortID);
+    n = writeAscii(out, n, "\",\"seasonID\":\"");
+    n = writeInt(out, n, seasonID);
+    n = writeAscii(out, n, "\",\"dayID\":\"");
+    n = writeInt(out, n, dayID);
+    n = writeAscii(out, n, "\",\"skierID\":\"");
+    n = writeInt(out, n, skierID);
+    n = writeAscii(out, n, "\",\"time\":");
+    n = writeInt(out, n, time);
+    n = writeAscii(out, n, ",\"liftID\":");
+    n = writeInt(out, n, liftID);
+    out[n++] = '}';
+    byte[] message = new byte[n];
+    System.arraycopy(out, 0, message, 0, n);
+    return message;
+  }
+
+  /**
+   * Decodes a message body into out, choosing the format from the content type.
+   *
+   * @throws IllegalArgumentException if the body is not a valid message of that format
+   */
+  public static LiftRideMessage decode(String contentType, byte[] body, LiftRideMessage out) {
+    if (CONTENT_TYPE_BINARY.equals(contentType)) {
+      return decodeBinary(body, 0, body.length, out);
+    }
+    if (contentType == null || CONTENT_TYPE_JSON.equals(contentType)) {
+      return decodeJson(body, out);
+    }
+    throw new IllegalArgumentException("Unsupported content type: " + contentType);
+  }
+
+  public static LiftRideMessage decodeBinary(byte[] body, int offset, int length, LiftRideMessage out) {
+    if (length != BINARY_LENGTH) {
+      throw new IllegalArgumentException("Expected " + BINARY_LENGTH + " bytes but got " + length);
+    }
+    if (body[offset] != VERSION) {
+      throw new IllegalArgumentException("Unsupported message version: " + body[offset]);
+    }
+    return out.set(
+        getInt(body, offset + 1),
+        getShort(body, offset + 5),
+        getShort(body, offset + 7),
+        getInt(body, offset + 9),
+        getShort(body, offset + 13),
+        getInt(body, offset + 15));
+  }
+
+  public static LiftRideMessage decodeJson(byte[] body, LiftRideMessage out) {
+    try {
+      JsonObject json = JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+      return out.set(
+          json.get("resortID").getAsInt(),
+          json.get("seasonID").getAsInt(),
+          json.get("dayID").getAsInt(),
+          json.get("skierID").getAsInt(),
+          json.get("time").getAsInt(),
+          json.get("liftID").getAsInt());
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid JSON lift ride message", e);
+    }
+  }
+
+  private static void putInt(byte[] out, int i, int value) {
+    out[i] = (byte) (value >>> 24);
+    out[i + 1] = (byte) (value >>> 16);
+    out[i + 2] = (byte) (value >>> 8);
+    out[i + 3] = (byte) value;
+  }
+
+  private static void putShort(byte[] out, int i, int value) {
+    out[i] = (byte) (value >>> 8);
+    out[i + 1] = (byte) value;
+  }
+
+  private static int getInt(byte[] in, int i) {
+    return ((in[i] & 0xFF) << 24) | ((in[i + 1] & 0xFF) << 16) | ((in[i + 2] & 0xFF) << 8) | (in[i + 3] & 0xFF);
+  }
+
+  // Season, day and time are all small non-negative values, so shorts are read unsigned
+  private static int getShort(byte[] in, int i) {
+    return ((in[i] & 0xFF) << 8) | (in[i + 1] & 0xFF);
+  }
+
+  private static int writeAscii(byte[] out, int n, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      out[n++] = (byte) s.charAt(i);
+    }
+    return n;
+  }
+
+  // Writes a non-negative int in decimal
+  private static int writeInt(byte[] out, int n, int value) {
+    int digits = 1;
+    for (int v = value; v >= 10; v /= 10) {
+      digits++;
+    }
+    for (int i = n + digits - 1; i >= n; i--) {
+      out[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    return n + digits;
+  }
+}
@@ -0,0 +1,53 @@
+package codec;
+
+/**
+ * Mutable holder for one decoded lift ride so consumers can reuse it across deliveries.
+ */
+public class LiftRideMessage {
+  private int resortID;
+  private int seasonID;
+  private int dayID;
+  private int skierID;
+  private int time;
+  private int liftID;
+
+  public LiftRideMessage set(int resortID, int seasonID, int dayID, int skierID, int time, int liftID) {
+    this.resortID = resortID;
+    this.seasonID = seasonID;
+    this.dayID = dayID;
+    this.skierID = skierID;
+    this.time = time;
+    this.liftID = liftID;
+    return this;
+  }
+
+  public int getResortID() {
+    return resortID;
+  }
+
+  public int getSeasonID() {
+    return seasonID;
+  }
+
+  public int getDayID() {
+    return dayID;
+  }
+
+  public int getSkierID() {
+    return skierID;
+  }
+
+  public int getTime() {
+    return time;
+  }
+
+  public int getLiftID() {
+    return liftID;
+  }
+
+  @Override
+  public String toString() {
+    return "resortID=" + resortID + ", seasonID=" + seasonID + ", dayID=" + dayID
+        + ", skierID=" + skierID + ", time=" + time + ", liftID=" + liftID;
+  }
+}
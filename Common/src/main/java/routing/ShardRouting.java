@@ -0,0 +1,124 @@
+package routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Where a lift ride is published and consumed when the ride queue is split into shards.
+ *
+ * With one shard everything stays on the original ski_lift_queue through the default exchange.
+ * With more, rides go to the direct exchange {@link #EXCHANGE}, routed by shard number to the
+ * queues ski_lift_queue.0 .. ski_lift_queue.N-1. The shard comes from the skier or resort ID
+ * through a jump consistent hash, so a given key always lands on the same shard (per-key
+ * ordering and per-shard aggregates) and growing from N to N+1 shards moves only about 1/(N+1)
+ * of the keys.
+ *
+ * Server and consumer build this from the same shard count; they must agree on it.
+ */
+public final class ShardRouting {
+  public static final String EXCHANGE = "ski_lift_rides";
+  public static final String BASE_QUEUE = "ski_lift_queue";
+
+  /**
+   * The ride field that picks the shard. SKIER spreads load evenly; RESORT keeps a whole
+   * resort-day together but is only as balanced as the resorts are.
+   */
+  public enum Key {
+    SKIER, RESORT
+  }
+
+  private final int shards;
+  private final Key key;
+  // Built once so routing a ride allocates nothing
+  private final String[] queueNames;
+  private final String[] routingKeys;
+
+  public ShardRouting(int shards, Key key) {
+    if (shards < 1) {
+      throw new IllegalArgumentException("Shard count must be at least 1: " + shards);
+    }
+    this.shards = shards;
+    this.key = key;
+    this.queueNames = new String[shards];
+    this.routingKeys = new String[shards];
+    for (int i = 0; i < shards; i++) {
+      queueNames[i] = shards == 1 ? BASE_QUEUE : BASE_QUEUE + "." + i;
+      routingKeys[i] = shards == 1 ? BASE_QUEUE : Integer.toString(i);
+    }
+  }
+
+  /**
+   * @param key "skier" or "resort", case-insensitive; null means skier
+   */
+  public static ShardRouting of(int shards, String key) {
+    return new ShardRouting(shards, key == null || key.isBlank()
+        ? Key.SKIER : Key.valueOf(key.trim().toUpperCase(Locale.ROOT)));
+  }
+
+  public int shardFor(int resortID, int skierID) {
+    if (shards == 1) {
+      return 0;
+    }
+    return jumpHash(key == Key.SKIER ? ((long) resortID << 32) | (skierID & 0xFFFFFFFFL) : resortID, shards);
+  }
+
+  public boolean isSharded() {
+    return shards > 1;
+  }
+
+  public int getShardCount() {
+    return shards;
+  }
+
+  public Key getKey() {
+    return key;
+  }
+
+  /**
+   * The exchange rides are published to: the default exchange ("") when unsharded.
+   */
+  public String exchange() {
+    return shards == 1 ? "" : EXCHANGE;
+  }
+
+  public String queueName(int shard) {
+    return queueNames[shard];
+  }
+
+  public String routingKey(int shard) {
+    return routingKeys[shard];
+  }
+
+  public List<String> queueNames() {
+    List<String> names = new ArrayList<>(shards);
+    Collections.addAll(names, queueNames);
+    return names;
+  }
+
+  /**
+   * Jump consistent hash (Lamping and Veach): maps a key to one of buckets with minimal
+   * movement when buckets grows. The key is mixed first because ride IDs are small sequential
+   * numbers.
+   */
+  static int jumpHash(long key, int buckets) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    long b = -1;
+    long j = 0;
+    while (j < buckets) {
+      b = j;
+      key = key * 2862933555777941757L + 1;
+      j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+    }
+    return (int) b;
+  }
+
+  @Override
+  public String toString() {
+    return shards == 1 ? "1 shard (" + BASE_QUEUE + ")" : shards + " shards by " + key.name().toLowerCase(Locale.ROOT)
+        + " on " + EXCHANGE;
+  }
+}
@@ -0,0 +1,239 @@
+package harness;
+
+import api.MetricsServlet;
+import api.SkierServlet;
+import broker.InMemoryBroker;
+import client.SkierClientPart2;
+import com.rabbitmq.client.Connection;
+import consumer.ConsumerConfig;
+import consumer.ConsumerService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import metrics.LatencyHistogram;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+
+/**
+ * Runs the whole pipeline in one JVM and reports end-to-end ingest latency and sustained
+ * throughput: SkierServlet in embedded Tomcat, the consumer (ConsumerService) and an
+ * {@link InMemoryBroker} in place of RabbitMQ, driven by SkierClientPart2.
+ *
+ * Ingest latency runs from the broker accepting a ride (the point the servlet's publish is
+ * confirmed) to the consumer acking it, which it does only after the ride is on disk and
+ * applied to the aggregates. The consumer acks each ride as soon as it is applied unless
+ * -Dconsumer.ackBatch is given, so ack batching doesn't inflate the measurement.
+ *
+ * Arguments go to the client as run profile overrides (its --server-url is set here).
+ * Servlet init-params come from -Dserver.&lt;param&gt;=value, consumer settings from the usual
+ * -Dconsumer.* properties; -Dconsumer.shards also sets the servlet's shardCount. With
+ * -De2e.minRidesPerSecond=N the run exits with status 1 when sustained throughput falls
+ * below N, for catching regressions.
+ *
+ * Usage: java harness.EndToEndBenchmark [--total-requests=50000 ...]
+ */
+public class EndToEndBenchmark {
+  private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+  private static final long DRAIN_TIMEOUT_MILLIS = Long.getLong("e2e.drainMillis", 60_000);
+  private static final double MIN_RIDES_PER_SECOND = Double.parseDouble(System.getProperty("e2e.minRidesPerSecond", "0"));
+
+  public static void main(String[] args) throws Exception {
+    Path workDir = Files.createTempDirectory("e2e-benchmark");
+    LatencyHistogram ackLatency = new LatencyHistogram(MAX_LATENCY_MICROS, 3);
+    InMemoryBroker broker = new InMemoryBroker(micros -> {
+      synchronized (ackLatency) {
+        ackLatency.record(micros);
+      }
+    });
+
+    ConsumerConfig consumerConfig = new ConsumerConfig();
+    consumerConfig.dataDir = workDir.resolve("ride-data").toString();
+    consumerConfig.queryPort = 0;
+    consumerConfig.reportSeconds = Integer.MAX_VALUE;
+    if (System.getProperty("consumer.ackBatch") == null) {
+      consumerConfig.ackBatch = 1;
+    }
+    Connection consumerConnection = broker.newConnection();
+    ConsumerService consumer = new ConsumerService(consumerConnection, consumerConfig);
+    consumer.start();
+
+    Map<String, String> initParams = new TreeMap<>();
+    // Deployed defaults from web.xml that differ from the servlet's built-in ones
+    initParams.put("processingMode", "async");
+    initParams.put("readModelUrl", "http://localhost:" + consumer.getQueryPort());
+    initParams.put("shardCount", Integer.toString(consumerConfig.shards));
+    Properties properties = System.getProperties();
+    for (String name : properties.stringPropertyNames()) {
+      if (name.startsWith("server.")) {
+        initParams.put(name.substring("server.".length()), properties.getProperty(name));
+      }
+    }
+    Connection serverConnection = broker.newConnection();
+    Tomcat tomcat = startServer(workDir, serverConnection, initParams);
+    int port = tomcat.getConnector().getLocalPort();
+    System.out.println(" [*] SkierServlet on port " + port + " with " + initParams);
+
+    ThroughputSampler sampler = new ThroughputSampler(broker);
+    sampler.start();
+    String[] clientArgs = Arrays.copyOf(args, args.length + 1);
+    clientArgs[args.length] = "--server-url=http://localhost:" + port + "/skiers/";
+    SkierClientPart2.main(clientArgs);
+
+    boolean settled = broker.awaitSettled(DRAIN_TIMEOUT_MILLIS);
+    sampler.stop();
+    boolean passed = report(broker, ackLatency, consumer, sampler, settled);
+
+    tomcat.stop();
+    tomcat.destroy();
+    // The servlet leaves a connection it was handed open
+    serverConnection.close();
+    consumer.close();
+    consumerConnection.close();
+    deleteRecursively(workDir);
+    // The exit status carries the verdict
+    System.exit(passed ? 0 : 1);
+  }
+
+  private static Tomcat startServer(Path workDir, Connection connection, Map<String, String> initParams)
+      throws Exception {
+    Tomcat tomcat = new Tomcat();
+    tomcat.setBaseDir(workDir.resolve("tomcat").toString());
+    tomcat.setPort(Integer.getInteger("e2e.port", 0));
+    tomcat.getConnector();
+
+    Path docBase = Files.createDirectories(workDir.resolve("webapp"));
+    Context context = tomcat.addContext("", docBase.toString());
+    // The servlet picks this connection up in init instead of connecting to RabbitMQ
+    context.addServletContainerInitializer(
+        (classes, servletContext) -> servletContext.setAttribute(SkierServlet.CONNECTION_ATTRIBUTE, connection),
+        null);
+
+    // Same servlets and mappings as web.xml
+    Wrapper skiers = Tomcat.addServlet(context, "SkierServlet", new SkierServlet());
+    initParams.forEach(skiers::addInitParameter);
+    skiers.setAsyncSupported(true);
+    skiers.setLoadOnStartup(1);
+    context.addServletMappingDecoded("/skiers/*", "SkierServlet");
+    context.addServletMappingDecoded("/resorts/*", "SkierServlet");
+    Tomcat.addServlet(context, "MetricsServlet", new MetricsServlet());
+    context.addServletMappingDecoded("/metrics", "MetricsServlet");
+
+    tomcat.start();
+    return tomcat;
+  }
+
+  private static boolean report(InMemoryBroker broker, LatencyHistogram latency, ConsumerService consumer,
+      ThroughputSampler sampler, boolean settled) {
+    long acked = broker.getAcked();
+    double seconds = Math.max((broker.getLastAckNanos() - broker.getFirstAcceptNanos()) / 1e9, 1e-9);
+    double ridesPerSecond = acked / seconds;
+
+    System.out.println("\nEnd-to-end Results:");
+    System.out.println("=============Ingest================");
+    System.out.println("Rides accepted by the broker: " + broker.getAccepted());
+    System.out.println("Rides applied by the consumer: " + consumer.getAppliedRides()
+        + " (" + (acked - consumer.getAppliedRides()) + " duplicates dropped)");
+    System.out.println("Redelivered: " + broker.getRedelivered() + ", refused at queue limit: "
+        + broker.getRejected() + ", unroutable: " + broker.getUnroutable());
+    System.out.println("Left unsettled after drain: " + broker.getOutstanding() + (settled ? "" : " (drain timed out)"));
+    System.out.println("Peak queue depth: " + sampler.peakDepth);
+    System.out.printf("Sustained throughput: %.2f rides/second over %.2f s (first accept to last apply)%n",
+        ridesPerSecond, seconds);
+    List<Long> steady = sampler.steadySeconds();
+    if (!steady.isEmpty()) {
+      System.out.printf("Applied per second (%d full seconds): median %d, min %d, max %d%n", steady.size(),
+          steady.get(steady.size() / 2), steady.get(0), steady.get(steady.size() - 1));
+    }
+
+    System.out.println("\nIngest latency (broker accept -> consumer applied):");
+    synchronized (latency) {
+      if (latency.getTotalCount() > 0) {
+        System.out.printf("Median: %.3f ms%n", latency.getValueAtPercentile(50) / 1000.0);
+        System.out.printf("90th percentile: %.3f ms%n", latency.getValueAtPercentile(90) / 1000.0);
+        System.out.printf("99th percentile: %.3f ms%n", latency.getValueAtPercentile(99) / 1000.0);
+        System.out.printf("99.9th percentile: %.3f ms%n", latency.getValueAtPercentile(99.9) / 1000.0);
+        System.out.printf("Max: %.3f ms%n", latency.getMax() / 1000.0);
+      }
+    }
+    consumer.report();
+
+    if (MIN_RIDES_PER_SECOND > 0 && ridesPerSecond < MIN_RIDES_PER_SECOND) {
+      System.out.printf("FAILED: %.2f rides/second is below the required %.2f%n", ridesPerSecond, MIN_RIDES_PER_SECOND);
+      return false;
+    }
+    return settled;
+  }
+
+  private static void deleteRecursively(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Once a second: rides acked in that second and the ready queue depth.
+   */
+  private static final class ThroughputSampler {
+    private final InMemoryBroker broker;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "e2e-sampler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    private final List<Long> perSecond = new ArrayList<>();
+    private long lastAcked;
+    private long peakDepth;
+
+    private ThroughputSampler(InMemoryBroker broker) {
+      this.broker = broker;
+    }
+
+    private void start() {
+      executor.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private synchronized void sample() {
+      long acked = broker.getAcked();
+      // Skip the idle seconds before the first ride arrives
+      if (acked > 0 || !perSecond.isEmpty()) {
+        perSecond.add(acked - lastAcked);
+      }
+      lastAcked = acked;
+      peakDepth = Math.max(peakDepth, broker.getReadyCount());
+    }
+
+    private void stop() throws InterruptedException {
+      executor.shutdown();
+      executor.awaitTermination(2, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sorted per-second counts without the partial first and last seconds.
+     */
+    private synchronized List<Long> steadySeconds() {
+      int end = perSecond.size();
+      while (end > 0 && perSecond.get(end - 1) == 0) {
+        end--;
+      }
+      if (end <= 2) {
+        return Collections.emptyList();
+      }
+      List<Long> steady = new ArrayList<>(perSecond.subList(1, end - 1));
+      Collections.sort(steady);
+      return steady;
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH entry point with allocation profiling always on: takes the usual JMH command line
+ * (benchmark regex, -p param=values, -f, -wi, -i, ...) and adds -prof gc unless it was given,
+ * so every result comes with gc.alloc.rate.norm (bytes allocated per operation).
+ *
+ * Usage: java -jar target/microbenchmarks.jar [RequestParsing] [-p bodyShape=compact]
+ */
+public class BenchmarkRunner {
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+    boolean gcProfiled = options.getProfilers().stream()
+        .anyMatch(profiler -> profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName()));
+    if (!gcProfiled) {
+      builder.addProfiler(GCProfiler.class);
+    }
+    new Runner(builder.build()).run();
+  }
+}
@@ -0,0 +1,109 @@
+package jmh;
+
+import codec.LiftRideCodec;
+import codec.LiftRideMessage;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The shared lift ride codec on its own: binary and JSON encode and decode, against the
+ * original Gson JsonObject message. A binary message is always LiftRideCodec.BINARY_LENGTH
+ * (19) bytes; the JSON forms are around 90.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+  private static final int PAYLOADS = 1024;
+
+  private int[][] rides;
+  private byte[][] binaryBodies;
+  private byte[][] jsonBodies;
+  private byte[][] gsonBodies;
+  private final LiftRideMessage ride = new LiftRideMessage();
+  private int next;
+
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(42);
+    rides = new int[PAYLOADS][];
+    binaryBodies = new byte[PAYLOADS][];
+    jsonBodies = new byte[PAYLOADS][];
+    gsonBodies = new byte[PAYLOADS][];
+    for (int i = 0; i < PAYLOADS; i++) {
+      int[] r = {random.nextInt(10) + 1, 2025, random.nextInt(366) + 1, random.nextInt(100000) + 1,
+          random.nextInt(360) + 1, random.nextInt(40) + 1};
+      rides[i] = r;
+      binaryBodies[i] = LiftRideCodec.encodeBinary(r[0], r[1], r[2], r[3], r[4], r[5]);
+      jsonBodies[i] = LiftRideCodec.encodeJson(r[0], r[1], r[2], r[3], r[4], r[5]);
+      gsonBodies[i] = gsonMessage(r);
+    }
+  }
+
+  private int nextIndex() {
+    return next++ & (PAYLOADS - 1);
+  }
+
+  @Benchmark
+  public byte[] encodeBinary() {
+    int[] r = rides[nextIndex()];
+    return LiftRideCodec.encodeBinary(r[0], r[1], r[2], r[3], r[4], r[5]);
+  }
+
+  @Benchmark
+  public LiftRideMessage decodeBinary() {
+    return LiftRideCodec.decode(LiftRideCodec.CONTENT_TYPE_BINARY, binaryBodies[nextIndex()], ride);
+  }
+
+  @Benchmark
+  public byte[] encodeJson() {
+    int[] r = rides[nextIndex()];
+    return LiftRideCodec.encodeJson(r[0], r[1], r[2], r[3], r[4], r[5]);
+  }
+
+  @Benchmark
+  public LiftRideMessage decodeJson() {
+    return LiftRideCodec.decode(LiftRideCodec.CONTENT_TYPE_JSON, jsonBodies[nextIndex()], ride);
+  }
+
+  @Benchmark
+  public byte[] legacyGsonEncode() {
+    return gsonMessage(rides[nextIndex()]);
+  }
+
+  // The original consumer read the skier ID as a string and the lift ID as a number
+  @Benchmark
+  public int legacyGsonDecode() {
+    JsonObject json = JsonParser.parseString(new String(gsonBodies[nextIndex()], StandardCharsets.UTF_8))
+        .getAsJsonObject();
+    return json.get("skierID").getAsString().length() + json.get("liftID").getAsInt();
+  }
+
+  // The message the servlet built before the codec: path IDs as strings, body fields as numbers
+  private static byte[] gsonMessage(int[] r) {
+    JsonObject message = new JsonObject();
+    message.addProperty("resortID", String.valueOf(r[0]));
+    message.addProperty("seasonID", String.valueOf(r[1]));
+    message.addProperty("dayID", String.valueOf(r[2]));
+    message.addProperty("skierID", String.valueOf(r[3]));
+    message.addProperty("time", r[4]);
+    message.addProperty("liftID", r[5]);
+    return message.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,142 @@
+package jmh;
+
+import codec.LiftRideCodec;
+import codec.LiftRideMessage;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import engine.DuplicateFilter;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import store.SkierRideStore;
+
+/**
+ * The consumer's per-delivery work (RideDeliveryHandler and the write-behind apply): decode the
+ * body, check the message ID against the duplicate filter and record the ride in
+ * SkierRideStore. The original RMQConsumer.processMessage, minus its println, is the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConsumerProcessingBenchmark {
+  private static final int PAYLOADS = 1024;
+  // Message IDs cycle through more IDs than the filter keeps, so every check is a first sighting
+  private static final int MESSAGE_IDS = 1 << 16;
+  private static final int FILTER_ENTRIES = 4096;
+
+  @Param({"binary", "json"})
+  public String format;
+
+  // Distinct skiers the rides spread over: how much of the store stays in cache
+  @Param({"1000", "100000"})
+  public int skiers;
+
+  private String contentType;
+  private byte[][] bodies;
+  // The original consumer only read JSON
+  private byte[][] jsonBodies;
+  private String[] messageIds;
+  private final LiftRideMessage ride = new LiftRideMessage();
+  private DuplicateFilter duplicates;
+  private SkierRideStore store;
+  private ConcurrentHashMap<String, Integer> skierLiftRecords;
+  private int next;
+  private int nextId;
+
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(42);
+    boolean binary = "binary".equals(format);
+    contentType = binary ? LiftRideCodec.CONTENT_TYPE_BINARY : LiftRideCodec.CONTENT_TYPE_JSON;
+    bodies = new byte[PAYLOADS][];
+    jsonBodies = new byte[PAYLOADS][];
+    for (int i = 0; i < PAYLOADS; i++) {
+      int resortID = random.nextInt(10) + 1;
+      int skierID = random.nextInt(skiers) + 1;
+      int time = random.nextInt(360) + 1;
+      int liftID = random.nextInt(40) + 1;
+      jsonBodies[i] = LiftRideCodec.encodeJson(resortID, 2025, 1, skierID, time, liftID);
+      bodies[i] = binary ? LiftRideCodec.encodeBinary(resortID, 2025, 1, skierID, time, liftID) : jsonBodies[i];
+    }
+    messageIds = new String[MESSAGE_IDS];
+    for (int i = 0; i < MESSAGE_IDS; i++) {
+      messageIds[i] = Long.toHexString(random.nextLong()) + "-" + Long.toString(i + 1, 36);
+    }
+    duplicates = new DuplicateFilter(FILTER_ENTRIES, TimeUnit.MINUTES.toMillis(5));
+    store = new SkierRideStore();
+    skierLiftRecords = new ConcurrentHashMap<>();
+    // Warm the aggregates so the benchmarks update existing entries, as a long-running consumer does
+    LiftRideMessage warm = new LiftRideMessage();
+    for (byte[] body : bodies) {
+      LiftRideCodec.decode(contentType, body, warm);
+      store.recordRide(warm.getResortID(), warm.getSeasonID(), warm.getDayID(), warm.getSkierID(), warm.getLiftID());
+      skierLiftRecords.merge(Integer.toString(warm.getSkierID()), 1, Integer::sum);
+    }
+  }
+
+  private int nextIndex() {
+    return next++ & (PAYLOADS - 1);
+  }
+
+  private String nextMessageId() {
+    return messageIds[nextId++ & (MESSAGE_IDS - 1)];
+  }
+
+  @Benchmark
+  public LiftRideMessage decode() {
+    return LiftRideCodec.decode(contentType, bodies[nextIndex()], ride);
+  }
+
+  @Benchmark
+  public boolean deduplicate() {
+    return duplicates.markIfNew(DuplicateFilter.fingerprint(nextMessageId()));
+  }
+
+  @Benchmark
+  public void recordRide() {
+    LiftRideCodec.decode(contentType, bodies[nextIndex()], ride);
+    store.recordRide(ride.getResortID(), ride.getSeasonID(), ride.getDayID(), ride.getSkierID(), ride.getLiftID());
+  }
+
+  @Benchmark
+  public boolean processMessage() {
+    // Same order as RideDeliveryHandler: decode, then dedup, then apply
+    LiftRideMessage decoded = LiftRideCodec.decode(contentType, bodies[nextIndex()], new LiftRideMessage());
+    if (!duplicates.markIfNew(DuplicateFilter.fingerprint(nextMessageId()))) {
+      return false;
+    }
+    store.recordRide(decoded.getResortID(), decoded.getSeasonID(), decoded.getDayID(), decoded.getSkierID(),
+        decoded.getLiftID());
+    return true;
+  }
+
+  // The original consumer's processMessage: the body as a String, parsed into a JsonObject,
+  // rides counted per skier ID string
+  @Benchmark
+  public int legacyProcessMessage() {
+    String message = new String(jsonBodies[nextIndex()], StandardCharsets.UTF_8);
+    try {
+      JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+      String skierID = json.get("skierID").getAsString();
+      int liftID = json.get("liftID").getAsInt();
+      return skierLiftRecords.merge(skierID, 1, Integer::sum) + liftID;
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package jmh;
+
+import api.RequestFactory;
+import java.net.http.HttpRequest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import model.LiftRide;
+import model.SkierEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import producer.EventGenerator;
+import producer.WorkloadProfile;
+
+/**
+ * The client's request production: drawing an event from the workload profile and turning it
+ * into an HttpRequest. The original SkierProducer.generateRandomEvent, which formatted the
+ * endpoint and body into one string per event, is the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventGeneratorBenchmark {
+  private static final String SERVER_URL = "http://localhost:8080/Assignment1_war/skiers";
+
+  @Param({"uniform", "zipf", "season"})
+  public String profile;
+
+  private EventGenerator.EventStream events;
+  private RequestFactory requests;
+  private final Random random = new Random(42);
+
+  @Setup
+  public void setUp() {
+    events = new EventGenerator(WorkloadProfile.load(profile), 42).stream(0);
+    requests = new RequestFactory(SERVER_URL, true);
+  }
+
+  @Benchmark
+  public SkierEvent nextEvent() {
+    return events.next();
+  }
+
+  @Benchmark
+  public HttpRequest nextRequest() {
+    return requests.postRequest(events.next());
+  }
+
+  // The original producer's event: the whole request as "endpoint::body", parsed again by the
+  // sender. It only has the uniform workload, so it ignores the profile.
+  @Benchmark
+  public String legacyGenerateRandomEvent() {
+    int skierID = random.nextInt(100000) + 1;
+    int resortID = random.nextInt(10) + 1;
+    int liftID = random.nextInt(40) + 1;
+    int seasonID = 2025;
+    int dayID = 1;
+    int time = random.nextInt(360) + 1;
+    String endpoint = String.format("%s/%d/seasons/%d/days/%d/skiers/%d", SERVER_URL, resortID, seasonID, dayID,
+        skierID);
+    return endpoint + "::" + new LiftRide(time, liftID);
+  }
+}
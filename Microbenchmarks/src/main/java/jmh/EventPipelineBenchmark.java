@@ -0,0 +1,151 @@
+package jmh;
+
+import api.RequestFactory;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import model.LiftRide;
+import model.SkierEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import producer.EventGenerator;
+import producer.EventSource;
+import producer.SkierProducer;
+import producer.WorkloadProfile;
+
+/**
+ * Events per second the client can turn into HttpRequests across threads, without sending
+ * them: producer threads feeding consumer threads through the bounded event queue, or each
+ * consumer generating its own events. The original single producer of "endpoint::body"
+ * strings, split again by every consumer, is the baseline. Single-threaded generation is
+ * EventGeneratorBenchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventPipelineBenchmark {
+  private static final String SERVER_URL = "http://localhost:8080/Assignment1_war/skiers";
+  private static final int EVENTS = 100_000;
+  private static final int QUEUE_SIZE = 10_000;
+
+  @Param({"8"})
+  public int consumers;
+
+  @Param({"2"})
+  public int producers;
+
+  @Param({"uniform"})
+  public String profile;
+
+  private EventGenerator generator;
+  private RequestFactory requests;
+  private static volatile Object sink;
+
+  @Setup
+  public void setUp() {
+    generator = new EventGenerator(WorkloadProfile.load(profile), 42);
+    requests = new RequestFactory(SERVER_URL, true);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void typedQueue() throws InterruptedException {
+    BlockingQueue<SkierEvent> queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+    Thread[] threads = new Thread[producers];
+    for (int i = 0; i < producers; i++) {
+      int share = EVENTS / producers + (i < EVENTS % producers ? 1 : 0);
+      threads[i] = new Thread(new SkierProducer(queue, share, generator.stream(i)));
+      threads[i].start();
+    }
+    EventSource source = EventSource.fromQueue(queue);
+    runConsumers(() -> requests.postRequest(source.next()));
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void localGeneration() throws InterruptedException {
+    runConsumers(() -> requests.postRequest(generator.next(ThreadLocalRandom.current())));
+  }
+
+  // The original pipeline: one producer formatting strings, consumers splitting and building
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void legacyStringQueue() throws InterruptedException {
+    BlockingQueue<String> queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+    Thread producer = new Thread(() -> {
+      Random random = new Random();
+      try {
+        for (int i = 0; i < EVENTS; i++) {
+          queue.put(legacyEvent(random));
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+    runConsumers(() -> legacyRequest(queue.take()));
+    producer.join();
+  }
+
+  private static String legacyEvent(Random random) {
+    int skierID = random.nextInt(100000) + 1;
+    int resortID = random.nextInt(10) + 1;
+    int liftID = random.nextInt(40) + 1;
+    int time = random.nextInt(360) + 1;
+    String endpoint = String.format("%s/%d/seasons/%d/days/%d/skiers/%d", SERVER_URL, resortID, 2025, 1, skierID);
+    return endpoint + "::" + new LiftRide(time, liftID);
+  }
+
+  private static HttpRequest legacyRequest(String event) {
+    String[] parts = event.split("::");
+    return HttpRequest.newBuilder()
+        .uri(URI.create(parts[0]))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(parts[1]))
+        .build();
+  }
+
+  private interface RequestStep {
+    HttpRequest next() throws InterruptedException;
+  }
+
+  private void runConsumers(RequestStep step) throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(consumers);
+    for (int c = 0; c < consumers; c++) {
+      int share = EVENTS / consumers + (c < EVENTS % consumers ? 1 : 0);
+      new Thread(() -> {
+        try {
+          for (int i = 0; i < share; i++) {
+            sink = step.next();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      }).start();
+    }
+    done.await();
+  }
+}
@@ -0,0 +1,91 @@
+package jmh;
+
+import config.SkierClientConfig;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import metrics.LatencyHistogram;
+import model.RequestLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The client's latency post-processing for one run: recording every response latency in a
+ * LatencyHistogram and reading the report's percentiles from it, against the original
+ * collect-and-sort over the RequestLog list. Times are per run of the given number of samples.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LatencyStatsBenchmark {
+  @Param({"10000", "1000000"})
+  public int samples;
+
+  // narrow: 1-3 ms around a healthy server; longTail: mostly fast with 1% of responses up to seconds
+  @Param({"narrow", "longTail"})
+  public String distribution;
+
+  private long[] latencyMicros;
+  private List<RequestLog> logs;
+
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(42);
+    latencyMicros = new long[samples];
+    logs = new ArrayList<>(samples);
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < samples; i++) {
+      long micros = "narrow".equals(distribution) || random.nextInt(100) != 0
+          ? 1000 + random.nextInt(2000)
+          : 5000 + (long) (-Math.log(1 - random.nextDouble()) * 200_000);
+      latencyMicros[i] = micros;
+      // The original client logged milliseconds
+      logs.add(new RequestLog(startTime + i, "POST", micros / 1000, 201));
+    }
+  }
+
+  @Benchmark
+  public void histogram(Blackhole blackhole) {
+    LatencyHistogram histogram = new LatencyHistogram(SkierClientConfig.HISTOGRAM_MAX_LATENCY_MICROS,
+        SkierClientConfig.HISTOGRAM_SIGNIFICANT_DIGITS);
+    for (long micros : latencyMicros) {
+      histogram.record(micros);
+    }
+    blackhole.consume(histogram.getMin());
+    blackhole.consume(histogram.getMax());
+    blackhole.consume(histogram.getMean());
+    blackhole.consume(histogram.getValueAtPercentile(50));
+    blackhole.consume(histogram.getValueAtPercentile(99));
+    blackhole.consume(histogram.getValueAtPercentile(99.9));
+  }
+
+  // The original SkierClientPart2.processLatencyMetrics
+  @Benchmark
+  public void legacySortedList(Blackhole blackhole) {
+    List<Long> latencies = new ArrayList<>();
+    for (RequestLog log : logs) {
+      latencies.add(log.getLatency());
+    }
+    Collections.sort(latencies);
+    blackhole.consume(latencies.get(0));
+    blackhole.consume(latencies.get(latencies.size() - 1));
+    blackhole.consume(latencies.stream().mapToLong(Long::longValue).average().orElse(0.0));
+    blackhole.consume(latencies.get(latencies.size() / 2));
+    blackhole.consume(latencies.get((int) (latencies.size() * 0.99)));
+  }
+}
@@ -0,0 +1,117 @@
+package jmh;
+
+import codec.LiftRideCodec;
+import com.google.gson.JsonObject;
+import com.rabbitmq.client.AMQP;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import routing.ShardRouting;
+
+/**
+ * What SkierServlet does between a valid request and the publish: encode the ride, stamp the
+ * idempotency key on the AMQP properties and pick the shard's routing key. The original Gson
+ * JsonObject message is the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBuildingBenchmark {
+  private static final int PAYLOADS = 1024;
+
+  @Param({"binary", "json"})
+  public String format;
+
+  // 1: the default single queue, routed by the default exchange
+  @Param({"1", "8"})
+  public int shards;
+
+  private int[][] rides;
+  private String[] messageIds;
+  private AMQP.BasicProperties messageProperties;
+  private ShardRouting routing;
+  private boolean binary;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(42);
+    rides = new int[PAYLOADS][];
+    messageIds = new String[PAYLOADS];
+    for (int i = 0; i < PAYLOADS; i++) {
+      rides[i] = new int[] {random.nextInt(10) + 1, 2025, 1, random.nextInt(100000) + 1,
+          random.nextInt(360) + 1, random.nextInt(40) + 1};
+      // Same shape as the client's Idempotency-Key
+      messageIds[i] = Long.toHexString(random.nextLong()) + "-" + Long.toString(i + 1, 36);
+    }
+    binary = "binary".equals(format);
+    messageProperties = new AMQP.BasicProperties.Builder()
+        .contentType(binary ? LiftRideCodec.CONTENT_TYPE_BINARY : LiftRideCodec.CONTENT_TYPE_JSON)
+        .deliveryMode(2)
+        .build();
+    routing = new ShardRouting(shards, ShardRouting.Key.SKIER);
+  }
+
+  private int nextIndex() {
+    return next++ & (PAYLOADS - 1);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    int[] ride = rides[nextIndex()];
+    return binary
+        ? LiftRideCodec.encodeBinary(ride[0], ride[1], ride[2], ride[3], ride[4], ride[5])
+        : LiftRideCodec.encodeJson(ride[0], ride[1], ride[2], ride[3], ride[4], ride[5]);
+  }
+
+  @Benchmark
+  public AMQP.BasicProperties properties() {
+    return messageProperties.builder().messageId(messageIds[nextIndex()]).build();
+  }
+
+  @Benchmark
+  public String routingKey() {
+    int[] ride = rides[nextIndex()];
+    return routing.routingKey(routing.shardFor(ride[0], ride[3]));
+  }
+
+  @Benchmark
+  public void buildMessage(Blackhole blackhole) {
+    int i = nextIndex();
+    int[] ride = rides[i];
+    blackhole.consume(binary
+        ? LiftRideCodec.encodeBinary(ride[0], ride[1], ride[2], ride[3], ride[4], ride[5])
+        : LiftRideCodec.encodeJson(ride[0], ride[1], ride[2], ride[3], ride[4], ride[5]));
+    blackhole.consume(messageProperties.builder().messageId(messageIds[i]).build());
+    blackhole.consume(routing.routingKey(routing.shardFor(ride[0], ride[3])));
+  }
+
+  // The servlet's original message: a JsonObject with string IDs, published as UTF-8 of its toString
+  @Benchmark
+  public byte[] legacyBuildMessage() {
+    int[] ride = rides[nextIndex()];
+    JsonObject message = new JsonObject();
+    message.addProperty("resortID", Integer.toString(ride[0]));
+    message.addProperty("seasonID", Integer.toString(ride[1]));
+    message.addProperty("dayID", Integer.toString(ride[2]));
+    message.addProperty("skierID", Integer.toString(ride[3]));
+    message.addProperty("time", ride[4]);
+    message.addProperty("liftID", ride[5]);
+    return message.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,191 @@
+package jmh;
+
+import api.LiftRideParser;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * SkierServlet's POST validation: path parsing and body parsing with LiftRideParser, against
+ * the original split/regex/Gson JsonObject code as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestParsingBenchmark {
+  private static final int PAYLOADS = 1024;
+
+  // Body layouts seen from different clients: ours, pretty-printed, reordered, and with extra fields
+  @Param({"compact", "spaced", "reordered", "extraFields"})
+  public String bodyShape;
+
+  // small: IDs of a few digits; large: near Integer.MAX_VALUE
+  @Param({"small", "large"})
+  public String ids;
+
+  private final Gson gson = new Gson();
+  private String[] paths;
+  private byte[][] bodies;
+  private String[] bodyStrings;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    SplittableRandom random = new SplittableRandom(42);
+    paths = new String[PAYLOADS];
+    bodies = new byte[PAYLOADS][];
+    bodyStrings = new String[PAYLOADS];
+    for (int i = 0; i < PAYLOADS; i++) {
+      boolean large = "large".equals(ids);
+      int resortID = large ? Integer.MAX_VALUE - random.nextInt(1000) : random.nextInt(10) + 1;
+      int skierID = large ? Integer.MAX_VALUE - random.nextInt(100000) : random.nextInt(100000) + 1;
+      int dayID = random.nextInt(366) + 1;
+      paths[i] = "/" + resortID + "/seasons/2025/days/" + dayID + "/skiers/" + skierID;
+      bodyStrings[i] = body(random.nextInt(1441), random.nextInt(40) + 1);
+      bodies[i] = bodyStrings[i].getBytes(StandardCharsets.UTF_8);
+    }
+    // Every payload must take the success path, or the numbers measure error handling
+    LiftRideParser parser = LiftRideParser.forCurrentThread();
+    for (int i = 0; i < PAYLOADS; i++) {
+      if (parser.parsePath(paths[i]) != null || parser.parseBody(new ByteArrayInputStream(bodies[i])) != null
+          || legacyParsePath(paths[i]) != null || legacyParseBody(bodyStrings[i]) != null) {
+        throw new IllegalStateException("Payload rejected: " + paths[i] + " " + bodyStrings[i]);
+      }
+    }
+  }
+
+  private String body(int time, int liftID) {
+    switch (bodyShape) {
+      case "compact":
+        return "{\"time\":" + time + ",\"liftID\":" + liftID + "}";
+      case "spaced":
+        return "{\n  \"time\": " + time + ",\n  \"liftID\": " + liftID + "\n}\n";
+      case "reordered":
+        return "{\"liftID\": " + liftID + ", \"time\": " + time + "}";
+      case "extraFields":
+        return "{\"time\": " + time + ", \"liftID\": " + liftID
+            + ", \"device\": \"gate-7\", \"tags\": [\"rfid\", \"lift\"], \"meta\": {\"retry\": false}}";
+      default:
+        throw new IllegalArgumentException("Unknown body shape: " + bodyShape);
+    }
+  }
+
+  private int nextIndex() {
+    return next++ & (PAYLOADS - 1);
+  }
+
+  @Benchmark
+  public void parsePath(Blackhole blackhole) {
+    LiftRideParser parser = LiftRideParser.forCurrentThread();
+    blackhole.consume(parser.parsePath(paths[nextIndex()]));
+    blackhole.consume(parser.getSkierID());
+  }
+
+  @Benchmark
+  public void parseBody(Blackhole blackhole) throws IOException {
+    LiftRideParser parser = LiftRideParser.forCurrentThread();
+    blackhole.consume(parser.parseBody(new ByteArrayInputStream(bodies[nextIndex()])));
+    blackhole.consume(parser.getLiftID());
+  }
+
+  @Benchmark
+  public void parseRequest(Blackhole blackhole) throws IOException {
+    LiftRideParser parser = LiftRideParser.forCurrentThread();
+    int i = nextIndex();
+    blackhole.consume(parser.parsePath(paths[i]));
+    blackhole.consume(parser.parseBody(new ByteArrayInputStream(bodies[i])));
+  }
+
+  @Benchmark
+  public void legacyParsePath(Blackhole blackhole) {
+    blackhole.consume(legacyParsePath(paths[nextIndex()]));
+  }
+
+  @Benchmark
+  public void legacyParseBody(Blackhole blackhole) {
+    blackhole.consume(legacyParseBody(bodyStrings[nextIndex()]));
+  }
+
+  @Benchmark
+  public void legacyParseRequest(Blackhole blackhole) {
+    int i = nextIndex();
+    blackhole.consume(legacyParsePath(paths[i]));
+    blackhole.consume(legacyParseBody(bodyStrings[i]));
+  }
+
+  // The servlet's original path validation
+  private static String legacyParsePath(String pathInfo) {
+    String[] pathParts = pathInfo.split("/");
+    if (pathParts.length != 8) {
+      return "Invalid URL path format";
+    }
+    try {
+      if (Integer.parseInt(pathParts[1]) <= 0) {
+        return "Resort ID must be positive";
+      }
+      if (!pathParts[3].matches("\\d{4}")) {
+        return "Season ID must be a 4-digit year";
+      }
+      int dayID = Integer.parseInt(pathParts[5]);
+      if (dayID < 1 || dayID > 366) {
+        return "Day ID must be between 1 and 366";
+      }
+      if (Integer.parseInt(pathParts[7]) <= 0) {
+        return "Skier ID must be positive";
+      }
+    } catch (NumberFormatException e) {
+      return "Invalid numeric parameter format";
+    }
+    return null;
+  }
+
+  // The servlet's original body validation, from the body already read into a String
+  private String legacyParseBody(String body) {
+    if (body.trim().isEmpty()) {
+      return "Empty request body.";
+    }
+    JsonObject json;
+    try {
+      json = gson.fromJson(body, JsonObject.class);
+    } catch (RuntimeException e) {
+      return "Invalid JSON format.";
+    }
+    if (!json.has("time") || json.get("time").isJsonNull() || !json.has("liftID") || json.get("liftID").isJsonNull()) {
+      return "Missing required fields: time and liftID.";
+    }
+    int time;
+    int liftID;
+    try {
+      time = json.get("time").getAsInt();
+      liftID = json.get("liftID").getAsInt();
+    } catch (UnsupportedOperationException | NumberFormatException e) {
+      return "Invalid time or liftID.";
+    }
+    if (time < 0 || time > 1440) {
+      return "Time must be between 0 and 1440";
+    }
+    if (liftID < 1) {
+      return "Lift ID must be positive";
+    }
+    return null;
+  }
+}
@@ -0,0 +1,75 @@
+package jmh;
+
+import analytics.RideAnalytics;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Concurrent ride ingest into RideAnalytics, every thread writing to the one shared instance.
+ * Each thread moves on to the next day every ridesPerDay rides, as over a season, so the run
+ * also pays for allocating new days and evicting the oldest once maxMB is reached; the trial
+ * teardown prints the memoryReport.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RideAnalyticsBenchmark {
+  private static final int LIFTS = 40;
+  private static final int SEASON = 2025;
+
+  @Param({"10"})
+  public int resorts;
+
+  @Param({"100000"})
+  public int ridesPerDay;
+
+  @Param({"64"})
+  public int maxMB;
+
+  private RideAnalytics analytics;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    analytics = new RideAnalytics(1, 255, maxMB * 1024L * 1024L);
+  }
+
+  @TearDown(Level.Trial)
+  public void report() {
+    System.out.println();
+    System.out.println(analytics.memoryReport());
+  }
+
+  @State(Scope.Thread)
+  public static class Rides {
+    private final SplittableRandom random = new SplittableRandom();
+    private long count;
+  }
+
+  @Benchmark
+  public void recordRide(Rides rides) {
+    SplittableRandom random = rides.random;
+    int dayID = (int) (rides.count++ / ridesPerDay) + 1;
+    // Skewed lifts, as real lift traffic is
+    int liftID = Math.min(LIFTS, 1 + (int) (-Math.log(1 - random.nextDouble()) * 8));
+    analytics.recordRide(random.nextInt(resorts) + 1, SEASON, dayID, random.nextInt(RideAnalytics.MAX_MINUTE + 1),
+        liftID);
+  }
+}
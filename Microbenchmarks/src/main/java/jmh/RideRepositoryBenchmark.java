@@ -0,0 +1,90 @@
+package jmh;
+
+import codec.LiftRideCodec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.RideRepository;
+import persistence.SegmentFileRideRepository;
+
+/**
+ * Durable inserts into SegmentFileRideRepository: one operation writes a batch and syncs it,
+ * exactly as WriteBehindBuffer flushes. The score is batches per second; the "rides" counter
+ * is inserts per second. Writes go to a temporary directory on the default file system, so
+ * results depend on its fsync cost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RideRepositoryBenchmark {
+  private static final int RECORD = LiftRideCodec.BINARY_LENGTH;
+
+  @Param({"1", "10", "100", "1000", "10000"})
+  public int batchSize;
+
+  private Path directory;
+  private RideRepository repository;
+  private byte[] batch;
+
+  /**
+   * Rides made durable, reported per second next to the batch rate.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Rides {
+    public long rides;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rides = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    SplittableRandom random = new SplittableRandom(42);
+    batch = new byte[batchSize * RECORD];
+    for (int i = 0; i < batchSize; i++) {
+      LiftRideCodec.encodeBinary(batch, i * RECORD, random.nextInt(10) + 1, 2025, 1,
+          random.nextInt(100000) + 1, random.nextInt(360) + 1, random.nextInt(40) + 1);
+    }
+    directory = Files.createTempDirectory("ride-repository-bench");
+    repository = new SegmentFileRideRepository(directory, 64L * 1024 * 1024);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    repository.close();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void writeAndSync(Rides counter) throws IOException {
+    repository.write(batch, batchSize);
+    repository.sync();
+    counter.rides += batchSize;
+  }
+}
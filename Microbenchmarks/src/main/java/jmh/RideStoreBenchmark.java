@@ -0,0 +1,78 @@
+package jmh;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import store.SkierRideStore;
+
+/**
+ * Concurrent ride inserts into the lock-striped SkierRideStore, against the original
+ * ConcurrentHashMap&lt;String, Integer&gt; keyed by "resort/day/skier". Every thread writes to
+ * the one shared store, as the consumer's channels do.
+ *
+ * JMH does not measure retained heap: the trial teardown prints the store's memoryReport, and
+ * gc.alloc.rate.norm shows what each legacy insert allocates (key string, boxed count, node).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RideStoreBenchmark {
+  private static final int RESORTS = 10;
+  private static final int DAYS = 3;
+
+  @Param({"10000", "100000"})
+  public int skiers;
+
+  private SkierRideStore store;
+  private ConcurrentHashMap<String, Integer> legacyMap;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    store = new SkierRideStore();
+    legacyMap = new ConcurrentHashMap<>();
+  }
+
+  @TearDown(Level.Trial)
+  public void report() {
+    if (store.getDayCount() > 0) {
+      System.out.println();
+      System.out.println(store.memoryReport());
+    }
+    if (!legacyMap.isEmpty()) {
+      System.out.printf("%nLegacy map: %,d keys%n", legacyMap.size());
+    }
+  }
+
+  @Benchmark
+  public void recordRide() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    store.recordRide(random.nextInt(RESORTS) + 1, 2025, random.nextInt(DAYS) + 1, random.nextInt(skiers) + 1,
+        random.nextInt(40) + 1);
+  }
+
+  // The original consumer's per-skier ride count
+  @Benchmark
+  public Integer legacyMapMerge() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return legacyMap.merge((random.nextInt(RESORTS) + 1) + "/" + (random.nextInt(DAYS) + 1) + "/"
+        + (random.nextInt(skiers) + 1), 1, Integer::sum);
+  }
+}
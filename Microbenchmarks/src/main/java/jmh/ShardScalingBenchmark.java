@@ -0,0 +1,168 @@
+package jmh;
+
+import codec.LiftRideCodec;
+import codec.LiftRideMessage;
+import engine.DuplicateFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import routing.ShardRouting;
+import store.ShardedRideStore;
+import store.SkierRideStore;
+
+/**
+ * Consumer-side rides per second across queue shards, in process: producer threads route
+ * encoded rides with ShardRouting into one bounded queue per shard (standing in for the broker
+ * queues), and one consumer thread per shard decodes, deduplicates and records them into that
+ * shard's store, as RMQConsumer does with one channel per shard. Scaling is bounded by the
+ * cores available; the broker and network are not part of the measurement.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardScalingBenchmark {
+  private static final int RIDES = 200_000;
+  private static final int RESORTS = 10;
+  private static final int SKIERS = 100_000;
+  private static final int SEASON = 2025;
+  private static final int DAY = 1;
+  private static final int QUEUE_CAPACITY = 4096;
+  private static final Message END = new Message(null, null);
+
+  @Param({"1", "2", "4", "8"})
+  public int shards;
+
+  @Param({"skier"})
+  public String key;
+
+  @Param({"4"})
+  public int producers;
+
+  private ShardRouting routing;
+  private Message[][] byProducer;
+  private static volatile Object sink;
+
+  @Setup
+  public void setUp() {
+    routing = ShardRouting.of(shards, key);
+    // Rides in time order; each skier belongs to one producer so its rides stay ordered
+    Random random = new Random(42);
+    List<List<Message>> lists = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      lists.add(new ArrayList<>(RIDES / producers + 1));
+    }
+    for (int i = 0; i < RIDES; i++) {
+      int resortID = random.nextInt(RESORTS) + 1;
+      int skierID = random.nextInt(SKIERS) + 1;
+      int time = (int) ((long) i * 360 / RIDES) + 1;
+      byte[] body = LiftRideCodec.encodeBinary(resortID, SEASON, DAY, skierID, time, random.nextInt(40) + 1);
+      lists.get(skierID % producers).add(new Message(body, "bench-" + i));
+    }
+    byProducer = new Message[producers][];
+    for (int p = 0; p < producers; p++) {
+      byProducer[p] = lists.get(p).toArray(new Message[0]);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RIDES)
+  public void routeAndConsume() throws InterruptedException {
+    List<BlockingQueue<Message>> queues = new ArrayList<>();
+    SkierRideStore[] stores = new SkierRideStore[shards];
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < shards; i++) {
+      queues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+      stores[i] = new SkierRideStore();
+      threads.add(new Thread(new ShardConsumer(queues.get(i), stores[i], producers), "shard-" + i));
+    }
+    for (Message[] messages : byProducer) {
+      threads.add(new Thread(() -> {
+        LiftRideMessage ride = new LiftRideMessage();
+        try {
+          for (Message message : messages) {
+            LiftRideCodec.decodeBinary(message.body, 0, message.body.length, ride);
+            queues.get(routing.shardFor(ride.getResortID(), ride.getSkierID())).put(message);
+          }
+          for (BlockingQueue<Message> queue : queues) {
+            queue.put(END);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }, "producer"));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    sink = new ShardedRideStore(stores);
+  }
+
+  /**
+   * One shard's single ordered consumer: decode, drop duplicates, record.
+   */
+  private static final class ShardConsumer implements Runnable {
+    private final BlockingQueue<Message> queue;
+    private final SkierRideStore store;
+    private final DuplicateFilter duplicates = new DuplicateFilter(1 << 18, 60_000);
+    private int producersLeft;
+
+    private ShardConsumer(BlockingQueue<Message> queue, SkierRideStore store, int producers) {
+      this.queue = queue;
+      this.store = store;
+      this.producersLeft = producers;
+    }
+
+    @Override
+    public void run() {
+      LiftRideMessage ride = new LiftRideMessage();
+      try {
+        while (producersLeft > 0) {
+          Message message = queue.take();
+          if (message == END) {
+            producersLeft--;
+            continue;
+          }
+          if (!duplicates.firstSeen(message.id)) {
+            continue;
+          }
+          LiftRideCodec.decodeBinary(message.body, 0, message.body.length, ride);
+          store.recordRide(ride.getResortID(), ride.getSeasonID(), ride.getDayID(), ride.getSkierID(),
+              ride.getLiftID());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static final class Message {
+    private final byte[] body;
+    private final String id;
+
+    private Message(byte[] body, String id) {
+      this.body = body;
+      this.id = id;
+    }
+  }
+}
@@ -1,55 +1,52 @@
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.rabbitmq.client.*;
 
+import consumer.ConsumerConfig;
+import consumer.ConsumerService;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 public class RMQConsumer {
-  private static final String QUEUE_NAME = "ski_lift_queue";
-  private static final String RABBITMQ_HOST = "172.31.21.217";
-  private static final int THREAD_POOL_SIZE = 40; // Adjust based on performance needs
-
-  // Thread-safe map to store skier lift rides
-  private static final ConcurrentHashMap<String, Integer> skierLiftRecords = new ConcurrentHashMap<>();
 
+  // Settings come from -Dconsumer.* system properties, see ConsumerConfig
   public static void main(String[] args) {
+    ConsumerConfig config = new ConsumerConfig();
     ConnectionFactory factory = new ConnectionFactory();
-    factory.setHost(RABBITMQ_HOST);
-
-    try {
-      Connection connection = factory.newConnection();
-      Channel channel = connection.createChannel();
-      channel.queueDeclare(QUEUE_NAME, true, false, false, null);
-      System.out.println(" [*] Waiting for messages from RabbitMQ...");
+    factory.setHost(config.rabbitHost);
 
-      DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-        String message = new String(delivery.getBody(), StandardCharsets.UTF_8);
-        processMessage(message);
-        channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
-      };
+    // Deliveries for every channel are dispatched on this pool, one thread per channel
+    ExecutorService consumerPool = Executors.newFixedThreadPool(config.totalChannels());
 
-      // Enable multiple consumers (multi-threaded)
-      channel.basicQos(THREAD_POOL_SIZE);
-      channel.basicConsume(QUEUE_NAME, false, deliverCallback, consumerTag -> {});
+    try {
+      Connection connection = factory.newConnection(consumerPool);
+      ConsumerService service = new ConsumerService(connection, config);
+      service.start();
+
+      ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "store-report");
+        thread.setDaemon(true);
+        return thread;
+      });
+      reporter.scheduleAtFixedRate(service::report, config.reportSeconds, config.reportSeconds, TimeUnit.SECONDS);
+
+      // Drain in-flight deliveries and flush acks before the connection goes away
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        service.close();
+        try {
+          connection.close();
+        } catch (Exception e) {
+          System.err.println("Failed to close connection: " + e.getMessage());
+        }
+        consumerPool.shutdown();
+        service.report();
+      }));
 
     } catch (IOException | TimeoutException e) {
       e.printStackTrace();
-    }
-  }
-
-  private static void processMessage(String message) {
-    try {
-      JsonObject json = JsonParser.parseString(message).getAsJsonObject();
-      String skierID = json.get("skierID").getAsString();
-      int liftID = json.get("liftID").getAsInt();
-
-      skierLiftRecords.merge(skierID, 1, Integer::sum); // Track rides per skier
-      System.out.println("Processed ride for skier " + skierID + " on lift " + liftID);
-    } catch (Exception e) {
-      System.err.println("Error processing message: " + message);
+      consumerPool.shutdown();
     }
   }
 }
@@ -0,0 +1,66 @@
+package analytics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ride counts for one (resortID, seasonID, dayID) in fixed buckets of the ride's time field:
+ * one series for all lifts together and one per lift, plus the day's vertical.
+ *
+ * Recording is a few atomic increments; the only allocation is a lift's row the first time
+ * that lift is seen, which the owner does under its lock so it can account for the memory.
+ */
+final class LiftActivity {
+  final long key;
+  final int seasonID;
+  final int dayID;
+  private final AtomicIntegerArray allLifts;
+  // Indexed by liftID; slot 0 collects lifts above the tracked range
+  final AtomicReferenceArray<AtomicIntegerArray> lifts;
+  private final AtomicLong vertical = new AtomicLong();
+  private final AtomicInteger latestMinute = new AtomicInteger(-1);
+
+  LiftActivity(long key, int seasonID, int dayID, int buckets, int maxLiftID) {
+    this.key = key;
+    this.seasonID = seasonID;
+    this.dayID = dayID;
+    this.allLifts = new AtomicIntegerArray(buckets);
+    this.lifts = new AtomicReferenceArray<>(maxLiftID + 1);
+  }
+
+  void record(AtomicIntegerArray liftRow, int bucket, int minute, long rideVertical) {
+    allLifts.incrementAndGet(bucket);
+    liftRow.incrementAndGet(bucket);
+    vertical.addAndGet(rideVertical);
+    int latest = latestMinute.get();
+    while (minute > latest && !latestMinute.compareAndSet(latest, minute)) {
+      latest = latestMinute.get();
+    }
+  }
+
+  /**
+   * Bucket counts for one lift, or for all lifts when liftSlot is -1; null if that lift has
+   * no rides.
+   */
+  AtomicIntegerArray series(int liftSlot) {
+    return liftSlot < 0 ? allLifts : lifts.get(liftSlot);
+  }
+
+  long getVertical() {
+    return vertical.get();
+  }
+
+  int getLatestMinute() {
+    return latestMinute.get();
+  }
+
+  static long sum(AtomicIntegerArray series, int fromBucket, int toBucket) {
+    long rides = 0;
+    for (int i = Math.max(0, fromBucket); i <= toBucket && i < series.length(); i++) {
+      rides += series.get(i);
+    }
+    return rides;
+  }
+}
@@ -0,0 +1,348 @@
+package analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import store.SkierRideStore;
+
+/**
+ * Streaming lift analytics for the consumer: rides per lift over time, busiest lifts and vertical
+ * per resort/season/day, fed the same rides as the aggregates.
+ *
+ * Each resort-day keeps ride counts in buckets of the ride's time field (minute of the day,
+ * 0 to 1440), for all lifts and for each lift. A ride increments its buckets and nothing else,
+ * so windows are read as sums of buckets: tumbling windows are consecutive groups of buckets and
+ * a sliding window is the run of buckets it covers, whatever has been recorded before. Top-K
+ * lifts come from a bounded min-heap over the per-lift sums for the window.
+ *
+ * Memory is capped: once the tracked days would exceed maxBytes, the oldest days by season and
+ * day are evicted. Rides for a day older than everything that could be evicted are dropped and
+ * counted instead, so a late ride can't push out the days operations are looking at.
+ */
+public class RideAnalytics {
+  public static final int MAX_MINUTE = 1440;
+
+  private static final int INITIAL_DIRECTORY_CAPACITY = 64;
+  // Object headers and fields of a day and its counters, on top of the arrays
+  private static final int DAY_OVERHEAD_BYTES = 128;
+  private static final int ROW_OVERHEAD_BYTES = 16;
+
+  private final int bucketMinutes;
+  private final int buckets;
+  private final int maxLiftID;
+  private final long maxBytes;
+  private final long dayBytes;
+  private final long rowBytes;
+
+  private volatile AtomicReferenceArray<LiftActivity> directory = new AtomicReferenceArray<>(INITIAL_DIRECTORY_CAPACITY);
+  private int dayCount;
+  private long footprintBytes;
+  private long evictedDays;
+  private final AtomicLong droppedRides = new AtomicLong();
+
+  /**
+   * @param bucketMinutes resolution of every window, in minutes of ride time
+   * @param maxLiftID lifts 1..maxLiftID get their own series; higher IDs only count toward the day
+   * @param maxBytes cap on the counters of all retained days
+   */
+  public RideAnalytics(int bucketMinutes, int maxLiftID, long maxBytes) {
+    if (bucketMinutes < 1 || maxLiftID < 1) {
+      throw new IllegalArgumentException("bucketMinutes and maxLiftID must be positive");
+    }
+    this.bucketMinutes = bucketMinutes;
+    this.buckets = MAX_MINUTE / bucketMinutes + 1;
+    this.maxLiftID = maxLiftID;
+    this.dayBytes = buckets * 4L + (maxLiftID + 1) * 4L + DAY_OVERHEAD_BYTES;
+    this.rowBytes = buckets * 4L + ROW_OVERHEAD_BYTES;
+    if (maxBytes < dayBytes + rowBytes) {
+      throw new IllegalArgumentException("maxBytes must hold at least one day with one lift ("
+          + (dayBytes + rowBytes) + " bytes)");
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  public void recordRide(int resortID, int seasonID, int dayID, int time, int liftID) {
+    int slot = liftID >= 1 && liftID <= maxLiftID ? liftID : 0;
+    LiftActivity day = find(directory, dayKey(resortID, seasonID, dayID));
+    AtomicIntegerArray row = day == null ? null : day.lifts.get(slot);
+    if (row == null) {
+      day = allocate(resortID, seasonID, dayID, slot);
+      if (day == null) {
+        droppedRides.incrementAndGet();
+        return;
+      }
+      row = day.lifts.get(slot);
+    }
+    int minute = Math.max(0, Math.min(MAX_MINUTE, time));
+    day.record(row, minute / bucketMinutes, minute, (long) liftID * SkierRideStore.VERTICAL_PER_LIFT_ID);
+  }
+
+  /**
+   * Rides on the day, all lifts.
+   */
+  public long getRides(int resortID, int seasonID, int dayID) {
+    return getRides(resortID, seasonID, dayID, 0, 0, MAX_MINUTE);
+  }
+
+  /**
+   * Sliding window: rides from fromMinute to toMinute inclusive, widened to whole buckets, on one
+   * lift or on all lifts when liftID is 0.
+   */
+  public long getRides(int resortID, int seasonID, int dayID, int liftID, int fromMinute, int toMinute) {
+    AtomicIntegerArray series = series(resortID, seasonID, dayID, liftID);
+    if (series == null || toMinute < fromMinute) {
+      return 0;
+    }
+    return LiftActivity.sum(series, Math.max(0, fromMinute) / bucketMinutes, Math.min(MAX_MINUTE, toMinute) / bucketMinutes);
+  }
+
+  /**
+   * Tumbling windows: rides in each consecutive windowMinutes of the day (rounded up to whole
+   * buckets), on one lift or on all lifts when liftID is 0; empty if there are none.
+   */
+  public long[] getWindowedRides(int resortID, int seasonID, int dayID, int liftID, int windowMinutes) {
+    int bucketsPerWindow = Math.max(1, (windowMinutes + bucketMinutes - 1) / bucketMinutes);
+    AtomicIntegerArray series = series(resortID, seasonID, dayID, liftID);
+    if (series == null) {
+      return new long[0];
+    }
+    long[] windows = new long[(buckets + bucketsPerWindow - 1) / bucketsPerWindow];
+    for (int i = 0; i < buckets; i++) {
+      windows[i / bucketsPerWindow] += series.get(i);
+    }
+    return windows;
+  }
+
+  /**
+   * The k lifts with the most rides from fromMinute to toMinute, busiest first.
+   */
+  public List<LiftCount> getTopLifts(int resortID, int seasonID, int dayID, int k, int fromMinute, int toMinute) {
+    LiftActivity day = find(directory, dayKey(resortID, seasonID, dayID));
+    List<LiftCount> top = new ArrayList<>();
+    if (day == null || k < 1 || toMinute < fromMinute) {
+      return top;
+    }
+    int fromBucket = Math.max(0, fromMinute) / bucketMinutes;
+    int toBucket = Math.min(MAX_MINUTE, toMinute) / bucketMinutes;
+    // Min-heap of the best k so far: each lift costs at most one log(k) swap
+    PriorityQueue<LiftCount> heap = new PriorityQueue<>(k + 1, Comparator.comparingLong(LiftCount::getRides));
+    for (int liftID = 1; liftID <= maxLiftID; liftID++) {
+      AtomicIntegerArray row = day.lifts.get(liftID);
+      if (row == null) {
+        continue;
+      }
+      long rides = LiftActivity.sum(row, fromBucket, toBucket);
+      if (rides > 0 && (heap.size() < k || rides > heap.peek().getRides())) {
+        heap.add(new LiftCount(liftID, rides));
+        if (heap.size() > k) {
+          heap.poll();
+        }
+      }
+    }
+    top.addAll(heap);
+    top.sort(Comparator.comparingLong(LiftCount::getRides).reversed().thenComparingInt(LiftCount::getLiftID));
+    return top;
+  }
+
+  public long getVertical(int resortID, int seasonID, int dayID) {
+    LiftActivity day = find(directory, dayKey(resortID, seasonID, dayID));
+    return day == null ? 0 : day.getVertical();
+  }
+
+  /**
+   * Latest ride time seen for the day, where "now" is for live windows; -1 for an unknown day.
+   */
+  public int getLatestMinute(int resortID, int seasonID, int dayID) {
+    LiftActivity day = find(directory, dayKey(resortID, seasonID, dayID));
+    return day == null ? -1 : day.getLatestMinute();
+  }
+
+  public int getBucketMinutes() {
+    return bucketMinutes;
+  }
+
+  public long getDroppedRides() {
+    return droppedRides.get();
+  }
+
+  public synchronized int getDayCount() {
+    return dayCount;
+  }
+
+  /**
+   * Approximate bytes held by the retained days' counters; never above maxBytes.
+   */
+  public synchronized long footprintBytes() {
+    return footprintBytes;
+  }
+
+  public synchronized String memoryReport() {
+    return String.format("RideAnalytics: %d resort-days, %.2f of %.2f MB, %d days evicted, %d rides dropped",
+        dayCount, footprintBytes / (1024.0 * 1024.0), maxBytes / (1024.0 * 1024.0), evictedDays, droppedRides.get());
+  }
+
+  private AtomicIntegerArray series(int resortID, int seasonID, int dayID, int liftID) {
+    if (liftID < 0 || liftID > maxLiftID) {
+      return null;
+    }
+    LiftActivity day = find(directory, dayKey(resortID, seasonID, dayID));
+    return day == null ? null : day.series(liftID == 0 ? -1 : liftID);
+  }
+
+  /**
+   * Creates the day and the lift's row as needed, evicting older days to stay under the cap.
+   * Returns the day, or null if it is too old to make room for.
+   */
+  private synchronized LiftActivity allocate(int resortID, int seasonID, int dayID, int slot) {
+    long key = dayKey(resortID, seasonID, dayID);
+    LiftActivity day = find(directory, key);
+    if (day != null && day.lifts.get(slot) != null) {
+      return day;
+    }
+    long needed = rowBytes + (day == null ? dayBytes : 0);
+    if (footprintBytes + needed > maxBytes && !evictOlderThan(seasonID, dayID, needed)) {
+      return null;
+    }
+    if (day == null) {
+      day = new LiftActivity(key, seasonID, dayID, buckets, maxLiftID);
+      AtomicReferenceArray<LiftActivity> current = directory;
+      if ((dayCount + 1) * 2 > current.length()) {
+        current = rebuild(current, current.length() * 2);
+      }
+      insert(current, day);
+      directory = current;
+      dayCount++;
+    }
+    day.lifts.set(slot, new AtomicIntegerArray(buckets));
+    footprintBytes += needed;
+    return day;
+  }
+
+  // Writers still holding an evicted day keep counting into it until they look it up again; those
+  // counts are simply lost with the day
+  private boolean evictOlderThan(int seasonID, int dayID, long needed) {
+    AtomicReferenceArray<LiftActivity> current = directory;
+    List<LiftActivity> days = new ArrayList<>(dayCount);
+    for (int i = 0; i < current.length(); i++) {
+      LiftActivity day = current.get(i);
+      if (day != null && age(day.seasonID, day.dayID) < age(seasonID, dayID)) {
+        days.add(day);
+      }
+    }
+    days.sort(Comparator.comparingLong(day -> age(day.seasonID, day.dayID)));
+    long freed = 0;
+    int evicted = 0;
+    while (footprintBytes - freed + needed > maxBytes && evicted < days.size()) {
+      freed += footprintOf(days.get(evicted));
+      evicted++;
+    }
+    if (footprintBytes - freed + needed > maxBytes) {
+      return false;
+    }
+    Set<Long> evictedKeys = new HashSet<>();
+    for (LiftActivity day : days.subList(0, evicted)) {
+      evictedKeys.add(day.key);
+    }
+    // Open addressing can't simply clear slots, so the survivors go into a fresh directory
+    AtomicReferenceArray<LiftActivity> rebuilt = new AtomicReferenceArray<>(current.length());
+    for (int i = 0; i < current.length(); i++) {
+      LiftActivity day = current.get(i);
+      if (day != null && !evictedKeys.contains(day.key)) {
+        insert(rebuilt, day);
+      }
+    }
+    directory = rebuilt;
+    dayCount -= evicted;
+    evictedDays += evicted;
+    footprintBytes -= freed;
+    return true;
+  }
+
+  private long footprintOf(LiftActivity day) {
+    long bytes = dayBytes;
+    for (int i = 0; i < day.lifts.length(); i++) {
+      if (day.lifts.get(i) != null) {
+        bytes += rowBytes;
+      }
+    }
+    return bytes;
+  }
+
+  private static long age(int seasonID, int dayID) {
+    return (long) seasonID * 1000 + dayID;
+  }
+
+  // Same packing as SkierRideStore: season IDs are 4-digit years and days are at most 366
+  private static long dayKey(int resortID, int seasonID, int dayID) {
+    return ((long) resortID << 32) | ((long) (seasonID & 0xFFFF) << 16) | (dayID & 0xFFFF);
+  }
+
+  private static int slotOf(long key, int mask) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  private static LiftActivity find(AtomicReferenceArray<LiftActivity> days, long key) {
+    int mask = days.length() - 1;
+    int slot = slotOf(key, mask);
+    LiftActivity day;
+    while ((day = days.get(slot)) != null) {
+      if (day.key == key) {
+        return day;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  private static void insert(AtomicReferenceArray<LiftActivity> days, LiftActivity day) {
+    int mask = days.length() - 1;
+    int slot = slotOf(day.key, mask);
+    while (days.get(slot) != null) {
+      slot = (slot + 1) & mask;
+    }
+    days.set(slot, day);
+  }
+
+  private static AtomicReferenceArray<LiftActivity> rebuild(AtomicReferenceArray<LiftActivity> days, int capacity) {
+    AtomicReferenceArray<LiftActivity> rebuilt = new AtomicReferenceArray<>(capacity);
+    for (int i = 0; i < days.length(); i++) {
+      LiftActivity day = days.get(i);
+      if (day != null) {
+        insert(rebuilt, day);
+      }
+    }
+    return rebuilt;
+  }
+
+  /**
+   * One lift's rides in a window, with the vertical they add up to.
+   */
+  public static final class LiftCount {
+    private final int liftID;
+    private final long rides;
+
+    LiftCount(int liftID, long rides) {
+      this.liftID = liftID;
+      this.rides = rides;
+    }
+
+    public int getLiftID() {
+      return liftID;
+    }
+
+    public long getRides() {
+      return rides;
+    }
+
+    public long getVertical() {
+      return rides * liftID * SkierRideStore.VERTICAL_PER_LIFT_ID;
+    }
+  }
+}
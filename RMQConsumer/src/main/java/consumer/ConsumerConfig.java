@@ -0,0 +1,57 @@
+package consumer;
+
+/**
+ * Consumer settings. Each one defaults to -Dconsumer.&lt;name&gt; (e.g. -Dconsumer.channels=20) and
+ * can be changed on the instance before it is handed to {@link ConsumerService}.
+ */
+public class ConsumerConfig {
+  public String rabbitHost = System.getProperty("consumer.rabbitHost", "172.31.21.217");
+
+  // Engine sizing
+  public int channels = Integer.getInteger("consumer.channels", 40);
+  public int prefetch = Integer.getInteger("consumer.prefetch", 100);
+  public int ackBatch = Integer.getInteger("consumer.ackBatch", 50);
+  public int ackFlushMs = Integer.getInteger("consumer.ackFlushMs", 200);
+  public int drainMs = Integer.getInteger("consumer.drainMs", 10000);
+  public int reportSeconds = Integer.getInteger("consumer.reportSeconds", 60);
+
+  // Write-behind persistence of consumed rides
+  public String dataDir = System.getProperty("consumer.dataDir", "ride-data");
+  public long segmentBytes = Long.getLong("consumer.segmentBytes", 64L * 1024 * 1024);
+  public int flushBatch = Integer.getInteger("consumer.flushBatch", 1000);
+  public int flushMs = Integer.getInteger("consumer.flushMs", 20);
+
+  // Message IDs remembered to drop client retries and redeliveries (2 x 16 bytes per entry)
+  public int dedupEntries = Integer.getInteger("consumer.dedupEntries", 1 << 20);
+  public int dedupWindowSeconds = Integer.getInteger("consumer.dedupWindowSeconds", 300);
+
+  // Read API used by the servlet's GET endpoints; port 0 picks a free one
+  public int queryPort = Integer.getInteger("consumer.queryPort", 8081);
+  public int queryThreads = Integer.getInteger("consumer.queryThreads", 8);
+
+  // Windowed lift analytics: bucket width in minutes of ride time, lifts with their own series,
+  // and the memory cap across retained resort-days (oldest days are evicted past it)
+  public int analyticsBucketMinutes = Integer.getInteger("consumer.analyticsBucketMinutes", 1);
+  public int analyticsMaxLiftID = Integer.getInteger("consumer.analyticsMaxLiftID", 255);
+  public int analyticsMaxMB = Integer.getInteger("consumer.analyticsMaxMB", 64);
+
+  // Queue shards, matching the servlet's shardCount. Each shard has its own store, log,
+  // duplicate filter and engine; one channel per shard keeps each shard's rides in order
+  public int shards = Integer.getInteger("consumer.shards", 1);
+  // 0: all channels on a single shard, otherwise one per shard
+  public int channelsPerShard = Integer.getInteger("consumer.channelsPerShard", 0);
+
+  public int effectiveChannelsPerShard() {
+    if (channelsPerShard > 0) {
+      return channelsPerShard;
+    }
+    return shards == 1 ? channels : 1;
+  }
+
+  /**
+   * Consumer channels across all shards, one delivery thread each.
+   */
+  public int totalChannels() {
+    return shards * effectiveChannelsPerShard();
+  }
+}
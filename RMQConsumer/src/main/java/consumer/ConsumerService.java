@@ -0,0 +1,179 @@
+package consumer;
+
+import analytics.RideAnalytics;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import engine.ConsumerEngine;
+import engine.DuplicateFilter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeoutException;
+import persistence.RideDeliveryHandler;
+import persistence.RideRepository;
+import persistence.SegmentFileRideRepository;
+import persistence.WriteBehindBuffer;
+import query.QueryServer;
+import routing.ShardRouting;
+import store.RideQueries;
+import store.ShardedRideStore;
+import store.SkierRideStore;
+
+/**
+ * The consumer on one broker connection: declares the ride queues, rebuilds each shard's
+ * aggregates from its log, consumes into them and into the lift analytics shared by all shards,
+ * and serves the query API. The connection is
+ * owned by the caller; pass one whose consumer executor has {@link ConsumerConfig#totalChannels()}
+ * threads.
+ */
+public class ConsumerService {
+  private final Connection connection;
+  private final ConsumerConfig config;
+  private final ShardRouting routing;
+  private final RideAnalytics analytics;
+  private Shard[] shards;
+  private RideQueries queries;
+  private QueryServer queryServer;
+
+  public ConsumerService(Connection connection, ConsumerConfig config) {
+    this.connection = connection;
+    this.config = config;
+    this.routing = new ShardRouting(config.shards, ShardRouting.Key.SKIER);
+    this.analytics = new RideAnalytics(config.analyticsBucketMinutes, config.analyticsMaxLiftID,
+        config.analyticsMaxMB * 1024L * 1024L);
+  }
+
+  public void start() throws IOException, TimeoutException {
+    declareTopology();
+
+    int channelsPerShard = config.effectiveChannelsPerShard();
+    shards = new Shard[config.shards];
+    SkierRideStore[] stores = new SkierRideStore[config.shards];
+    for (int i = 0; i < config.shards; i++) {
+      shards[i] = new Shard(routing.queueName(i),
+          config.shards == 1 ? Paths.get(config.dataDir) : Paths.get(config.dataDir, "shard-" + i), channelsPerShard);
+      stores[i] = shards[i].rideStore;
+    }
+    System.out.println("Duplicate filter: " + (shards[0].duplicates.footprintBytes() * config.shards >> 20)
+        + " MB for " + config.dedupEntries + " message IDs per " + config.dedupWindowSeconds + " s window");
+
+    for (Shard shard : shards) {
+      shard.engine.start();
+    }
+    System.out.println(" [*] Waiting for messages from RabbitMQ on " + routing + ", "
+        + channelsPerShard + " channel(s) per shard...");
+
+    queries = config.shards == 1 ? stores[0] : new ShardedRideStore(stores);
+    queryServer = new QueryServer(queries, analytics, config.queryPort, config.queryThreads);
+    queryServer.start();
+    System.out.println(" [*] Serving aggregate queries on port " + queryServer.getPort());
+  }
+
+  // Same declarations as the servlet, so either side can start first
+  private void declareTopology() throws IOException, TimeoutException {
+    for (int i = 0; i < routing.getShardCount(); i++) {
+      String queueName = routing.queueName(i);
+      try (Channel channel = connection.createChannel()) {
+        channel.queueDeclare(queueName, true, false, false, null);
+      } catch (IOException e) {
+        // The server may have declared it with a length limit; consume from it as it is
+        try (Channel channel = connection.createChannel()) {
+          channel.queueDeclarePassive(queueName);
+        }
+      }
+    }
+    if (routing.isSharded()) {
+      try (Channel channel = connection.createChannel()) {
+        channel.exchangeDeclare(routing.exchange(), "direct", true);
+        for (int i = 0; i < routing.getShardCount(); i++) {
+          channel.queueBind(routing.queueName(i), routing.exchange(), routing.routingKey(i));
+        }
+      }
+    }
+  }
+
+  public RideQueries getQueries() {
+    return queries;
+  }
+
+  public RideAnalytics getAnalytics() {
+    return analytics;
+  }
+
+  public int getQueryPort() {
+    return queryServer.getPort();
+  }
+
+  /**
+   * Rides written and applied to the aggregates so far, across shards.
+   */
+  public long getAppliedRides() {
+    long rides = 0;
+    for (Shard shard : shards) {
+      rides += shard.writeBehind.getFlushedRides();
+    }
+    return rides;
+  }
+
+  public void report() {
+    for (Shard shard : shards) {
+      String prefix = config.shards == 1 ? "" : shard.queueName + ": ";
+      System.out.println(prefix + shard.rideStore.memoryReport());
+      System.out.println(prefix + shard.writeBehind.statsReport());
+    }
+    System.out.println(analytics.memoryReport());
+  }
+
+  /**
+   * Stops the query API, drains in-flight deliveries and flushes acks and logs; the
+   * connection is left open for the caller to close.
+   */
+  public void close() {
+    queryServer.stop();
+    for (Shard shard : shards) {
+      shard.engine.stopConsuming(config.drainMs);
+    }
+    for (Shard shard : shards) {
+      shard.writeBehind.close(config.drainMs);
+      shard.engine.close();
+      try {
+        shard.repository.close();
+      } catch (Exception e) {
+        System.err.println("Failed to close " + shard.queueName + " repository: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * One queue shard: rides per skier, vertical and lift counts per resort/season/day for the
+   * keys routed to it, plus the log, duplicate filter and engine feeding them.
+   */
+  private final class Shard {
+    private final String queueName;
+    private final SkierRideStore rideStore = new SkierRideStore();
+    private final RideRepository repository;
+    private final DuplicateFilter duplicates;
+    private final WriteBehindBuffer writeBehind;
+    private final ConsumerEngine engine;
+
+    private Shard(String queueName, Path dataDir, int channels) throws IOException {
+      this.queueName = queueName;
+      // Rebuild aggregates from what was persisted before the last restart
+      repository = new SegmentFileRideRepository(dataDir, config.segmentBytes);
+      repository.replay(this::apply);
+      System.out.println("Replayed " + repository.getRecordCount() + " rides from " + dataDir);
+
+      // Rides are applied to the store and acked only once their batch is on disk
+      duplicates = new DuplicateFilter(Math.max(1, config.dedupEntries / config.shards),
+          config.dedupWindowSeconds * 1000L);
+      writeBehind = new WriteBehindBuffer(repository, this::apply, config.flushBatch, config.flushMs, channels * config.prefetch * 2, duplicates);
+      engine = new ConsumerEngine(connection, queueName, channels, config.prefetch,
+          config.ackBatch, config.ackFlushMs, new RideDeliveryHandler(writeBehind, duplicates));
+    }
+
+    private void apply(int resortID, int seasonID, int dayID, int skierID, int time, int liftID) {
+      rideStore.recordRide(resortID, seasonID, dayID, skierID, liftID);
+      analytics.recordRide(resortID, seasonID, dayID, time, liftID);
+    }
+  }
+}
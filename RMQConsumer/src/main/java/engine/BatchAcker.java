@@ -0,0 +1,63 @@
+package engine;
+
+import com.rabbitmq.client.Channel;
+import java.io.IOException;
+
+/**
+ * Coalesces acknowledgements for one channel into a single basicAck with multiple=true.
+ *
+ * Delivery tags must be acked in the order they were delivered on the channel: acking tag N
+ * settles every earlier tag as well. Safe to call from any thread.
+ */
+public class BatchAcker {
+  private final Channel channel;
+  private final int batchSize;
+
+  private long lastTag;
+  private int pending;
+
+  public BatchAcker(Channel channel, int batchSize) {
+    this.channel = channel;
+    this.batchSize = batchSize;
+  }
+
+  public synchronized void ack(long deliveryTag) throws IOException {
+    lastTag = deliveryTag;
+    pending++;
+    if (pending >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Negatively acknowledges a single delivery, flushing earlier acks first so they are not lost.
+   */
+  public synchronized void nack(long deliveryTag, boolean requeue) throws IOException {
+    flush();
+    channel.basicNack(deliveryTag, false, requeue);
+  }
+
+  /**
+   * Rejects a single delivery without requeueing it, flushing earlier acks first so they are
+   * not lost and a later multiple-ack cannot settle the rejected tag a second time.
+   */
+  public synchronized void reject(long deliveryTag) throws IOException {
+    flush();
+    channel.basicReject(deliveryTag, false);
+  }
+
+  /**
+   * Sends the outstanding acknowledgement, if any.
+   */
+  public synchronized void flush() throws IOException {
+    if (pending == 0 || !channel.isOpen()) {
+      return;
+    }
+    channel.basicAck(lastTag, true);
+    pending = 0;
+  }
+
+  public Channel getChannel() {
+    return channel;
+  }
+}
@@ -0,0 +1,146 @@
+package engine;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs N consumers on their own channels against one queue.
+ *
+ * Deliveries are dispatched on the connection's consumer executor (pass a pool to
+ * ConnectionFactory.newConnection), so each channel is processed serially but channels run in
+ * parallel. Every channel has its own prefetch and a {@link BatchAcker}; a timer flushes
+ * partially filled ack batches so quiet periods don't leave messages unacknowledged.
+ */
+public class ConsumerEngine {
+  private final Connection connection;
+  private final String queueName;
+  private final int consumerCount;
+  private final int prefetch;
+  private final int ackBatchSize;
+  private final long ackFlushMillis;
+  private final DeliveryHandler handler;
+
+  private final List<Channel> channels = new ArrayList<>();
+  private final List<String> consumerTags = new ArrayList<>();
+  private final List<BatchAcker> ackers = new ArrayList<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private ScheduledExecutorService ackFlusher;
+
+  public ConsumerEngine(Connection connection, String queueName, int consumerCount, int prefetch,
+      int ackBatchSize, long ackFlushMillis, DeliveryHandler handler) {
+    this.connection = connection;
+    this.queueName = queueName;
+    this.consumerCount = consumerCount;
+    this.prefetch = prefetch;
+    this.ackBatchSize = ackBatchSize;
+    this.ackFlushMillis = ackFlushMillis;
+    this.handler = handler;
+  }
+
+  public synchronized void start() throws IOException {
+    for (int i = 0; i < consumerCount; i++) {
+      Channel channel = connection.createChannel();
+      channel.basicQos(prefetch);
+      BatchAcker acker = new BatchAcker(channel, ackBatchSize);
+
+      String tag = channel.basicConsume(queueName, false, (consumerTag, delivery) -> {
+        inFlight.incrementAndGet();
+        try {
+          handler.handle(delivery, acker);
+        } catch (Exception e) {
+          // Drop rather than requeue so a bad message can't loop forever
+          System.err.println("Rejecting message after handler failure: " + e.getMessage());
+          acker.reject(delivery.getEnvelope().getDeliveryTag());
+        } finally {
+          inFlight.decrementAndGet();
+        }
+      }, consumerTag -> {});
+
+      channels.add(channel);
+      ackers.add(acker);
+      consumerTags.add(tag);
+    }
+
+    ackFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "ack-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ackFlusher.scheduleWithFixedDelay(this::flushAcks, ackFlushMillis, ackFlushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void flushAcks() {
+    for (BatchAcker acker : ackers) {
+      try {
+        acker.flush();
+      } catch (IOException e) {
+        System.err.println("Failed to flush acks: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Stops taking new deliveries, waits up to timeoutMillis for in-flight ones to finish,
+   * flushes outstanding acks and closes the channels. Unacked prefetched messages are
+   * returned to the queue by the broker when the channels close.
+   */
+  public synchronized void shutdown(long timeoutMillis) {
+    stopConsuming(timeoutMillis);
+    close();
+  }
+
+  /**
+   * Cancels the consumers and waits up to timeoutMillis for in-flight handlers to return.
+   * Channels stay open so work handed off by the handlers can still be acked.
+   */
+  public synchronized void stopConsuming(long timeoutMillis) {
+    for (int i = 0; i < channels.size(); i++) {
+      try {
+        channels.get(i).basicCancel(consumerTags.get(i));
+      } catch (IOException e) {
+        System.err.println("Failed to cancel consumer: " + e.getMessage());
+      }
+    }
+
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+  }
+
+  /**
+   * Flushes outstanding acks and closes the channels.
+   */
+  public synchronized void close() {
+    if (ackFlusher != null) {
+      ackFlusher.shutdownNow();
+    }
+    flushAcks();
+
+    for (Channel channel : channels) {
+      try {
+        if (channel.isOpen()) {
+          channel.close();
+        }
+      } catch (Exception e) {
+        System.err.println("Failed to close channel: " + e.getMessage());
+      }
+    }
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+}
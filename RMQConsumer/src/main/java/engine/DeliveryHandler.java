@@ -0,0 +1,12 @@
+package engine;
+
+import com.rabbitmq.client.Delivery;
+
+/**
+ * Processes one delivery. The handler owns the acknowledgement: it calls
+ * {@link BatchAcker#ack(long)} once the message is done with, either straight away or later
+ * from another thread, as long as tags for a channel are acked in delivery order.
+ */
+public interface DeliveryHandler {
+  void handle(Delivery delivery, BatchAcker acker) throws Exception;
+}
@@ -0,0 +1,172 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Memory-bounded, time-windowed set of message IDs seen recently, used to drop client retries
+ * and broker redeliveries of rides that were already counted.
+ *
+ * IDs are reduced to 64-bit fingerprints and kept in open-addressing long[] tables, so a check
+ * hashes the ID's chars in place and allocates nothing. Each stripe has a current and a previous
+ * table: new IDs go into the current one, lookups check both, and the tables rotate when the
+ * window elapses or the current one is half full. An ID is therefore remembered for at least
+ * one window (or until maxEntries newer IDs have arrived, whichever is sooner) and at most two.
+ * Memory is fixed at construction: {@link #footprintBytes()}.
+ *
+ * Fingerprint collisions would drop a distinct ride; at 64 bits and a few million IDs in the
+ * window the odds are around one in a million per window.
+ */
+public class DuplicateFilter {
+  private static final long EMPTY = 0;
+  // Left by forget() so probes for keys placed after it still find them
+  private static final long REMOVED = 1;
+  private static final int STRIPES = 64;
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private final long windowNanos;
+
+  /**
+   * @param maxEntries IDs remembered per window across all stripes
+   */
+  public DuplicateFilter(int maxEntries, long windowMillis) {
+    this.windowNanos = windowMillis * 1_000_000L;
+    // Half-full tables keep linear probes short
+    int perStripe = Math.max(16, Integer.highestOneBit(Math.max(1, maxEntries / STRIPES) * 2 - 1) * 2);
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(perStripe, System.nanoTime());
+    }
+  }
+
+  /**
+   * Records the ID and returns true the first time it is seen within the window, false for a
+   * duplicate. A null ID (message without a messageId) is always treated as new.
+   */
+  public boolean firstSeen(String messageId) {
+    return messageId == null || markIfNew(fingerprint(messageId));
+  }
+
+  public boolean markIfNew(long key) {
+    Stripe stripe = stripes[(int) (key >>> 58)];
+    synchronized (stripe) {
+      long now = System.nanoTime();
+      if (now - stripe.rotatedAt >= windowNanos || stripe.used >= stripe.current.length / 2) {
+        stripe.rotate(now);
+      }
+      if (contains(stripe.previous, key)) {
+        return false;
+      }
+      return insert(stripe, key);
+    }
+  }
+
+  /**
+   * Removes an ID whose ride was handed back to the broker without being counted, so the
+   * redelivery is processed instead of dropped.
+   */
+  public void forget(String messageId) {
+    if (messageId != null) {
+      forget(fingerprint(messageId));
+    }
+  }
+
+  public void forget(long key) {
+    Stripe stripe = stripes[(int) (key >>> 58)];
+    synchronized (stripe) {
+      remove(stripe.current, key);
+      remove(stripe.previous, key);
+    }
+  }
+
+  public long footprintBytes() {
+    long bytes = 0;
+    for (Stripe stripe : stripes) {
+      bytes += 16L * stripe.current.length;
+    }
+    return bytes;
+  }
+
+  /**
+   * 64-bit FNV-1a over the UTF-16 chars, finished with the murmur3 mixer; 0 and 1 are reserved
+   * for empty and removed slots.
+   */
+  public static long fingerprint(String id) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < id.length(); i++) {
+      h ^= id.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h == EMPTY || h == REMOVED ? h + 2 : h;
+  }
+
+  private static boolean contains(long[] table, long key) {
+    int mask = table.length - 1;
+    for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+      long slot = table[i];
+      if (slot == key) {
+        return true;
+      }
+      if (slot == EMPTY) {
+        return false;
+      }
+    }
+  }
+
+  private static boolean insert(Stripe stripe, long key) {
+    long[] table = stripe.current;
+    int mask = table.length - 1;
+    for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+      long slot = table[i];
+      if (slot == key) {
+        return false;
+      }
+      if (slot == EMPTY) {
+        table[i] = key;
+        stripe.used++;
+        return true;
+      }
+    }
+  }
+
+  private static void remove(long[] table, long key) {
+    int mask = table.length - 1;
+    for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+      long slot = table[i];
+      if (slot == key) {
+        table[i] = REMOVED;
+        return;
+      }
+      if (slot == EMPTY) {
+        return;
+      }
+    }
+  }
+
+  private static final class Stripe {
+    private long[] current;
+    private long[] previous;
+    // Occupied slots in current, counting REMOVED ones, which are only cleared by rotation
+    private int used;
+    private long rotatedAt;
+
+    private Stripe(int capacity, long now) {
+      current = new long[capacity];
+      previous = new long[capacity];
+      rotatedAt = now;
+    }
+
+    // The oldest table is cleared and reused, so rotation allocates nothing either
+    private void rotate(long now) {
+      long[] oldest = previous;
+      previous = current;
+      Arrays.fill(oldest, EMPTY);
+      current = oldest;
+      used = 0;
+      rotatedAt = now;
+    }
+  }
+}
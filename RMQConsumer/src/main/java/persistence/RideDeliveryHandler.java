@@ -0,0 +1,56 @@
+package persistence;
+
+import codec.LiftRideCodec;
+import codec.LiftRideMessage;
+import com.rabbitmq.client.Delivery;
+import engine.BatchAcker;
+import engine.DeliveryHandler;
+import engine.DuplicateFilter;
+
+/**
+ * Decodes lift ride deliveries and hands them to the {@link WriteBehindBuffer}, dropping any
+ * whose messageId (the client's Idempotency-Key, or an ID assigned by the servlet) was already
+ * seen: client retries of a ride that did get published, and broker redeliveries of rides that
+ * were stored but whose ack was lost.
+ */
+public class RideDeliveryHandler implements DeliveryHandler {
+  private final WriteBehindBuffer writeBehind;
+  private final DuplicateFilter duplicates;
+
+  /**
+   * @param duplicates the filter the write-behind buffer forgets failed rides in, or null to
+   *     count every delivery
+   */
+  public RideDeliveryHandler(WriteBehindBuffer writeBehind, DuplicateFilter duplicates) {
+    this.writeBehind = writeBehind;
+    this.duplicates = duplicates;
+  }
+
+  @Override
+  public void handle(Delivery delivery, BatchAcker acker) throws Exception {
+    // Binary or JSON, depending on the content type the servlet published with. Invalid
+    // messages throw, and the engine rejects them without requeueing.
+    LiftRideMessage ride = LiftRideCodec.decode(delivery.getProperties().getContentType(), delivery.getBody(),
+        new LiftRideMessage());
+    long tag = delivery.getEnvelope().getDeliveryTag();
+
+    String messageId = delivery.getProperties().getMessageId();
+    long key = duplicates == null || messageId == null ? 0 : DuplicateFilter.fingerprint(messageId);
+    if (key != 0 && !duplicates.markIfNew(key)) {
+      writeBehind.submitDuplicate(acker, tag);
+      return;
+    }
+    try {
+      writeBehind.submit(ride.getResortID(), ride.getSeasonID(), ride.getDayID(), ride.getSkierID(),
+          ride.getTime(), ride.getLiftID(), acker, tag, key);
+    } catch (InterruptedException e) {
+      // Never queued: unmark it and requeue, as for a failed flush, or the redelivery would be
+      // dropped as a duplicate and the ride lost
+      if (key != 0) {
+        duplicates.forget(key);
+      }
+      acker.nack(tag, true);
+      Thread.currentThread().interrupt();
+    }
+  }
+}
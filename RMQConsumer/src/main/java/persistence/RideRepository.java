@@ -0,0 +1,43 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Durable storage for consumed lift rides.
+ *
+ * Rides are written as fixed-size records in the {@link codec.LiftRideCodec} binary layout.
+ * {@link #write} may buffer; nothing is guaranteed to survive a crash until {@link #sync}
+ * returns.
+ */
+public interface RideRepository extends Closeable {
+
+  /**
+   * Appends count records of LiftRideCodec.BINARY_LENGTH bytes each, starting at records[0].
+   */
+  void write(byte[] records, int count) throws IOException;
+
+  /**
+   * Makes every record written so far durable.
+   */
+  void sync() throws IOException;
+
+  /**
+   * Discards everything stored after the first recordCount records, including bytes of a write
+   * that failed partway. Used to roll back a batch whose write or sync failed, so it is known
+   * not to be stored before it is handed back to the broker.
+   */
+  void truncate(long recordCount) throws IOException;
+
+  /**
+   * Feeds every stored record, oldest first, to the visitor. Used to rebuild in-memory
+   * aggregates on startup.
+   */
+  void replay(RideVisitor visitor) throws IOException;
+
+  long getRecordCount();
+
+  interface RideVisitor {
+    void visit(int resortID, int seasonID, int dayID, int skierID, int time, int liftID);
+  }
+}
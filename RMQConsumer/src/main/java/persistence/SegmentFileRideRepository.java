@@ -0,0 +1,187 @@
+package persistence;
+
+import codec.LiftRideCodec;
+import codec.LiftRideMessage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only segment files in a local directory.
+ *
+ * Records go to the current segment ({@code rides-000001.seg}, ...) until it reaches the
+ * configured size, then a new segment is started. A torn record at the end of the last segment
+ * (crash mid-write) is ignored on replay and overwritten by the next append.
+ */
+public class SegmentFileRideRepository implements RideRepository {
+  private static final String PREFIX = "rides-";
+  private static final String SUFFIX = ".seg";
+  private static final int RECORD = LiftRideCodec.BINARY_LENGTH;
+
+  private final Path directory;
+  private final long segmentBytes;
+
+  private FileChannel current;
+  private int currentIndex;
+  private long currentSize;
+  private long recordCount;
+
+  public SegmentFileRideRepository(Path directory, long segmentBytes) throws IOException {
+    this.directory = directory;
+    // Keep segments a whole number of records so records never straddle two files
+    this.segmentBytes = Math.max(RECORD, segmentBytes - segmentBytes % RECORD);
+    Files.createDirectories(directory);
+
+    List<Path> segments = segments();
+    for (Path segment : segments) {
+      recordCount += Files.size(segment) / RECORD;
+    }
+    if (segments.isEmpty()) {
+      openSegment(1);
+    } else {
+      Path last = segments.get(segments.size() - 1);
+      openSegment(indexOf(last));
+    }
+  }
+
+  private void openSegment(int index) throws IOException {
+    if (current != null) {
+      current.force(false);
+      current.close();
+    }
+    currentIndex = index;
+    current = FileChannel.open(directory.resolve(segmentName(index)),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+    // Drop a partial trailing record left by a crash
+    currentSize = current.size() - current.size() % RECORD;
+    current.truncate(currentSize);
+    current.position(currentSize);
+  }
+
+  @Override
+  public synchronized void write(byte[] records, int count) throws IOException {
+    int offset = 0;
+    int remaining = count * RECORD;
+    while (remaining > 0) {
+      if (currentSize >= segmentBytes) {
+        openSegment(currentIndex + 1);
+      }
+      int chunk = (int) Math.min(remaining, segmentBytes - currentSize);
+      ByteBuffer buffer = ByteBuffer.wrap(records, offset, chunk);
+      while (buffer.hasRemaining()) {
+        current.write(buffer);
+      }
+      currentSize += chunk;
+      offset += chunk;
+      remaining -= chunk;
+    }
+    recordCount += count;
+  }
+
+  @Override
+  public synchronized void sync() throws IOException {
+    current.force(false);
+  }
+
+  @Override
+  public synchronized void truncate(long keepRecords) throws IOException {
+    if (keepRecords < 0 || keepRecords > recordCount) {
+      throw new IllegalArgumentException("Cannot truncate " + recordCount + " records to " + keepRecords);
+    }
+    if (current != null) {
+      current.close();
+      current = null;
+    }
+    // Counted from the files rather than recordCount, which a failed write never added to
+    List<Path> segments = segments();
+    long total = 0;
+    for (Path segment : segments) {
+      total += Files.size(segment) / RECORD;
+    }
+    int keepIndex = segments.isEmpty() ? 1 : indexOf(segments.get(0));
+    for (int i = segments.size() - 1; i >= 0; i--) {
+      Path segment = segments.get(i);
+      long records = Files.size(segment) / RECORD;
+      if (i > 0 && total - records >= keepRecords) {
+        // A segment started by the discarded records
+        Files.delete(segment);
+        total -= records;
+        continue;
+      }
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+        channel.truncate((keepRecords - (total - records)) * RECORD);
+        channel.force(true);
+      }
+      keepIndex = indexOf(segment);
+      break;
+    }
+    recordCount = keepRecords;
+    openSegment(keepIndex);
+  }
+
+  @Override
+  public synchronized void replay(RideVisitor visitor) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(RECORD * 4096);
+    byte[] record = new byte[RECORD];
+    LiftRideMessage ride = new LiftRideMessage();
+    for (Path segment : segments()) {
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+        buffer.clear();
+        while (channel.read(buffer) != -1 || buffer.position() > 0) {
+          buffer.flip();
+          if (buffer.remaining() < RECORD) {
+            break;
+          }
+          while (buffer.remaining() >= RECORD) {
+            buffer.get(record);
+            LiftRideCodec.decodeBinary(record, 0, RECORD, ride);
+            visitor.visit(ride.getResortID(), ride.getSeasonID(), ride.getDayID(),
+                ride.getSkierID(), ride.getTime(), ride.getLiftID());
+          }
+          buffer.compact();
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized long getRecordCount() {
+    return recordCount;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (current != null) {
+      current.force(false);
+      current.close();
+      current = null;
+    }
+  }
+
+  private List<Path> segments() throws IOException {
+    List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+      for (Path path : stream) {
+        segments.add(path);
+      }
+    }
+    // Zero-padded names sort in segment order
+    segments.sort(null);
+    return segments;
+  }
+
+  private static String segmentName(int index) {
+    return String.format("%s%06d%s", PREFIX, index, SUFFIX);
+  }
+
+  private static int indexOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+  }
+}
@@ -0,0 +1,269 @@
+package persistence;
+
+import codec.LiftRideCodec;
+import engine.BatchAcker;
+import engine.DuplicateFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decouples AMQP delivery threads from disk writes.
+ *
+ * Delivery threads only enqueue. A single flusher thread drains up to batchSize rides, writes
+ * them to the {@link RideRepository} in one call, syncs, hands them all to the applier (in-memory
+ * aggregates) and only then acks their deliveries. A batch whose write or sync fails is truncated
+ * off the repository before it is requeued, so a ride is never both stored and redelivered. One FIFO flusher keeps acks for each channel
+ * in delivery order, which {@link BatchAcker} relies on; for the same reason duplicates are
+ * queued as ack-only entries rather than acked on the delivery thread.
+ */
+public class WriteBehindBuffer {
+  private static final int RECORD = LiftRideCodec.BINARY_LENGTH;
+
+  private final RideRepository repository;
+  private final RideRepository.RideVisitor applier;
+  private final int batchSize;
+  private final long flushMillis;
+  private final BlockingQueue<PendingRide> queue;
+  private final DuplicateFilter duplicates;
+  private final Thread flusher;
+  private volatile boolean running = true;
+
+  private long flushedBatches;
+  private long flushedRides;
+  private long droppedDuplicates;
+
+  /**
+   * @param capacity should exceed consumer channels * prefetch so enqueueing never blocks
+   */
+  public WriteBehindBuffer(RideRepository repository, RideRepository.RideVisitor applier,
+      int batchSize, long flushMillis, int capacity) {
+    this(repository, applier, batchSize, flushMillis, capacity, null);
+  }
+
+  /**
+   * @param duplicates filter the rides' message keys were recorded in; keys of rides handed
+   *     back to the broker after a failed flush are forgotten so their redelivery counts
+   */
+  public WriteBehindBuffer(RideRepository repository, RideRepository.RideVisitor applier,
+      int batchSize, long flushMillis, int capacity, DuplicateFilter duplicates) {
+    this.repository = repository;
+    this.applier = applier;
+    this.batchSize = batchSize;
+    this.flushMillis = flushMillis;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.duplicates = duplicates;
+    this.flusher = new Thread(this::flushLoop, "write-behind-flusher");
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+  }
+
+  public void submit(int resortID, int seasonID, int dayID, int skierID, int time, int liftID,
+      BatchAcker acker, long deliveryTag) throws InterruptedException {
+    submit(resortID, seasonID, dayID, skierID, time, liftID, acker, deliveryTag, 0);
+  }
+
+  /**
+   * @param messageKey the ride's {@link DuplicateFilter} fingerprint, or 0 if it has none
+   */
+  public void submit(int resortID, int seasonID, int dayID, int skierID, int time, int liftID,
+      BatchAcker acker, long deliveryTag, long messageKey) throws InterruptedException {
+    queue.put(new PendingRide(resortID, seasonID, dayID, skierID, time, liftID, acker, deliveryTag, messageKey, false));
+  }
+
+  /**
+   * Acks a duplicate delivery in its place in the channel's ack order, without storing it.
+   */
+  public void submitDuplicate(BatchAcker acker, long deliveryTag) throws InterruptedException {
+    queue.put(new PendingRide(0, 0, 0, 0, 0, 0, acker, deliveryTag, 0, true));
+  }
+
+  private void flushLoop() {
+    List<PendingRide> batch = new ArrayList<>(batchSize);
+    byte[] records = new byte[batchSize * RECORD];
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingRide first = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        flush(batch, records);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable t) {
+        // flush() settles what it can itself; this only keeps the flusher alive. Deliveries it
+        // didn't get to stay unacked until their channel closes and the broker redelivers them.
+        System.err.println("Write-behind flush of " + batch.size() + " rides failed: " + t);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void flush(List<PendingRide> batch, byte[] records) {
+    int count = 0;
+    for (PendingRide ride : batch) {
+      if (!ride.duplicate) {
+        LiftRideCodec.encodeBinary(records, count++ * RECORD, ride.resortID, ride.seasonID, ride.dayID,
+            ride.skierID, ride.time, ride.liftID);
+      }
+    }
+    if (count > 0 && !persist(records, count)) {
+      forgetKeys(batch);
+      settleRolledBack(batch);
+      return;
+    }
+
+    // Durable from here on: every ride is applied before any ack, so a failed ack can't leave a
+    // stored ride uncounted, and its redelivery is dropped by the duplicate filter
+    for (PendingRide ride : batch) {
+      if (!ride.duplicate) {
+        try {
+          applier.visit(ride.resortID, ride.seasonID, ride.dayID, ride.skierID, ride.time, ride.liftID);
+        } catch (Throwable t) {
+          System.err.println("Failed to apply a stored ride (counted again on replay): " + t);
+        }
+      }
+    }
+    synchronized (this) {
+      flushedBatches++;
+      flushedRides += count;
+      droppedDuplicates += batch.size() - count;
+    }
+    ackAll(batch);
+  }
+
+  /**
+   * Writes and syncs the batch. Returns false if that failed and the batch was rolled back, so
+   * none of it is stored; true once it is durable, or when a rollback also failed and it can't
+   * be known, in which case the batch is treated as stored rather than risk counting it twice.
+   */
+  private boolean persist(byte[] records, int count) {
+    long before = repository.getRecordCount();
+    try {
+      repository.write(records, count);
+      repository.sync();
+      return true;
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Write-behind write of " + count + " rides failed: " + e.getMessage());
+    }
+    try {
+      repository.truncate(before);
+      return false;
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Rolling back " + count + " rides failed, keeping them as stored: " + e.getMessage());
+      return true;
+    }
+  }
+
+  // Per channel, in delivery order: once an ack fails its channel is gone, and the broker
+  // redelivers the rest of that channel's rides, which the duplicate filter then drops
+  private static void ackAll(List<PendingRide> batch) {
+    Set<BatchAcker> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (PendingRide ride : batch) {
+      if (failed.contains(ride.acker)) {
+        continue;
+      }
+      try {
+        ride.acker.ack(ride.deliveryTag);
+      } catch (IOException | RuntimeException e) {
+        System.err.println("Write-behind ack failed: " + e.getMessage());
+        failed.add(ride.acker);
+      }
+    }
+  }
+
+  // A duplicate's key belongs to the copy that was counted, so only the failed rides' keys go
+  private void forgetKeys(List<PendingRide> batch) {
+    if (duplicates == null) {
+      return;
+    }
+    for (PendingRide ride : batch) {
+      if (!ride.duplicate && ride.messageKey != 0) {
+        duplicates.forget(ride.messageKey);
+      }
+    }
+  }
+
+  // Hand the rolled-back rides back to the broker so later multiple-acks can't cover them;
+  // duplicates were never going to be stored and are acked as usual
+  private static void settleRolledBack(List<PendingRide> batch) {
+    for (PendingRide ride : batch) {
+      try {
+        if (ride.duplicate) {
+          ride.acker.ack(ride.deliveryTag);
+        } else {
+          ride.acker.nack(ride.deliveryTag, true);
+        }
+      } catch (IOException | RuntimeException e) {
+        System.err.println("Failed to settle delivery " + ride.deliveryTag + ": " + e.getMessage());
+      }
+    }
+  }
+
+  public synchronized long getFlushedRides() {
+    return flushedRides;
+  }
+
+  public synchronized long getDroppedDuplicates() {
+    return droppedDuplicates;
+  }
+
+  public int getQueuedCount() {
+    return queue.size();
+  }
+
+  public synchronized String statsReport() {
+    return String.format("WriteBehindBuffer: %d rides in %d batches (%.1f rides/batch), %d duplicates dropped, %d queued",
+        flushedRides, flushedBatches, flushedBatches == 0 ? 0.0 : flushedRides / (double) flushedBatches,
+        droppedDuplicates, queue.size());
+  }
+
+  /**
+   * Flushes everything already queued, then stops the flusher.
+   */
+  public void close(long timeoutMillis) {
+    running = false;
+    try {
+      flusher.join(timeoutMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class PendingRide {
+    private final int resortID;
+    private final int seasonID;
+    private final int dayID;
+    private final int skierID;
+    private final int time;
+    private final int liftID;
+    private final BatchAcker acker;
+    private final long deliveryTag;
+    private final long messageKey;
+    private final boolean duplicate;
+
+    private PendingRide(int resortID, int seasonID, int dayID, int skierID, int time, int liftID,
+        BatchAcker acker, long deliveryTag, long messageKey, boolean duplicate) {
+      this.resortID = resortID;
+      this.seasonID = seasonID;
+      this.dayID = dayID;
+      this.skierID = skierID;
+      this.time = time;
+      this.liftID = liftID;
+      this.acker = acker;
+      this.deliveryTag = deliveryTag;
+      this.messageKey = messageKey;
+      this.duplicate = duplicate;
+    }
+  }
+}
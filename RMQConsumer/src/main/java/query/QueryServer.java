@@ -0,0 +1,201 @@
+package query;
+
+import analytics.RideAnalytics;
+import analytics.RideAnalytics.LiftCount;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import store.RideQueries;
+import store.SkierRideStore;
+
+/**
+ * Read-only HTTP view of the consumer's aggregates, queried by the servlet's GET handlers.
+ *
+ * <pre>
+ * GET /skiers/{resortID}/seasons/{seasonID}/days/{dayID}/skiers/{skierID} -> {"rides":n,"vertical":n}
+ * GET /resorts/{resortID}/seasons/{seasonID}/day/{dayID}/skiers           -> {"numSkiers":n}
+ * </pre>
+ * Unknown skiers and empty days answer 404 so the servlet can cache the miss.
+ *
+ * Lift analytics for operations, with windows in minutes of ride time:
+ * <pre>
+ * GET /analytics/{resortID}/seasons/{seasonID}/days/{dayID}?window=60&amp;top=5
+ *     -> day rides and vertical, plus rides per minute and the top lifts over the last window
+ *        minutes up to the latest ride (or up to ?end=minute)
+ * GET /analytics/{resortID}/seasons/{seasonID}/days/{dayID}/lifts/{liftID}?window=15
+ *     -> the lift's rides and vertical, and its rides in each tumbling window of the day
+ * </pre>
+ */
+public class QueryServer {
+  private final RideQueries store;
+  private final RideAnalytics analytics;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  public QueryServer(RideQueries store, RideAnalytics analytics, int port, int threads) throws IOException {
+    this.store = store;
+    this.analytics = analytics;
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    this.executor = Executors.newFixedThreadPool(threads);
+    server.setExecutor(executor);
+    server.createContext("/skiers/", this::handleSkierDay);
+    server.createContext("/resorts/", this::handleResortDay);
+    server.createContext("/analytics/", this::handleAnalytics);
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * The bound port, which differs from the requested one when that was 0.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public void stop() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  private void handleSkierDay(HttpExchange exchange) throws IOException {
+    // "", "skiers", resort, "seasons", season, "days", day, "skiers", skier
+    String[] parts = exchange.getRequestURI().getPath().split("/");
+    int[] ids = parseIds(parts, 9, 2, 4, 6, 8);
+    if (ids == null) {
+      respond(exchange, 400, "{\"error\":\"Invalid URL path format\"}");
+      return;
+    }
+    int rides = store.getRides(ids[0], ids[1], ids[2], ids[3]);
+    if (rides == 0) {
+      respond(exchange, 404, "{\"error\":\"Skier not found\"}");
+      return;
+    }
+    long vertical = store.getVertical(ids[0], ids[1], ids[2], ids[3]);
+    respond(exchange, 200, "{\"rides\":" + rides + ",\"vertical\":" + vertical + "}");
+  }
+
+  private void handleResortDay(HttpExchange exchange) throws IOException {
+    // "", "resorts", resort, "seasons", season, "day", day, "skiers"
+    String[] parts = exchange.getRequestURI().getPath().split("/");
+    int[] ids = parseIds(parts, 8, 2, 4, 6);
+    if (ids == null) {
+      respond(exchange, 400, "{\"error\":\"Invalid URL path format\"}");
+      return;
+    }
+    int skiers = store.getUniqueSkiers(ids[0], ids[1], ids[2]);
+    if (skiers == 0) {
+      respond(exchange, 404, "{\"error\":\"Resort day not found\"}");
+      return;
+    }
+    respond(exchange, 200, "{\"numSkiers\":" + skiers + "}");
+  }
+
+  private void handleAnalytics(HttpExchange exchange) throws IOException {
+    // "", "analytics", resort, "seasons", season, "days", day[, "lifts", lift]
+    String[] parts = exchange.getRequestURI().getPath().split("/");
+    int[] ids = parts.length == 9 ? parseIds(parts, 9, 2, 4, 6, 8) : parseIds(parts, 7, 2, 4, 6);
+    String query = exchange.getRequestURI().getRawQuery();
+    int window = queryParam(query, "window", ids != null && ids.length == 4 ? 15 : 60);
+    int top = queryParam(query, "top", 5);
+    if (ids == null || window < 1 || top < 0) {
+      respond(exchange, 400, "{\"error\":\"Invalid URL path format\"}");
+      return;
+    }
+    int latest = analytics.getLatestMinute(ids[0], ids[1], ids[2]);
+    if (latest < 0) {
+      respond(exchange, 404, "{\"error\":\"Resort day not found\"}");
+      return;
+    }
+
+    StringBuilder json = new StringBuilder(256);
+    if (ids.length == 4) {
+      long rides = analytics.getRides(ids[0], ids[1], ids[2], ids[3], 0, RideAnalytics.MAX_MINUTE);
+      json.append("{\"liftID\":").append(ids[3])
+          .append(",\"rides\":").append(rides)
+          .append(",\"vertical\":").append(rides * ids[3] * SkierRideStore.VERTICAL_PER_LIFT_ID)
+          .append(",\"window\":").append(window)
+          .append(",\"ridesPerWindow\":[");
+      long[] windows = analytics.getWindowedRides(ids[0], ids[1], ids[2], ids[3], window);
+      for (int i = 0; i < windows.length; i++) {
+        json.append(i == 0 ? "" : ",").append(windows[i]);
+      }
+      respond(exchange, 200, json.append("]}").toString());
+      return;
+    }
+
+    int end = queryParam(query, "end", latest);
+    if (end < 0) {
+      respond(exchange, 400, "{\"error\":\"Invalid end minute\"}");
+      return;
+    }
+    int start = end - window + 1;
+    long windowRides = analytics.getRides(ids[0], ids[1], ids[2], 0, start, end);
+    json.append("{\"rides\":").append(analytics.getRides(ids[0], ids[1], ids[2]))
+        .append(",\"vertical\":").append(analytics.getVertical(ids[0], ids[1], ids[2]))
+        .append(",\"latestMinute\":").append(latest)
+        .append(",\"window\":").append(window)
+        .append(",\"end\":").append(end)
+        .append(",\"ridesInWindow\":").append(windowRides)
+        .append(",\"ridesPerMinute\":").append(Math.round(windowRides * 100.0 / window) / 100.0)
+        .append(",\"topLifts\":[");
+    List<LiftCount> lifts = analytics.getTopLifts(ids[0], ids[1], ids[2], top, start, end);
+    for (int i = 0; i < lifts.size(); i++) {
+      LiftCount lift = lifts.get(i);
+      json.append(i == 0 ? "{" : ",{")
+          .append("\"liftID\":").append(lift.getLiftID())
+          .append(",\"rides\":").append(lift.getRides())
+          .append(",\"vertical\":").append(lift.getVertical())
+          .append('}');
+    }
+    respond(exchange, 200, json.append("]}").toString());
+  }
+
+  // Integer query parameter, or the default when it is absent; MIN_VALUE when it isn't a number
+  private static int queryParam(String query, String name, int defaultValue) {
+    if (query == null) {
+      return defaultValue;
+    }
+    for (String pair : query.split("&")) {
+      if (pair.startsWith(name + "=")) {
+        try {
+          return Integer.parseInt(pair.substring(name.length() + 1));
+        } catch (NumberFormatException e) {
+          return Integer.MIN_VALUE;
+        }
+      }
+    }
+    return defaultValue;
+  }
+
+  private static int[] parseIds(String[] parts, int expectedLength, int... positions) {
+    if (parts.length != expectedLength) {
+      return null;
+    }
+    int[] ids = new int[positions.length];
+    try {
+      for (int i = 0; i < positions.length; i++) {
+        ids[i] = Integer.parseInt(parts[positions[i]]);
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return ids;
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package store;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ride counters for one (resortID, seasonID, dayID).
+ *
+ * Per-skier rides and vertical live in lock-striped open-addressing tables, so an increment
+ * never boxes or allocates once a skier's slot exists. Each stripe also counts rides per liftID
+ * under the same lock; per-lift totals are summed across stripes when read. Lift IDs above
+ * {@link #MAX_TRACKED_LIFT_ID} share one overflow counter, so a stray huge ID can't size the
+ * array.
+ */
+class DayTable {
+  private static final int STRIPES = 16;
+  private static final int INITIAL_STRIPE_CAPACITY = 16;
+  private static final int INITIAL_LIFTS = 8;
+  static final int MAX_TRACKED_LIFT_ID = 1023;
+  // liftID 0 is never valid, so its slot counts the untracked lifts
+  private static final int OVERFLOW_LIFT_SLOT = 0;
+
+  final long key;
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private final AtomicInteger uniqueSkiers = new AtomicInteger();
+
+  DayTable(long key) {
+    this.key = key;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  void record(int skierID, int liftID, long vertical) {
+    int hash = mix(skierID);
+    if (stripes[hash & (STRIPES - 1)].add(skierID, hash >>> 4, liftID, vertical)) {
+      uniqueSkiers.incrementAndGet();
+    }
+  }
+
+  int getRides(int skierID) {
+    int hash = mix(skierID);
+    return stripes[hash & (STRIPES - 1)].getRides(skierID, hash >>> 4);
+  }
+
+  long getVertical(int skierID) {
+    int hash = mix(skierID);
+    return stripes[hash & (STRIPES - 1)].getVertical(skierID, hash >>> 4);
+  }
+
+  /**
+   * Rides on the lift; 0 for lift IDs above the tracked range, which are only counted together.
+   */
+  long getLiftRides(int liftID) {
+    if (liftID < 1 || liftID > MAX_TRACKED_LIFT_ID) {
+      return 0;
+    }
+    long total = 0;
+    for (Stripe stripe : stripes) {
+      total += stripe.getLiftRides(liftID);
+    }
+    return total;
+  }
+
+  int getMaxLiftID() {
+    int max = 0;
+    for (Stripe stripe : stripes) {
+      max = Math.max(max, stripe.getMaxLiftID());
+    }
+    return max;
+  }
+
+  int getUniqueSkiers() {
+    return uniqueSkiers.get();
+  }
+
+  long footprintBytes() {
+    long bytes = 0;
+    for (Stripe stripe : stripes) {
+      bytes += stripe.footprintBytes();
+    }
+    return bytes;
+  }
+
+  // Spreads sequential skier IDs across stripes and slots
+  private static int mix(int x) {
+    x *= 0x9E3779B9;
+    return x ^ (x >>> 16);
+  }
+
+  /**
+   * Open-addressing table with linear probing. skierID 0 marks an empty slot, which is
+   * safe because the servlet only accepts positive skier IDs.
+   */
+  private static final class Stripe {
+    private int[] keys = new int[INITIAL_STRIPE_CAPACITY];
+    private int[] rides = new int[INITIAL_STRIPE_CAPACITY];
+    private long[] vertical = new long[INITIAL_STRIPE_CAPACITY];
+    private long[] liftRides = new long[INITIAL_LIFTS];
+    private int size;
+
+    // Returns true if the skier was new to this table
+    synchronized boolean add(int skierID, int hash, int liftID, long verticalGain) {
+      int liftSlot = liftID >= 1 && liftID <= MAX_TRACKED_LIFT_ID ? liftID : OVERFLOW_LIFT_SLOT;
+      if (liftSlot >= liftRides.length) {
+        liftRides = Arrays.copyOf(liftRides, Math.min(Math.max(liftRides.length * 2, liftSlot + 1),
+            MAX_TRACKED_LIFT_ID + 1));
+      }
+      liftRides[liftSlot]++;
+
+      int mask = keys.length - 1;
+      int slot = hash & mask;
+      while (keys[slot] != 0) {
+        if (keys[slot] == skierID) {
+          rides[slot]++;
+          vertical[slot] += verticalGain;
+          return false;
+        }
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = skierID;
+      rides[slot] = 1;
+      vertical[slot] = verticalGain;
+      if (++size > keys.length * 3 / 4) {
+        grow();
+      }
+      return true;
+    }
+
+    synchronized int getRides(int skierID, int hash) {
+      int slot = find(skierID, hash);
+      return slot < 0 ? 0 : rides[slot];
+    }
+
+    synchronized long getVertical(int skierID, int hash) {
+      int slot = find(skierID, hash);
+      return slot < 0 ? 0 : vertical[slot];
+    }
+
+    private int find(int skierID, int hash) {
+      int mask = keys.length - 1;
+      int slot = hash & mask;
+      while (keys[slot] != 0) {
+        if (keys[slot] == skierID) {
+          return slot;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+
+    synchronized long getLiftRides(int liftID) {
+      return liftID < liftRides.length ? liftRides[liftID] : 0;
+    }
+
+    synchronized int getMaxLiftID() {
+      for (int i = liftRides.length - 1; i > 0; i--) {
+        if (liftRides[i] != 0) {
+          return i;
+        }
+      }
+      return 0;
+    }
+
+    private void grow() {
+      int[] oldKeys = keys;
+      int[] oldRides = rides;
+      long[] oldVertical = vertical;
+      keys = new int[oldKeys.length * 2];
+      rides = new int[oldKeys.length * 2];
+      vertical = new long[oldKeys.length * 2];
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) {
+          int slot = (mix(oldKeys[i]) >>> 4) & mask;
+          while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          keys[slot] = oldKeys[i];
+          rides[slot] = oldRides[i];
+          vertical[slot] = oldVertical[i];
+        }
+      }
+    }
+
+    synchronized long footprintBytes() {
+      return keys.length * 16L + liftRides.length * 8L;
+    }
+  }
+}
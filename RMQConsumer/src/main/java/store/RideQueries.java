@@ -0,0 +1,12 @@
+package store;
+
+/**
+ * The aggregate reads served to the query API, from one store or from all shards' stores.
+ */
+public interface RideQueries {
+  int getRides(int resortID, int seasonID, int dayID, int skierID);
+
+  long getVertical(int resortID, int seasonID, int dayID, int skierID);
+
+  int getUniqueSkiers(int resortID, int seasonID, int dayID);
+}
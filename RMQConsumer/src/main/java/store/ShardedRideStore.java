@@ -0,0 +1,50 @@
+package store;
+
+/**
+ * Read view over the per-shard stores of a sharded consumer. Each shard only ever sees its own
+ * keys, so sums over the shards are exact: a skier's rides live in exactly one shard, and the
+ * skier sets of a resort-day are disjoint across shards whether the queue is split by skier or
+ * by resort.
+ */
+public class ShardedRideStore implements RideQueries {
+  private final SkierRideStore[] shards;
+
+  public ShardedRideStore(SkierRideStore[] shards) {
+    this.shards = shards.clone();
+  }
+
+  @Override
+  public int getRides(int resortID, int seasonID, int dayID, int skierID) {
+    int rides = 0;
+    for (SkierRideStore shard : shards) {
+      rides += shard.getRides(resortID, seasonID, dayID, skierID);
+    }
+    return rides;
+  }
+
+  @Override
+  public long getVertical(int resortID, int seasonID, int dayID, int skierID) {
+    long vertical = 0;
+    for (SkierRideStore shard : shards) {
+      vertical += shard.getVertical(resortID, seasonID, dayID, skierID);
+    }
+    return vertical;
+  }
+
+  @Override
+  public int getUniqueSkiers(int resortID, int seasonID, int dayID) {
+    int skiers = 0;
+    for (SkierRideStore shard : shards) {
+      skiers += shard.getUniqueSkiers(resortID, seasonID, dayID);
+    }
+    return skiers;
+  }
+
+  public SkierRideStore shard(int index) {
+    return shards[index];
+  }
+
+  public int getShardCount() {
+    return shards.length;
+  }
+}
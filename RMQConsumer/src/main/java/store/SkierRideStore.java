@@ -0,0 +1,150 @@
+package store;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent, boxing-free ride counters keyed by (resortID, seasonID, dayID, skierID).
+ *
+ * Each resort/season/day gets a {@link DayTable}; the tables are found through an
+ * open-addressing directory keyed by the packed day key. Lookups of existing days are lock-free,
+ * only creating a new day takes the directory lock.
+ */
+public class SkierRideStore implements RideQueries {
+  // Vertical gained per ride, as defined by the ski API: liftID * 10 metres
+  public static final int VERTICAL_PER_LIFT_ID = 10;
+
+  private static final int INITIAL_DIRECTORY_CAPACITY = 64;
+
+  private volatile AtomicReferenceArray<DayTable> directory = new AtomicReferenceArray<>(INITIAL_DIRECTORY_CAPACITY);
+  private int dayCount;
+
+  public void recordRide(int resortID, int seasonID, int dayID, int skierID, int liftID) {
+    dayTable(resortID, seasonID, dayID, true).record(skierID, liftID, (long) liftID * VERTICAL_PER_LIFT_ID);
+  }
+
+  @Override
+  public int getRides(int resortID, int seasonID, int dayID, int skierID) {
+    DayTable day = dayTable(resortID, seasonID, dayID, false);
+    return day == null ? 0 : day.getRides(skierID);
+  }
+
+  @Override
+  public long getVertical(int resortID, int seasonID, int dayID, int skierID) {
+    DayTable day = dayTable(resortID, seasonID, dayID, false);
+    return day == null ? 0 : day.getVertical(skierID);
+  }
+
+  public long getLiftRides(int resortID, int seasonID, int dayID, int liftID) {
+    DayTable day = dayTable(resortID, seasonID, dayID, false);
+    return day == null ? 0 : day.getLiftRides(liftID);
+  }
+
+  public long getLiftVertical(int resortID, int seasonID, int dayID, int liftID) {
+    return getLiftRides(resortID, seasonID, dayID, liftID) * liftID * VERTICAL_PER_LIFT_ID;
+  }
+
+  @Override
+  public int getUniqueSkiers(int resortID, int seasonID, int dayID) {
+    DayTable day = dayTable(resortID, seasonID, dayID, false);
+    return day == null ? 0 : day.getUniqueSkiers();
+  }
+
+  // Season IDs are 4-digit years and days are at most 366, so both fit in 16 bits
+  static long dayKey(int resortID, int seasonID, int dayID) {
+    return ((long) resortID << 32) | ((long) (seasonID & 0xFFFF) << 16) | (dayID & 0xFFFF);
+  }
+
+  private static int slotOf(long key, int mask) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  private DayTable dayTable(int resortID, int seasonID, int dayID, boolean create) {
+    long key = dayKey(resortID, seasonID, dayID);
+    DayTable table = find(directory, key);
+    if (table != null || !create) {
+      return table;
+    }
+    synchronized (this) {
+      AtomicReferenceArray<DayTable> current = directory;
+      table = find(current, key);
+      if (table == null) {
+        table = new DayTable(key);
+        if ((dayCount + 1) * 2 > current.length()) {
+          current = grow(current);
+        }
+        insert(current, table);
+        dayCount++;
+        directory = current;
+      }
+      return table;
+    }
+  }
+
+  private static DayTable find(AtomicReferenceArray<DayTable> tables, long key) {
+    int mask = tables.length() - 1;
+    int slot = slotOf(key, mask);
+    DayTable table;
+    while ((table = tables.get(slot)) != null) {
+      if (table.key == key) {
+        return table;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  private static void insert(AtomicReferenceArray<DayTable> tables, DayTable table) {
+    int mask = tables.length() - 1;
+    int slot = slotOf(table.key, mask);
+    while (tables.get(slot) != null) {
+      slot = (slot + 1) & mask;
+    }
+    tables.set(slot, table);
+  }
+
+  private static AtomicReferenceArray<DayTable> grow(AtomicReferenceArray<DayTable> tables) {
+    AtomicReferenceArray<DayTable> grown = new AtomicReferenceArray<>(tables.length() * 2);
+    for (int i = 0; i < tables.length(); i++) {
+      DayTable table = tables.get(i);
+      if (table != null) {
+        insert(grown, table);
+      }
+    }
+    return grown;
+  }
+
+  public synchronized int getDayCount() {
+    return dayCount;
+  }
+
+  /**
+   * Approximate bytes held by the counter arrays (object headers excluded).
+   */
+  public long footprintBytes() {
+    AtomicReferenceArray<DayTable> tables = directory;
+    long bytes = tables.length() * 4L;
+    for (int i = 0; i < tables.length(); i++) {
+      DayTable table = tables.get(i);
+      if (table != null) {
+        bytes += table.footprintBytes();
+      }
+    }
+    return bytes;
+  }
+
+  public String memoryReport() {
+    AtomicReferenceArray<DayTable> tables = directory;
+    long skierDays = 0;
+    for (int i = 0; i < tables.length(); i++) {
+      DayTable table = tables.get(i);
+      if (table != null) {
+        skierDays += table.getUniqueSkiers();
+      }
+    }
+    long bytes = footprintBytes();
+    return String.format("SkierRideStore: %d resort-days, %d skier-days, %.2f MB (%.1f bytes/skier-day)",
+        getDayCount(), skierDays, bytes / (1024.0 * 1024.0),
+        skierDays == 0 ? 0.0 : bytes / (double) skierDays);
+  }
+}
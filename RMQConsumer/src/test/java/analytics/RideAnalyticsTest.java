@@ -0,0 +1,145 @@
+package analytics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import analytics.RideAnalytics.LiftCount;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A season of rides fed to RideAnalytics from several threads, with its windows and top lifts
+ * for the last day at resort 1 checked against counts kept the slow way.
+ */
+class RideAnalyticsTest {
+  private static final int RIDES = 400_000;
+  private static final int RESORTS = 10;
+  private static final int DAYS = 40;
+  private static final int THREADS = 4;
+  private static final int LIFTS = 40;
+  private static final int SEASON = 2025;
+  private static final long MAX_BYTES = 8L * 1024 * 1024;
+
+  private static RideAnalytics analytics;
+  private static long[][] expected;
+
+  @BeforeAll
+  static void recordSeason() throws Exception {
+    analytics = new RideAnalytics(1, 255, MAX_BYTES);
+    expected = new long[LIFTS + 1][RideAnalytics.MAX_MINUTE + 1];
+    // Days arrive in order; each thread takes every THREADS-th ride of a day
+    int perDay = RIDES / DAYS;
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      for (int day = 1; day <= DAYS; day++) {
+        int dayID = day;
+        List<Future<?>> parts = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+          int thread = t;
+          parts.add(pool.submit(() -> {
+            SplittableRandom random = new SplittableRandom(dayID * 31L + thread);
+            for (int i = thread; i < perDay; i += THREADS) {
+              int resortID = random.nextInt(RESORTS) + 1;
+              // Skewed lifts so there is a clear top-K
+              int liftID = Math.min(LIFTS, 1 + (int) (-Math.log(1 - random.nextDouble()) * 8));
+              int time = random.nextInt(RideAnalytics.MAX_MINUTE + 1);
+              analytics.recordRide(resortID, SEASON, dayID, time, liftID);
+              if (resortID == 1 && dayID == DAYS) {
+                synchronized (expected) {
+                  expected[liftID][time]++;
+                }
+              }
+            }
+          }));
+        }
+        for (Future<?> part : parts) {
+          part.get();
+        }
+      }
+    } finally {
+      pool.shutdown();
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  @AfterAll
+  static void release() {
+    analytics = null;
+    expected = null;
+  }
+
+  @Test
+  void tumblingWindowsMatchCounts() {
+    assertArrayEquals(tumbling(expected[1], 15), analytics.getWindowedRides(1, SEASON, DAYS, 1, 15));
+    assertArrayEquals(tumbling(allLifts(), 60), analytics.getWindowedRides(1, SEASON, DAYS, 0, 60));
+  }
+
+  @Test
+  void slidingWindowMatchesCounts() {
+    assertEquals(sum(allLifts(), 600, 659), analytics.getRides(1, SEASON, DAYS, 0, 600, 659));
+    assertEquals(sum(expected[7], 0, RideAnalytics.MAX_MINUTE), analytics.getRides(1, SEASON, DAYS, 7, 0,
+        RideAnalytics.MAX_MINUTE));
+  }
+
+  @Test
+  void topLiftsMatchCounts() {
+    List<long[]> byRides = new ArrayList<>();
+    for (int lift = 1; lift <= LIFTS; lift++) {
+      byRides.add(new long[] {lift, sum(expected[lift], 600, 659)});
+    }
+    byRides.sort(Comparator.<long[]>comparingLong(entry -> entry[1]).reversed().thenComparingLong(entry -> entry[0]));
+
+    List<LiftCount> top = analytics.getTopLifts(1, SEASON, DAYS, 5, 600, 659);
+    assertEquals(5, top.size());
+    // Which of several lifts tied for 5th is returned is up to the heap, so check the counts
+    // at each rank and that every lift returned has its own count
+    for (int i = 0; i < 5; i++) {
+      LiftCount lift = top.get(i);
+      assertEquals(byRides.get(i)[1], lift.getRides(), "rides at rank " + (i + 1));
+      assertEquals(sum(expected[lift.getLiftID()], 600, 659), lift.getRides(), "rides of lift " + lift.getLiftID());
+    }
+  }
+
+  @Test
+  void oldestDaysAreEvictedToStayUnderTheCap() {
+    assertTrue(analytics.footprintBytes() <= MAX_BYTES, analytics.memoryReport());
+    assertTrue(analytics.getDayCount() < RESORTS * DAYS, "nothing was evicted: " + analytics.memoryReport());
+    assertEquals(0, analytics.getRides(1, SEASON, 1));
+  }
+
+  private static long[] allLifts() {
+    long[] minutes = new long[RideAnalytics.MAX_MINUTE + 1];
+    for (int lift = 1; lift <= LIFTS; lift++) {
+      for (int minute = 0; minute < minutes.length; minute++) {
+        minutes[minute] += expected[lift][minute];
+      }
+    }
+    return minutes;
+  }
+
+  private static long[] tumbling(long[] minutes, int window) {
+    long[] windows = new long[(minutes.length + window - 1) / window];
+    for (int minute = 0; minute < minutes.length; minute++) {
+      windows[minute / window] += minutes[minute];
+    }
+    return windows;
+  }
+
+  private static long sum(long[] minutes, int from, int to) {
+    long total = 0;
+    for (int minute = from; minute <= to; minute++) {
+      total += minutes[minute];
+    }
+    return total;
+  }
+}
@@ -0,0 +1,178 @@
+package persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import broker.InMemoryBroker;
+import codec.LiftRideCodec;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import engine.ConsumerEngine;
+import engine.DuplicateFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Test;
+import store.SkierRideStore;
+
+/**
+ * Exactly-once counting under the three ways a ride reaches the consumer twice, through the
+ * real ConsumerEngine, RideDeliveryHandler, WriteBehindBuffer and BatchAcker:
+ *
+ * <ul>
+ *   <li>client retries: the same message (same Idempotency-Key) published again a little later,
+ *   as when the client timed out after the server had already published</li>
+ *   <li>lost acks: the broker loses a basicAck and redelivers everything it covered</li>
+ *   <li>failed flushes: a repository write throws partway, so the batch is rolled back, nacked
+ *   and requeued</li>
+ * </ul>
+ */
+class DuplicateDeliveryTest {
+  private static final String QUEUE = "ski_lift_queue";
+  private static final int RIDES = 20_000;
+  private static final double RETRY_RATE = 0.10;
+  private static final double ACK_LOSS_RATE = 0.02;
+  private static final double WRITE_FAILURE_RATE = 0.01;
+  private static final int SEASON = 2025;
+  private static final int DAY = 1;
+
+  // resortID, skierID, time, liftID per ride, and the order rides reach the broker, retries included
+  private final int[][] rides = new int[RIDES][];
+  private final int[] published;
+
+  DuplicateDeliveryTest() {
+    Random random = new Random(7);
+    List<long[]> arrivals = new ArrayList<>();
+    for (int i = 0; i < RIDES; i++) {
+      rides[i] = new int[] {random.nextInt(10) + 1, random.nextInt(20000) + 1, random.nextInt(360) + 1,
+          random.nextInt(40) + 1};
+      arrivals.add(new long[] {i * 4L, i});
+      if (random.nextDouble() < RETRY_RATE) {
+        int copies = 1 + random.nextInt(2);
+        for (int c = 0; c < copies; c++) {
+          arrivals.add(new long[] {i * 4L + 1 + random.nextInt(4000), i});
+        }
+      }
+    }
+    arrivals.sort((a, b) -> Long.compare(a[0], b[0]));
+    published = new int[arrivals.size()];
+    for (int i = 0; i < published.length; i++) {
+      published[i] = (int) arrivals.get(i)[1];
+    }
+  }
+
+  @Test
+  void countsEveryRideOnceDespiteRetriesLostAcksAndFailedFlushes() throws Exception {
+    Outcome outcome = run(true);
+
+    assertTrue(outcome.redelivered > 0, "no ack loss or flush failure was injected");
+    assertEquals(RIDES, outcome.counted);
+    assertEquals(0, outcome.wrongSkiers);
+    // What a restart would replay has to match what was counted
+    assertEquals(outcome.counted, outcome.stored);
+  }
+
+  @Test
+  void countsDuplicatesWithoutTheFilter() throws Exception {
+    Outcome outcome = run(false);
+
+    assertTrue(outcome.counted > RIDES, "injected duplicates were not delivered");
+  }
+
+  private Outcome run(boolean dedup) throws Exception {
+    InMemoryBroker broker = new InMemoryBroker();
+    broker.setAckLossRate(ACK_LOSS_RATE);
+    Connection connection = broker.newConnection();
+    Channel channel = connection.createChannel();
+    channel.queueDeclare(QUEUE, true, false, false, null);
+    for (int index : published) {
+      int[] r = rides[index];
+      AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+          .contentType(LiftRideCodec.CONTENT_TYPE_BINARY)
+          .messageId("ride-" + index)
+          .build();
+      channel.basicPublish("", QUEUE, properties, LiftRideCodec.encodeBinary(r[0], SEASON, DAY, r[1], r[2], r[3]));
+    }
+
+    SkierRideStore store = new SkierRideStore();
+    DuplicateFilter duplicates = dedup ? new DuplicateFilter(1 << 20, 60_000) : null;
+    FlakyRepository repository = new FlakyRepository();
+    WriteBehindBuffer writeBehind = new WriteBehindBuffer(repository,
+        (resortID, seasonID, dayID, skierID, time, liftID) -> store.recordRide(resortID, seasonID, dayID, skierID, liftID),
+        100, 5, 1 << 16, duplicates);
+    ConsumerEngine engine = new ConsumerEngine(connection, QUEUE, 4, 200, 50, 5,
+        new RideDeliveryHandler(writeBehind, duplicates));
+    engine.start();
+    boolean settled = broker.awaitSettled(60_000);
+    engine.shutdown(1000);
+    writeBehind.close(1000);
+    connection.close();
+    assertTrue(settled, "rides left unacked");
+
+    Map<Long, Integer> expected = new HashMap<>();
+    for (int[] r : rides) {
+      expected.merge(((long) r[0] << 32) | r[1], 1, Integer::sum);
+    }
+    Outcome outcome = new Outcome();
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      int counted = store.getRides((int) (entry.getKey() >>> 32), SEASON, DAY, (int) (long) entry.getKey());
+      outcome.counted += counted;
+      if (counted != entry.getValue()) {
+        outcome.wrongSkiers++;
+      }
+    }
+    outcome.stored = repository.getRecordCount();
+    outcome.redelivered = broker.getRedelivered();
+    return outcome;
+  }
+
+  private static final class Outcome {
+    private long counted;
+    private int wrongSkiers;
+    private long stored;
+    private long redelivered;
+  }
+
+  /**
+   * In-memory repository whose writes fail at WRITE_FAILURE_RATE, after storing half the batch.
+   */
+  private static final class FlakyRepository implements RideRepository {
+    private long records;
+
+    @Override
+    public void write(byte[] batch, int count) throws IOException {
+      if (ThreadLocalRandom.current().nextDouble() < WRITE_FAILURE_RATE) {
+        records += count / 2;
+        throw new IOException("injected write failure");
+      }
+      records += count;
+    }
+
+    @Override
+    public void truncate(long recordCount) {
+      records = recordCount;
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    @Override
+    public void replay(RideVisitor visitor) {
+    }
+
+    @Override
+    public synchronized long getRecordCount() {
+      return records;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import routing.ShardRouting;
+
+/**
+ * Rides routed with ShardRouting into one SkierRideStore per shard, as a sharded consumer
+ * stores them, read back through ShardedRideStore.
+ */
+class ShardedRideStoreTest {
+  private static final int RIDES = 50_000;
+  private static final int RESORTS = 10;
+  private static final int SKIERS = 5000;
+  private static final int SEASON = 2025;
+  private static final int DAY = 1;
+
+  @ParameterizedTest
+  @CsvSource({"1, skier", "2, skier", "4, skier", "8, skier", "2, resort", "4, resort", "8, resort"})
+  void sumsOverShardsMatchTheRidesSent(int shardCount, String key) {
+    ShardRouting routing = ShardRouting.of(shardCount, key);
+    SkierRideStore[] shards = new SkierRideStore[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new SkierRideStore();
+    }
+    int[] rides = new int[(RESORTS + 1) * (SKIERS + 1)];
+    long[] vertical = new long[rides.length];
+    // A skier's rides must all reach one shard, whose single consumer keeps them in order
+    int[] shardOf = new int[rides.length];
+    Arrays.fill(shardOf, -1);
+
+    Random random = new Random(42);
+    for (int i = 0; i < RIDES; i++) {
+      int resortID = random.nextInt(RESORTS) + 1;
+      int skierID = random.nextInt(SKIERS) + 1;
+      int liftID = random.nextInt(40) + 1;
+      int shard = routing.shardFor(resortID, skierID);
+      int skier = resortID * (SKIERS + 1) + skierID;
+      if (shardOf[skier] >= 0) {
+        assertEquals(shardOf[skier], shard, "skier " + skierID + " at resort " + resortID + " changed shard");
+      }
+      shardOf[skier] = shard;
+      shards[shard].recordRide(resortID, SEASON, DAY, skierID, liftID);
+      rides[skier]++;
+      vertical[skier] += (long) liftID * SkierRideStore.VERTICAL_PER_LIFT_ID;
+    }
+
+    ShardedRideStore view = new ShardedRideStore(shards);
+    for (int resortID = 1; resortID <= RESORTS; resortID++) {
+      int skiers = 0;
+      for (int skierID = 1; skierID <= SKIERS; skierID++) {
+        int skier = resortID * (SKIERS + 1) + skierID;
+        assertEquals(rides[skier], view.getRides(resortID, SEASON, DAY, skierID));
+        assertEquals(vertical[skier], view.getVertical(resortID, SEASON, DAY, skierID));
+        skiers += rides[skier] > 0 ? 1 : 0;
+      }
+      assertEquals(skiers, view.getUniqueSkiers(resortID, SEASON, DAY), "unique skiers at resort " + resortID);
+    }
+  }
+}
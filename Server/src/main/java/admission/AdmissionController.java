@@ -0,0 +1,260 @@
+package admission;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import publish.BatchingPublisher;
+import rmqpool.RMQChannelPool;
+
+/**
+ * Decides whether the servlet should accept another POST, based on how far the broker and
+ * this server have fallen behind.
+ *
+ * A sampler thread checks the queue depth (passive declare, summed over the shard queues), the
+ * mean publish-to-confirm latency since the last sample, threads waiting for a pooled channel
+ * and messages waiting for a publisher thread, and publishes a {@link Decision}. The request path reads that decision
+ * with a single volatile load, so admission costs nothing while the system is healthy.
+ *
+ * A backed-up queue means the consumers are behind and the request is refused with 503; local
+ * congestion (slow confirms, channel or publisher backlog) is refused with 429. Each limit
+ * releases once its signal falls below RESUME_FRACTION of the threshold so admission doesn't
+ * flap around the limit. A threshold of 0 disables that signal.
+ */
+public class AdmissionController {
+  private static final Logger logger = Logger.getLogger(AdmissionController.class.getName());
+  private static final double RESUME_FRACTION = 0.8;
+  private static final int MAX_RETRY_AFTER_SECONDS = 30;
+
+  private final Connection connection;
+  private final List<String> queueNames;
+  private final RMQChannelPool channelPool;
+  private final BatchingPublisher publisher;
+  private final long maxQueueDepth;
+  private final long maxPublishLatencyMicros;
+  private final int maxPoolWaiters;
+  private final int maxPendingPublishes;
+  private final int retryAfterSeconds;
+
+  private final LongAdder publishLatencySum = new LongAdder();
+  private final LongAdder publishLatencyCount = new LongAdder();
+  private final LongAdder rejectedForQueue = new LongAdder();
+  private final LongAdder rejectedForCongestion = new LongAdder();
+  private final ScheduledExecutorService sampler;
+
+  private volatile Decision current = Decision.ADMIT;
+  private volatile long queueDepth = -1;
+  private volatile long publishLatencyMicros;
+  private Channel probeChannel;
+  private long lastDepthSampleNanos;
+  // Messages/second the backlog shrank by while over the depth limit, for Retry-After
+  private double drainPerSecond;
+
+  public AdmissionController(Connection connection, List<String> queueNames, RMQChannelPool channelPool,
+      BatchingPublisher publisher, long maxQueueDepth, long maxPublishLatencyMillis, int maxPoolWaiters,
+      int maxPendingPublishes, int retryAfterSeconds, long sampleMillis) {
+    this.connection = connection;
+    this.queueNames = queueNames;
+    this.channelPool = channelPool;
+    this.publisher = publisher;
+    this.maxQueueDepth = maxQueueDepth;
+    this.maxPublishLatencyMicros = maxPublishLatencyMillis * 1000;
+    this.maxPoolWaiters = maxPoolWaiters;
+    this.maxPendingPublishes = maxPendingPublishes;
+    this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "admission-sampler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sampler.scheduleWithFixedDelay(this::sample, 0, sampleMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * The current decision for a new POST; {@link Decision#ADMIT} unless a limit is exceeded.
+   */
+  public Decision admit() {
+    Decision decision = current;
+    if (decision != Decision.ADMIT) {
+      (decision.status == 503 ? rejectedForQueue : rejectedForCongestion).increment();
+    }
+    return decision;
+  }
+
+  /**
+   * Feeds the publish-to-confirm latency of an accepted message into the next sample.
+   */
+  public void recordPublishLatency(long nanos) {
+    publishLatencySum.add(nanos / 1000);
+    publishLatencyCount.increment();
+  }
+
+  private void sample() {
+    try {
+      Decision previous = current;
+      long depth = sampleQueueDepth(previous);
+      long count = publishLatencyCount.sumThenReset();
+      long sum = publishLatencySum.sumThenReset();
+      // Nothing is published while latency is the reason for refusing, so decay the last
+      // reading through idle samples until admission reopens and measures again
+      publishLatencyMicros = count > 0 ? sum / count : publishLatencyMicros / 2;
+
+      Decision next = Decision.ADMIT;
+      if (over(depth, maxQueueDepth, previous.reason == Reason.QUEUE_DEPTH)) {
+        next = new Decision(503, retryAfterForDepth(depth), Reason.QUEUE_DEPTH);
+      } else if (over(publishLatencyMicros, maxPublishLatencyMicros, previous.reason == Reason.PUBLISH_LATENCY)) {
+        next = new Decision(429, retryAfterSeconds, Reason.PUBLISH_LATENCY);
+      } else if (over(channelPool.getWaiterCount(), maxPoolWaiters, previous.reason == Reason.CHANNEL_WAIT)) {
+        next = new Decision(429, retryAfterSeconds, Reason.CHANNEL_WAIT);
+      } else if (over(publisher.getPendingCount(), maxPendingPublishes, previous.reason == Reason.PUBLISH_BACKLOG)) {
+        next = new Decision(429, retryAfterSeconds, Reason.PUBLISH_BACKLOG);
+      }
+      if (next.reason != previous.reason) {
+        logger.log(next == Decision.ADMIT ? Level.INFO : Level.WARNING, "Admission " + next.reason
+            + " (queue depth " + depth + ", publish latency " + publishLatencyMicros / 1000 + " ms)");
+      }
+      current = next;
+    } catch (RuntimeException e) {
+      // Never let one bad sample cancel the schedule
+      logger.log(Level.WARNING, "Admission sample failed", e);
+    }
+  }
+
+  // While a limit is active it only releases once the signal drops well below it
+  private static boolean over(long value, long threshold, boolean active) {
+    if (threshold <= 0) {
+      return false;
+    }
+    return active ? value > threshold * RESUME_FRACTION : value > threshold;
+  }
+
+  // Depth isn't worth a broker round trip per request; once per sample is plenty
+  private long sampleQueueDepth(Decision previous) {
+    if (maxQueueDepth <= 0) {
+      return -1;
+    }
+    long before = queueDepth;
+    long beforeNanos = lastDepthSampleNanos;
+    try {
+      if (probeChannel == null || !probeChannel.isOpen()) {
+        probeChannel = connection.createChannel();
+      }
+      long depth = 0;
+      for (String queueName : queueNames) {
+        depth += probeChannel.queueDeclarePassive(queueName).getMessageCount();
+      }
+      lastDepthSampleNanos = System.nanoTime();
+      drainPerSecond = before >= 0 && previous.reason == Reason.QUEUE_DEPTH
+          ? (before - depth) / Math.max((lastDepthSampleNanos - beforeNanos) / 1e9, 1e-3)
+          : 0;
+      queueDepth = depth;
+      return depth;
+    } catch (IOException | RuntimeException e) {
+      // Keep the last known depth; publishing has its own failure handling
+      logger.log(Level.FINE, "Queue depth probe failed", e);
+      return queueDepth;
+    }
+  }
+
+  // Roughly how long until the backlog is back under the resume level at the current drain rate
+  private int retryAfterForDepth(long depth) {
+    if (drainPerSecond <= 0) {
+      return retryAfterSeconds;
+    }
+    double seconds = (depth - maxQueueDepth * RESUME_FRACTION) / drainPerSecond;
+    return (int) Math.max(retryAfterSeconds, Math.min(MAX_RETRY_AFTER_SECONDS, Math.ceil(seconds)));
+  }
+
+  /**
+   * The baseline Retry-After, also used for requests that failed for back-pressure reasons.
+   */
+  public int getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+  public long getQueueDepth() {
+    return queueDepth;
+  }
+
+  public long getPublishLatencyMicros() {
+    return publishLatencyMicros;
+  }
+
+  public long getRejectedForQueue() {
+    return rejectedForQueue.sum();
+  }
+
+  public long getRejectedForCongestion() {
+    return rejectedForCongestion.sum();
+  }
+
+  /**
+   * 1 while new POSTs are being refused, for the metrics endpoint.
+   */
+  public long getShedding() {
+    return current == Decision.ADMIT ? 0 : 1;
+  }
+
+  public String statsReport() {
+    return String.format("AdmissionController: %s, queue depth %d, publish latency %d ms, "
+            + "%d refused for queue depth, %d refused for congestion",
+        current.reason, queueDepth, publishLatencyMicros / 1000, getRejectedForQueue(), getRejectedForCongestion());
+  }
+
+  public void close() {
+    sampler.shutdownNow();
+    try {
+      if (probeChannel != null && probeChannel.isOpen()) {
+        probeChannel.close();
+      }
+    } catch (Exception e) {
+      logger.log(Level.FINE, "Failed to close probe channel", e);
+    }
+  }
+
+  /**
+   * Why new requests are being refused.
+   */
+  public enum Reason {
+    NONE, QUEUE_DEPTH, PUBLISH_LATENCY, CHANNEL_WAIT, PUBLISH_BACKLOG
+  }
+
+  /**
+   * Admit, or refuse with an HTTP status and a Retry-After hint in seconds.
+   */
+  public static final class Decision {
+    public static final Decision ADMIT = new Decision(0, 0, Reason.NONE);
+
+    private final int status;
+    private final int retryAfterSeconds;
+    private final Reason reason;
+
+    private Decision(int status, int retryAfterSeconds, Reason reason) {
+      this.status = status;
+      this.retryAfterSeconds = retryAfterSeconds;
+      this.reason = reason;
+    }
+
+    public boolean isAdmitted() {
+      return this == ADMIT;
+    }
+
+    public int getStatus() {
+      return status;
+    }
+
+    public int getRetryAfterSeconds() {
+      return retryAfterSeconds;
+    }
+
+    public Reason getReason() {
+      return reason;
+    }
+  }
+}
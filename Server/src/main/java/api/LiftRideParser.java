@@ -0,0 +1,577 @@
+package api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses and validates a lift ride POST without building intermediate Strings or a JSON tree.
+ *
+ * Path segments are scanned in place from the path info and the {"time","liftID"} body is read
+ * from the raw request bytes into a reusable buffer. Parsed values are kept in primitive fields
+ * so one instance can be reused per container thread (see {@link #forCurrentThread()}).
+ * Every parse method returns null on success or the same error message the servlet used to send.
+ *
+ * Bodies in the canonical form clients send are checked in one pass over the bytes; any other
+ * body goes through the servlet's original Gson code, so lenient JSON, numbers like 5.0 or 1e2
+ * and numeric strings get the answers they always did. The only differences: a body that is
+ * nothing but a comment is "Invalid JSON format." and a time or liftID array of other than one
+ * element is "Invalid time or liftID.", where both used to fail with a 500.
+ */
+public final class LiftRideParser {
+  static final String INVALID_PATH = "Invalid URL path format";
+  static final String INVALID_NUMBER = "Invalid numeric parameter format";
+  static final String INVALID_RESORT = "Resort ID must be positive";
+  static final String INVALID_SEASON = "Season ID must be a 4-digit year";
+  static final String INVALID_DAY = "Day ID must be between 1 and 366";
+  static final String INVALID_SKIER = "Skier ID must be positive";
+  static final String EMPTY_BODY = "Empty request body.";
+  static final String INVALID_JSON = "Invalid JSON format.";
+  static final String MISSING_FIELDS = "Missing required fields: time and liftID.";
+  static final String INVALID_FIELDS = "Invalid time or liftID.";
+  static final String INVALID_TIME = "Time must be between 0 and 1440";
+  static final String INVALID_LIFT = "Lift ID must be positive";
+
+  private static final int MAX_MINUTES_IN_DAY = 1440;
+  private static final int MAX_DAYS_IN_YEAR = 366;
+  private static final int PATH_SEGMENTS = 7;
+  private static final int INITIAL_BUFFER = 512;
+  private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+  // Nesting of other fields' values the canonical pass follows before leaving them to Gson
+  private static final int MAX_DEPTH = 16;
+
+  private static final byte[] TIME_KEY = {'t', 'i', 'm', 'e'};
+  private static final byte[] LIFT_KEY = {'l', 'i', 'f', 't', 'I', 'D'};
+
+  private static final Gson GSON = new Gson();
+  private static final ThreadLocal<LiftRideParser> PARSERS = ThreadLocal.withInitial(LiftRideParser::new);
+
+  // Parsed request values
+  private int resortID;
+  private int seasonID;
+  private int dayID;
+  private int skierID;
+  private int time;
+  private int liftID;
+
+  // Start/end offsets of each path segment
+  private final int[] bounds = new int[PATH_SEGMENTS * 2];
+
+  // Reusable body buffer and cursor into it
+  private byte[] buffer = new byte[INITIAL_BUFFER];
+  private int length;
+  private int pos;
+
+  // Scratch results of the last value parsed from the body
+  private static final int VALUE_NULL = 0;
+  private static final int VALUE_INT = 1;
+  private int valueKind;
+  private int valueInt;
+  private String bodyError;
+
+  public static LiftRideParser forCurrentThread() {
+    return PARSERS.get();
+  }
+
+  /**
+   * Validates /{resortID}/seasons/{seasonID}/days/{dayID}/skiers/{skierID}.
+   */
+  public String parsePath(String pathInfo) {
+    if (pathInfo == null) {
+      return INVALID_PATH;
+    }
+    // Same shape rule as String.split("/"): trailing empty segments are ignored
+    int end = pathInfo.length();
+    while (end > 0 && pathInfo.charAt(end - 1) == '/') {
+      end--;
+    }
+    if (end == 0 || pathInfo.charAt(0) != '/') {
+      return INVALID_PATH;
+    }
+
+    int segment = 0;
+    int start = 1;
+    for (int i = 1; i <= end; i++) {
+      if (i == end || pathInfo.charAt(i) == '/') {
+        if (segment == PATH_SEGMENTS) {
+          return INVALID_PATH;
+        }
+        bounds[segment * 2] = start;
+        bounds[segment * 2 + 1] = i;
+        segment++;
+        start = i + 1;
+      }
+    }
+    if (segment != PATH_SEGMENTS) {
+      return INVALID_PATH;
+    }
+
+    long resort = parseInt(pathInfo, bounds[0], bounds[1]);
+    if (resort == Long.MIN_VALUE) {
+      return INVALID_NUMBER;
+    }
+    if (resort <= 0) {
+      return INVALID_RESORT;
+    }
+
+    int seasonStart = bounds[4];
+    int seasonEnd = bounds[5];
+    if (seasonEnd - seasonStart != 4) {
+      return INVALID_SEASON;
+    }
+    int season = 0;
+    for (int i = seasonStart; i < seasonEnd; i++) {
+      char c = pathInfo.charAt(i);
+      if (c < '0' || c > '9') {
+        return INVALID_SEASON;
+      }
+      season = season * 10 + (c - '0');
+    }
+
+    long day = parseInt(pathInfo, bounds[8], bounds[9]);
+    if (day == Long.MIN_VALUE) {
+      return INVALID_NUMBER;
+    }
+    if (day < 1 || day > MAX_DAYS_IN_YEAR) {
+      return INVALID_DAY;
+    }
+
+    long skier = parseInt(pathInfo, bounds[12], bounds[13]);
+    if (skier == Long.MIN_VALUE) {
+      return INVALID_NUMBER;
+    }
+    if (skier <= 0) {
+      return INVALID_SKIER;
+    }
+
+    resortID = (int) resort;
+    seasonID = season;
+    dayID = (int) day;
+    skierID = (int) skier;
+    return null;
+  }
+
+  // Integer.parseInt semantics on a char range; Long.MIN_VALUE signals a format error
+  private static long parseInt(CharSequence s, int start, int end) {
+    if (start >= end) {
+      return Long.MIN_VALUE;
+    }
+    boolean negative = false;
+    char first = s.charAt(start);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      start++;
+      if (start == end) {
+        return Long.MIN_VALUE;
+      }
+    }
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + (c - '0');
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        return Long.MIN_VALUE;
+      }
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+      return Long.MIN_VALUE;
+    }
+    return value;
+  }
+
+  /**
+   * Reads the request body and extracts the time and liftID fields, as sent without a charset
+   * (ISO-8859-1, the servlet default).
+   */
+  public String parseBody(InputStream in) throws IOException {
+    return parseBody(in, null);
+  }
+
+  /**
+   * Reads the request body and extracts the time and liftID fields.
+   *
+   * @param characterEncoding the request's character encoding, or null for the servlet default
+   * @throws UnsupportedEncodingException for an encoding the JVM doesn't know, as getReader does
+   */
+  public String parseBody(InputStream in, String characterEncoding) throws IOException {
+    length = 0;
+    int read;
+    while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+      length += read;
+      if (length == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+    }
+
+    String error = asciiCompatible(characterEncoding) && parseCanonical() ? bodyError : parseWithGson(characterEncoding);
+    // Don't hold on to the buffer of an unusually large body for the life of the thread
+    if (buffer.length > MAX_RETAINED_BUFFER) {
+      buffer = new byte[INITIAL_BUFFER];
+    }
+    return error;
+  }
+
+  private static boolean asciiCompatible(String characterEncoding) {
+    return characterEncoding == null || characterEncoding.equalsIgnoreCase("UTF-8")
+        || characterEncoding.equalsIgnoreCase("ISO-8859-1") || characterEncoding.equalsIgnoreCase("US-ASCII");
+  }
+
+  /**
+   * Strict JSON with plain ASCII keys and strings, where time and liftID are integer literals
+   * in int range or null. Returns false, leaving the body to Gson, on anything else: other
+   * forms of the two fields ("5", 5.0, 1e2), escapes, lenient syntax and malformed input.
+   */
+  private boolean parseCanonical() {
+    pos = 0;
+    skipWhitespace();
+    if (pos == length) {
+      bodyError = EMPTY_BODY;
+      return true;
+    }
+    if (buffer[pos] != '{') {
+      return false;
+    }
+    pos++;
+
+    int foundTime = VALUE_NULL;
+    int foundLift = VALUE_NULL;
+    int timeValue = 0;
+    int liftValue = 0;
+
+    skipWhitespace();
+    if (pos < length && buffer[pos] == '}') {
+      pos++;
+    } else {
+      while (true) {
+        skipWhitespace();
+        int keyStart = pos + 1;
+        if (!skipPlainString()) {
+          return false;
+        }
+        int keyEnd = pos - 1;
+        skipWhitespace();
+        if (pos >= length || buffer[pos] != ':') {
+          return false;
+        }
+        pos++;
+        skipWhitespace();
+        // Duplicate keys: the last one wins, as in Gson's JsonObject
+        if (keyEquals(keyStart, keyEnd, TIME_KEY)) {
+          if (!parseField()) {
+            return false;
+          }
+          foundTime = valueKind;
+          timeValue = valueInt;
+        } else if (keyEquals(keyStart, keyEnd, LIFT_KEY)) {
+          if (!parseField()) {
+            return false;
+          }
+          foundLift = valueKind;
+          liftValue = valueInt;
+        } else if (!skipValue(0)) {
+          return false;
+        }
+        skipWhitespace();
+        if (pos >= length) {
+          return false;
+        }
+        byte b = buffer[pos++];
+        if (b == '}') {
+          break;
+        }
+        if (b != ',') {
+          return false;
+        }
+      }
+    }
+    skipWhitespace();
+    if (pos != length) {
+      return false;
+    }
+
+    bodyError = foundTime == VALUE_NULL || foundLift == VALUE_NULL ? MISSING_FIELDS : checkRide(timeValue, liftValue);
+    return true;
+  }
+
+  /**
+   * The servlet's original handling: the body read line by line through getReader (dropping
+   * the line breaks), then Gson's lenient parse and getAsInt.
+   */
+  private String parseWithGson(String characterEncoding) throws UnsupportedEncodingException {
+    String body = new String(buffer, 0, length, charsetFor(characterEncoding)).replace("\r", "").replace("\n", "");
+    if (body.trim().isEmpty()) {
+      return EMPTY_BODY;
+    }
+
+    JsonObject jsonObject;
+    try {
+      jsonObject = GSON.fromJson(body, JsonObject.class);
+    } catch (JsonSyntaxException e) {
+      return INVALID_JSON;
+    }
+    // Gson reads a body of only comments as no document; that used to be a NullPointerException (500)
+    if (jsonObject == null) {
+      return INVALID_JSON;
+    }
+
+    if (!jsonObject.has("time") || jsonObject.get("time").isJsonNull()
+        || !jsonObject.has("liftID") || jsonObject.get("liftID").isJsonNull()) {
+      return MISSING_FIELDS;
+    }
+    int timeValue;
+    int liftValue;
+    try {
+      timeValue = jsonObject.get("time").getAsInt();
+      liftValue = jsonObject.get("liftID").getAsInt();
+    } catch (UnsupportedOperationException | NumberFormatException | IllegalStateException e) {
+      // IllegalStateException (an array of other than one element) used to surface as a 500
+      return INVALID_FIELDS;
+    }
+    return checkRide(timeValue, liftValue);
+  }
+
+  private static Charset charsetFor(String characterEncoding) throws UnsupportedEncodingException {
+    if (characterEncoding == null) {
+      return StandardCharsets.ISO_8859_1;
+    }
+    try {
+      return Charset.forName(characterEncoding);
+    } catch (IllegalArgumentException e) {
+      throw new UnsupportedEncodingException(characterEncoding);
+    }
+  }
+
+  private String checkRide(int timeValue, int liftValue) {
+    if (timeValue < 0 || timeValue > MAX_MINUTES_IN_DAY) {
+      return INVALID_TIME;
+    }
+    if (liftValue < 1) {
+      return INVALID_LIFT;
+    }
+    time = timeValue;
+    liftID = liftValue;
+    return null;
+  }
+
+  private void skipWhitespace() {
+    while (pos < length) {
+      byte b = buffer[pos];
+      if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  // A string of printable ASCII without escapes; leaves pos just past the closing quote
+  private boolean skipPlainString() {
+    if (pos >= length || buffer[pos] != '"') {
+      return false;
+    }
+    pos++;
+    while (pos < length) {
+      byte b = buffer[pos++];
+      if (b == '"') {
+        return true;
+      }
+      if (b < 0x20 || b > 0x7e || b == '\\') {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * time or liftID: an integer literal in int range sets VALUE_INT, null sets VALUE_NULL.
+   */
+  private boolean parseField() {
+    if (matchLiteral("null")) {
+      valueKind = VALUE_NULL;
+      return true;
+    }
+    int start = pos;
+    if (!skipInteger()) {
+      return false;
+    }
+    boolean negative = buffer[start] == '-';
+    int digits = pos - start - (negative ? 1 : 0);
+    if (digits > 10) {
+      return false;
+    }
+    long value = 0;
+    for (int i = negative ? start + 1 : start; i < pos; i++) {
+      value = value * 10 + (buffer[i] - '0');
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+      return false;
+    }
+    valueKind = VALUE_INT;
+    valueInt = (int) value;
+    return true;
+  }
+
+  // -?(0|[1-9][0-9]*)
+  private boolean skipInteger() {
+    if (pos < length && buffer[pos] == '-') {
+      pos++;
+    }
+    if (pos >= length || !isDigit(buffer[pos])) {
+      return false;
+    }
+    if (buffer[pos++] != '0') {
+      while (pos < length && isDigit(buffer[pos])) {
+        pos++;
+      }
+    }
+    return true;
+  }
+
+  // Any other field's value, which only has to be well-formed
+  private boolean skipValue(int depth) {
+    if (pos >= length) {
+      return false;
+    }
+    byte b = buffer[pos];
+    if (b == '"') {
+      return skipPlainString();
+    }
+    if (b == '-' || isDigit(b)) {
+      return skipNumber();
+    }
+    if (b == '{' || b == '[') {
+      return depth < MAX_DEPTH && skipContainer(depth);
+    }
+    return matchLiteral("null") || matchLiteral("true") || matchLiteral("false");
+  }
+
+  private boolean skipNumber() {
+    if (!skipInteger()) {
+      return false;
+    }
+    if (pos < length && buffer[pos] == '.') {
+      pos++;
+      if (!skipDigits()) {
+        return false;
+      }
+    }
+    if (pos < length && (buffer[pos] == 'e' || buffer[pos] == 'E')) {
+      pos++;
+      if (pos < length && (buffer[pos] == '+' || buffer[pos] == '-')) {
+        pos++;
+      }
+      return skipDigits();
+    }
+    return true;
+  }
+
+  private boolean skipDigits() {
+    int start = pos;
+    while (pos < length && isDigit(buffer[pos])) {
+      pos++;
+    }
+    return pos > start;
+  }
+
+  private boolean skipContainer(int depth) {
+    boolean object = buffer[pos++] == '{';
+    byte close = (byte) (object ? '}' : ']');
+    skipWhitespace();
+    if (pos < length && buffer[pos] == close) {
+      pos++;
+      return true;
+    }
+    while (true) {
+      skipWhitespace();
+      if (object) {
+        if (!skipPlainString()) {
+          return false;
+        }
+        skipWhitespace();
+        if (pos >= length || buffer[pos] != ':') {
+          return false;
+        }
+        pos++;
+        skipWhitespace();
+      }
+      if (!skipValue(depth + 1)) {
+        return false;
+      }
+      skipWhitespace();
+      if (pos >= length) {
+        return false;
+      }
+      byte b = buffer[pos++];
+      if (b == close) {
+        return true;
+      }
+      if (b != ',') {
+        return false;
+      }
+    }
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  private boolean matchLiteral(String literal) {
+    int n = literal.length();
+    if (pos + n > length) {
+      return false;
+    }
+    for (int i = 0; i < n; i++) {
+      if (buffer[pos + i] != literal.charAt(i)) {
+        return false;
+      }
+    }
+    pos += n;
+    return true;
+  }
+
+  private boolean keyEquals(int start, int end, byte[] key) {
+    if (end - start != key.length) {
+      return false;
+    }
+    for (int i = 0; i < key.length; i++) {
+      if (buffer[start + i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getResortID() {
+    return resortID;
+  }
+
+  public int getSeasonID() {
+    return seasonID;
+  }
+
+  public int getDayID() {
+    return dayID;
+  }
+
+  public int getSkierID() {
+    return skierID;
+  }
+
+  public int getTime() {
+    return time;
+  }
+
+  public int getLiftID() {
+    return liftID;
+  }
+}
@@ -0,0 +1,28 @@
+package api;
+
+import java.io.IOException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import metrics.ServerMetrics;
+
+/**
+ * GET /metrics: the {@link ServerMetrics} registered by SkierServlet, in Prometheus text format.
+ */
+public class MetricsServlet extends HttpServlet {
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    ServerMetrics metrics = (ServerMetrics) getServletContext().getAttribute(ServerMetrics.CONTEXT_ATTRIBUTE);
+    if (metrics == null) {
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Metrics are not registered yet");
+      return;
+    }
+    StringBuilder out = new StringBuilder(8192);
+    metrics.writeTo(out);
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(CONTENT_TYPE);
+    response.getWriter().write(out.toString());
+  }
+}
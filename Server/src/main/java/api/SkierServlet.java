@@ -1,191 +1,600 @@
 package api;
 
 import com.google.gson.Gson;
+import admission.AdmissionController;
+import codec.LiftRideCodec;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonSyntaxException;
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import metrics.AtomicHistogram;
+import metrics.SampledLogger;
+import metrics.ServerMetrics;
+import publish.BatchingPublisher;
+import publish.PublishRejectedException;
+import query.QueryCache;
+import query.ReadModelClient;
+import query.ReadModelClient.QueryResult;
+import rmqpool.ChannelPoolExhaustedException;
 import rmqpool.RMQChannelFactory;
 import rmqpool.RMQChannelPool;
+import routing.ShardRouting;
 
 public class SkierServlet extends HttpServlet {
   private final Gson gson = new Gson();
-  private static final int MAX_MINUTES_IN_DAY = 1440;
-  private static final int MAX_DAYS_IN_YEAR = 366;
-  private static final String YEAR_PATTERN = "\\d{4}";
-  private static final String QUEUE_NAME = "ski_lift_queue";
+  private static final String SUCCESS_BODY = "{\"message\":\"Lift ride recorded successfully\"}";
 
-  // RabbitMQ Connection & Channel Pool
+  // RabbitMQ Connection & Channel Pool; the host can be overridden with init-param rabbitMQHost,
+  // or a Connection supplied under CONNECTION_ATTRIBUTE (e.g. an in-process broker) is used as is
+  public static final String CONNECTION_ATTRIBUTE = SkierServlet.class.getName() + ".connection";
   private static final String RABBITMQ_HOST = "54.203.218.195";
-  private static final int CHANNEL_POOL_SIZE = 30;
+  private static final int CHANNEL_POOL_MIN = 10;
+  private static final int CHANNEL_POOL_MAX = 30;
+  private static final int CHANNEL_BORROW_TIMEOUT_MS = 1000;
   private Connection rabbitMQConnection;
+  // False for a supplied connection: whoever put it under CONNECTION_ATTRIBUTE closes it
+  private boolean ownsConnection;
   private RMQChannelPool channelPool;
 
+  // shardCount > 1 splits the ride queue into shards on a direct exchange, routed by shardKey
+  // (skier or resort); the consumer must run with the same shard count
+  private ShardRouting routing;
+
+  // Batching publisher defaults, overridable through servlet init-params in web.xml
+  private static final int DEFAULT_PUBLISH_BATCH_SIZE = 100;
+  private static final int DEFAULT_PUBLISH_LINGER_MS = 5;
+  private static final int DEFAULT_PUBLISHER_THREADS = 8;
+  private static final int DEFAULT_CONFIRM_TIMEOUT_MS = 5000;
+  private BatchingPublisher publisher;
+  private long confirmTimeoutMillis;
+
+  // Queue message format: "binary" (compact codec layout) or "json" for older consumers
+  private boolean binaryMessages;
+  private AMQP.BasicProperties messageProperties;
+
+  // The client's Idempotency-Key becomes the AMQP messageId the consumer deduplicates on;
+  // requests without one get a server-assigned ID so broker redeliveries are still caught
+  private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+  private final String serverMessagePrefix = "srv-" + Long.toHexString(new SecureRandom().nextLong()) + "-";
+  private final AtomicLong serverMessageIds = new AtomicLong();
+
+  // "async" completes POSTs from the publish-confirm callback instead of holding the
+  // container thread; "sync" keeps the blocking path for A/B comparisons
+  private static final int DEFAULT_RESPONSE_THREADS = 4;
+  private boolean asyncMode;
+  private ExecutorService responseExecutor;
+
+  // GET queries are answered by the consumer's read API through a bounded TTL cache
+  private static final String DEFAULT_READ_MODEL_URL = "http://172.31.21.217:8081";
+  private static final int DEFAULT_QUERY_CACHE_SIZE = 10000;
+  private static final int DEFAULT_QUERY_CACHE_TTL_MS = 1000;
+  private static final int DEFAULT_READ_TIMEOUT_MS = 2000;
+  private ReadModelClient readModel;
+  private QueryCache<String, QueryResult> queryCache;
+
+  // Admission control: POSTs are refused with 503/429 and Retry-After while the queue is backed
+  // up or publishing is congested; a limit of 0 disables that check
+  private static final int DEFAULT_MAX_QUEUE_DEPTH = 100000;
+  private static final int DEFAULT_MAX_PUBLISH_LATENCY_MS = 1000;
+  private static final int DEFAULT_MAX_POOL_WAITERS = 50;
+  private static final int DEFAULT_MAX_PENDING_PUBLISHES = 20000;
+  private static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+  private static final int DEFAULT_ADMISSION_SAMPLE_MS = 250;
+  private AdmissionController admission;
+
+  // Exposed on /metrics by MetricsServlet; failures are logged at most once per interval
+  private static final SampledLogger publishFailureLog =
+      new SampledLogger(Logger.getLogger(SkierServlet.class.getName()), 10_000);
+  private ServerMetrics metrics;
+  private AtomicHistogram parseTime;
+  private AtomicHistogram publishTime;
+  private AtomicHistogram readModelTime;
+  private AtomicHistogram postTime;
+  private AtomicHistogram getTime;
+
   @Override
   public void init() throws ServletException {
     try {
-      ConnectionFactory factory = new ConnectionFactory();
-      factory.setHost(RABBITMQ_HOST);
-      factory.setUsername("admin");  // Set the new username you created
-      factory.setPassword("admin");
-      rabbitMQConnection = factory.newConnection();
-      RMQChannelFactory channelFactory = new RMQChannelFactory(rabbitMQConnection);
-      channelPool = new RMQChannelPool(CHANNEL_POOL_SIZE, channelFactory);
+      Object supplied = getServletContext().getAttribute(CONNECTION_ATTRIBUTE);
+      if (supplied instanceof Connection) {
+        rabbitMQConnection = (Connection) supplied;
+      } else {
+        String host = getInitParameter("rabbitMQHost");
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost(host == null || host.isBlank() ? RABBITMQ_HOST : host.trim());
+        factory.setUsername("admin");  // Set the new username you created
+        factory.setPassword("admin");
+        rabbitMQConnection = factory.newConnection();
+        ownsConnection = true;
+      }
+      RMQChannelFactory channelFactory = new RMQChannelFactory(rabbitMQConnection, true);
+      channelPool = new RMQChannelPool(intInitParam("channelPoolMin", CHANNEL_POOL_MIN),
+          intInitParam("channelPoolMax", CHANNEL_POOL_MAX),
+          intInitParam("channelBorrowTimeoutMillis", CHANNEL_BORROW_TIMEOUT_MS), channelFactory);
+
+      int shardCount = intInitParam("shardCount", 1);
+      try {
+        routing = ShardRouting.of(shardCount, getInitParameter("shardKey"));
+      } catch (IllegalArgumentException e) {
+        throw new ServletException("Invalid init-param shardCount or shardKey", e);
+      }
+      declareTopology();
+
+      String messageFormat = getInitParameter("messageFormat");
+      binaryMessages = messageFormat == null || !"json".equalsIgnoreCase(messageFormat.trim());
+      messageProperties = new AMQP.BasicProperties.Builder()
+          .contentType(binaryMessages ? LiftRideCodec.CONTENT_TYPE_BINARY : LiftRideCodec.CONTENT_TYPE_JSON)
+          .deliveryMode(2)
+          .build();
+
+      confirmTimeoutMillis = intInitParam("confirmTimeoutMillis", DEFAULT_CONFIRM_TIMEOUT_MS);
+      publisher = new BatchingPublisher(channelPool, routing.exchange(), routing.routingKey(0),
+          intInitParam("publishBatchSize", DEFAULT_PUBLISH_BATCH_SIZE),
+          intInitParam("publishLingerMillis", DEFAULT_PUBLISH_LINGER_MS),
+          intInitParam("publisherThreads", DEFAULT_PUBLISHER_THREADS),
+          confirmTimeoutMillis);
+
+      admission = new AdmissionController(rabbitMQConnection, routing.queueNames(), channelPool, publisher,
+          intInitParam("admissionMaxQueueDepth", DEFAULT_MAX_QUEUE_DEPTH),
+          intInitParam("admissionMaxPublishLatencyMillis", DEFAULT_MAX_PUBLISH_LATENCY_MS),
+          intInitParam("admissionMaxPoolWaiters", DEFAULT_MAX_POOL_WAITERS),
+          intInitParam("admissionMaxPendingPublishes", DEFAULT_MAX_PENDING_PUBLISHES),
+          intInitParam("retryAfterSeconds", DEFAULT_RETRY_AFTER_SECONDS),
+          intInitParam("admissionSampleMillis", DEFAULT_ADMISSION_SAMPLE_MS));
+
+      String processingMode = getInitParameter("processingMode");
+      asyncMode = processingMode != null && "async".equalsIgnoreCase(processingMode.trim());
+      if (asyncMode) {
+        responseExecutor = Executors.newFixedThreadPool(intInitParam("responseThreads", DEFAULT_RESPONSE_THREADS), r -> {
+          Thread thread = new Thread(r, "post-response");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+
+      String readModelUrl = getInitParameter("readModelUrl");
+      readModel = new ReadModelClient(readModelUrl == null ? DEFAULT_READ_MODEL_URL : readModelUrl.trim(),
+          intInitParam("readTimeoutMillis", DEFAULT_READ_TIMEOUT_MS));
+      queryCache = new QueryCache<>(intInitParam("queryCacheSize", DEFAULT_QUERY_CACHE_SIZE),
+          intInitParam("queryCacheTtlMillis", DEFAULT_QUERY_CACHE_TTL_MS));
+
+      registerMetrics();
     } catch (Exception e) {
       throw new ServletException("Failed to initialize RabbitMQ connection", e);
     }
   }
 
-  @Override
-  protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-    String[] pathParts = request.getPathInfo().split("/");
+  /**
+   * Declares the shard queues (and, when sharded, the exchange and bindings) once here rather
+   * than on every publish. Binding is idempotent, so server and consumer both declare.
+   */
+  private void declareTopology() throws IOException, ServletException {
+    for (int shard = 0; shard < routing.getShardCount(); shard++) {
+      declareQueue(routing.queueName(shard));
+    }
+    if (routing.isSharded()) {
+      try (Channel channel = rabbitMQConnection.createChannel()) {
+        channel.exchangeDeclare(routing.exchange(), "direct", true);
+        for (int shard = 0; shard < routing.getShardCount(); shard++) {
+          channel.queueBind(routing.queueName(shard), routing.exchange(), routing.routingKey(shard));
+        }
+      } catch (Exception e) {
+        throw new IOException("Failed to declare exchange " + routing.exchange(), e);
+      }
+      log("Publishing to " + routing);
+    }
+  }
 
-    if (pathParts.length != 8) {
-      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL path format");
-      return;
+  /**
+   * Declares one queue with the optional broker-side limit (init-params queueMaxLength and
+   * queueOverflow). A queue that already exists with other arguments is used as it is: RabbitMQ
+   * refuses to change them, so the limit has to be applied by deleting the queue or with a policy.
+   */
+  private void declareQueue(String queueName) throws IOException, ServletException {
+    Map<String, Object> arguments = new HashMap<>();
+    int maxLength = intInitParam("queueMaxLength", 0);
+    if (maxLength > 0) {
+      String overflow = getInitParameter("queueOverflow");
+      arguments.put("x-max-length", maxLength);
+      // reject-publish nacks new messages (503 to the client) instead of dropping queued rides
+      arguments.put("x-overflow", overflow == null || overflow.isBlank() ? "reject-publish" : overflow.trim());
+    }
+    try (Channel channel = rabbitMQConnection.createChannel()) {
+      channel.queueDeclare(queueName, true, false, false, arguments.isEmpty() ? null : arguments);
+    } catch (IOException e) {
+      if (arguments.isEmpty()) {
+        throw e;
+      }
+      // PRECONDITION_FAILED closes the channel; confirm the queue exists on a fresh one
+      log("Queue " + queueName + " exists with different arguments, keeping them: " + e.getMessage());
+      try (Channel channel = rabbitMQConnection.createChannel()) {
+        channel.queueDeclarePassive(queueName);
+      } catch (Exception passive) {
+        throw new ServletException("Queue " + queueName + " is not available", passive);
+      }
+    } catch (Exception e) {
+      throw new IOException("Failed to declare queue " + queueName, e);
     }
+  }
 
-    String resortID = pathParts[1];
-    String seasonID = pathParts[3];
-    String dayID = pathParts[5];
-    String skierID = pathParts[7];
+  private void registerMetrics() {
+    metrics = new ServerMetrics();
+    String stages = "skier_stage_duration_seconds";
+    String stagesHelp = "Time spent in each stage of request handling";
+    parseTime = metrics.histogram(stages, stagesHelp, "stage", "parse");
+    metrics.histogram(stages, stagesHelp, "stage", "channel_borrow_wait", channelPool.getBorrowWaitHistogram());
+    publishTime = metrics.histogram(stages, stagesHelp, "stage", "publish");
+    readModelTime = metrics.histogram(stages, stagesHelp, "stage", "read_model");
+    String requests = "skier_request_duration_seconds";
+    String requestsHelp = "Total request handling time by method";
+    postTime = metrics.histogram(requests, requestsHelp, "method", "POST");
+    getTime = metrics.histogram(requests, requestsHelp, "method", "GET");
 
-    try {
-      int resortIDInt = Integer.parseInt(resortID);
-      if (resortIDInt <= 0) {
-        sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Resort ID must be positive");
-        return;
-      }
+    metrics.gauge("rmq_channel_pool_active", "Channels currently borrowed", channelPool::getActiveCount);
+    metrics.gauge("rmq_channel_pool_idle", "Channels idle in the pool", channelPool::getIdleCount);
+    metrics.gauge("rmq_channel_pool_waiters", "Threads waiting to borrow a channel", channelPool::getWaiterCount);
+    metrics.gauge("rmq_channel_pool_max", "Maximum pool size", channelPool::getMaxTotal);
+    metrics.counter("rmq_channel_pool_created_total", "Channels created", channelPool::getCreatedCount);
+    metrics.counter("rmq_channel_pool_destroyed_total", "Channels destroyed", channelPool::getDestroyedCount);
+    metrics.counter("rmq_channel_pool_creation_failures_total", "Channel creations that failed",
+        channelPool::getCreationFailures);
+    metrics.gauge("publisher_pending_messages", "Messages waiting for a publisher thread", publisher::getPendingCount);
+    metrics.counter("query_cache_hits_total", "Read query cache hits", queryCache::getHits);
+    metrics.counter("query_cache_misses_total", "Read query cache misses", queryCache::getMisses);
+    metrics.gauge("admission_shedding", "1 while new POSTs are refused", admission::getShedding);
+    metrics.gauge("admission_queue_depth", "Queue depth at the last sample", admission::getQueueDepth);
+    metrics.counter("admission_rejected_queue_total", "POSTs refused (503) for queue depth",
+        admission::getRejectedForQueue);
+    metrics.counter("admission_rejected_congestion_total", "POSTs refused (429) for publish congestion",
+        admission::getRejectedForCongestion);
+    getServletContext().setAttribute(ServerMetrics.CONTEXT_ATTRIBUTE, metrics);
+  }
+
+  private void recordRequest(AtomicHistogram timer, int status, long startNanos) {
+    timer.recordNanos(System.nanoTime() - startNanos);
+    metrics.countResponse(status);
+  }
+
+  /**
+   * GET /skiers/{resortID}/seasons/{seasonID}/days/{dayID}/skiers/{skierID}: rides and vertical
+   * GET /resorts/{resortID}/seasons/{seasonID}/day/{dayID}/skiers: unique skiers that day
+   */
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    long startNanos = System.nanoTime();
+    recordRequest(getTime, handleGet(request, response), startNanos);
+  }
 
-      if (!seasonID.matches(YEAR_PATTERN)) {
-        sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Season ID must be a 4-digit year");
-        return;
+  // Writes the response and returns its status
+  private int handleGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String queryPath;
+    if ("/resorts".equals(request.getServletPath())) {
+      queryPath = resortDayQueryPath(request.getPathInfo());
+      if (queryPath == null) {
+        sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL path format");
+        return HttpServletResponse.SC_BAD_REQUEST;
       }
+    } else {
+      LiftRideParser parser = LiftRideParser.forCurrentThread();
+      String error = parser.parsePath(request.getPathInfo());
+      if (error != null) {
+        sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, error);
+        return HttpServletResponse.SC_BAD_REQUEST;
+      }
+      queryPath = "/skiers/" + parser.getResortID() + "/seasons/" + parser.getSeasonID()
+          + "/days/" + parser.getDayID() + "/skiers/" + parser.getSkierID();
+    }
 
-      int dayIDInt = Integer.parseInt(dayID);
-      if (dayIDInt < 1 || dayIDInt > MAX_DAYS_IN_YEAR) {
-        sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Day ID must be between 1 and 366");
-        return;
+    QueryResult result = queryCache.get(queryPath);
+    response.setHeader("X-Cache", result == null ? "MISS" : "HIT");
+    if (result == null) {
+      long fetchStart = System.nanoTime();
+      try {
+        result = readModel.fetch(queryPath);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        sendErrorResponse(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Read model unavailable.");
+        return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+      } catch (IOException e) {
+        sendErrorResponse(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Read model unavailable.");
+        return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+      } finally {
+        readModelTime.recordNanos(System.nanoTime() - fetchStart);
+      }
+      // Found and not-found answers are both worth caching; errors are not
+      if (result.getStatus() == HttpServletResponse.SC_OK || result.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
+        queryCache.put(queryPath, result);
       }
+    }
+
+    response.setStatus(result.getStatus());
+    response.setContentType("application/json");
+    response.getWriter().write(result.getBody());
+    return result.getStatus();
+  }
 
-      int skierIDInt = Integer.parseInt(skierID);
-      if (skierIDInt <= 0) {
-        sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Skier ID must be positive");
-        return;
+  // Validates /{resortID}/seasons/{seasonID}/day/{dayID}/skiers and returns the read API path
+  private static String resortDayQueryPath(String pathInfo) {
+    if (pathInfo == null) {
+      return null;
+    }
+    String[] parts = pathInfo.split("/");
+    if (parts.length != 7 || !"seasons".equals(parts[2]) || !"day".equals(parts[4]) || !"skiers".equals(parts[6])) {
+      return null;
+    }
+    try {
+      // parseInt accepts a sign, so check the season's digits directly
+      if (!isFourDigitYear(parts[3])) {
+        return null;
       }
+      int resortID = Integer.parseInt(parts[1]);
+      int seasonID = Integer.parseInt(parts[3]);
+      int dayID = Integer.parseInt(parts[5]);
+      if (resortID <= 0 || dayID < 1 || dayID > 366) {
+        return null;
+      }
+      return "/resorts/" + resortID + "/seasons/" + seasonID + "/day/" + dayID + "/skiers";
     } catch (NumberFormatException e) {
-      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid numeric parameter format");
-      return;
+      return null;
     }
+  }
 
-    // Read JSON body from request
-    StringBuilder jsonBody = new StringBuilder();
-    String line;
-    try (BufferedReader reader = request.getReader()) {
-      while ((line = reader.readLine()) != null) {
-        jsonBody.append(line);
+  private static boolean isFourDigitYear(String value) {
+    if (value.length() != 4) {
+      return false;
+    }
+    for (int i = 0; i < 4; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
       }
     }
+    return true;
+  }
 
-    if (jsonBody.toString().trim().isEmpty()) {
-      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Empty request body.");
+  @Override
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    long startNanos = System.nanoTime();
+    // Refuse before reading the body so an overloaded server spends as little as possible on it
+    AdmissionController.Decision decision = admission.admit();
+    if (!decision.isAdmitted()) {
+      response.setHeader("Retry-After", Integer.toString(decision.getRetryAfterSeconds()));
+      sendErrorResponse(response, decision.getStatus(), decision.getStatus() == 429
+          ? "Server is busy, slow down and try again later." : "Message queue is backed up, try again later.");
+      recordRequest(postTime, decision.getStatus(), startNanos);
       return;
     }
+    LiftRideParser parser = LiftRideParser.forCurrentThread();
 
-    JsonObject jsonObject;
-    try {
-      jsonObject = gson.fromJson(jsonBody.toString(), JsonObject.class);
-    } catch (JsonSyntaxException e) {
-      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid JSON format.");
+    String error = parser.parsePath(request.getPathInfo());
+    if (error == null) {
+      error = parser.parseBody(request.getInputStream(), request.getCharacterEncoding());
+    }
+    String messageId = null;
+    if (error == null) {
+      messageId = messageIdFor(request);
+      if (messageId == null) {
+        error = "Invalid " + IDEMPOTENCY_KEY_HEADER + " header";
+      }
+    }
+    byte[] message = error == null ? encodeMessage(parser) : null;
+    parseTime.recordNanos(System.nanoTime() - startNanos);
+    if (error != null) {
+      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, error);
+      recordRequest(postTime, HttpServletResponse.SC_BAD_REQUEST, startNanos);
       return;
     }
 
-    if (!jsonObject.has("time") || jsonObject.get("time").isJsonNull() ||
-        !jsonObject.has("liftID") || jsonObject.get("liftID").isJsonNull()) {
-      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Missing required fields: time and liftID.");
+    AMQP.BasicProperties properties = messageProperties.builder().messageId(messageId).build();
+    String routingKey = routing.routingKey(routing.shardFor(parser.getResortID(), parser.getSkierID()));
+    if (asyncMode && request.isAsyncSupported()) {
+      publishAsync(request, message, properties, routingKey, startNanos);
       return;
     }
+    long publishStart = System.nanoTime();
+    int status = sendMessageToQueue(message, properties, routingKey);
+    long publishNanos = System.nanoTime() - publishStart;
+    publishTime.recordNanos(publishNanos);
+    admission.recordPublishLatency(publishNanos);
+    writePublishResult(response, status);
+    recordRequest(postTime, status, startNanos);
+  }
 
-    int time, liftID;
-    try {
-      time = jsonObject.get("time").getAsInt();
-      liftID = jsonObject.get("liftID").getAsInt();
-    } catch (UnsupportedOperationException | NumberFormatException e) {
-      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid time or liftID.");
+  /**
+   * Releases the container thread; the response is written once the publisher confirms (or
+   * fails) the message, on the small response pool so publisher threads never block on
+   * slow clients.
+   */
+  private void publishAsync(HttpServletRequest request, byte[] message, AMQP.BasicProperties properties,
+      String routingKey, long startNanos) {
+    AsyncContext asyncContext = request.startAsync();
+    asyncContext.setTimeout(confirmTimeoutMillis * 2);
+    AtomicBoolean completed = new AtomicBoolean();
+
+    asyncContext.addListener(new AsyncListener() {
+      @Override
+      public void onTimeout(AsyncEvent event) throws IOException {
+        finishAsync(asyncContext, completed, HttpServletResponse.SC_SERVICE_UNAVAILABLE, startNanos);
+      }
+
+      @Override
+      public void onError(AsyncEvent event) throws IOException {
+        finishAsync(asyncContext, completed, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, startNanos);
+      }
+
+      @Override
+      public void onComplete(AsyncEvent event) {
+      }
+
+      @Override
+      public void onStartAsync(AsyncEvent event) {
+      }
+    });
+
+    long publishStart = System.nanoTime();
+    CompletableFuture<Void> confirmed = publisher.publish(message, properties, routingKey);
+    confirmed.whenCompleteAsync((ignored, failure) -> {
+      long publishNanos = System.nanoTime() - publishStart;
+      publishTime.recordNanos(publishNanos);
+      admission.recordPublishLatency(publishNanos);
+      int status = failure == null ? HttpServletResponse.SC_CREATED : publishFailureStatus(unwrap(failure));
+      try {
+        finishAsync(asyncContext, completed, status, startNanos);
+      } catch (IOException | IllegalStateException e) {
+        // Client went away or the request already timed out; nothing left to write
+      }
+    }, responseExecutor);
+  }
+
+  private void finishAsync(AsyncContext asyncContext, AtomicBoolean completed, int status, long startNanos)
+      throws IOException {
+    if (!completed.compareAndSet(false, true)) {
       return;
     }
+    try {
+      writePublishResult((HttpServletResponse) asyncContext.getResponse(), status);
+    } finally {
+      asyncContext.complete();
+      recordRequest(postTime, status, startNanos);
+    }
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+  }
 
-    if (time < 0 || time > MAX_MINUTES_IN_DAY) {
-      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Time must be between 0 and 1440");
+  private void writePublishResult(HttpServletResponse response, int publishStatus) throws IOException {
+    if (publishStatus == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+      response.setHeader("Retry-After", Integer.toString(admission.getRetryAfterSeconds()));
+      sendErrorResponse(response, publishStatus, "Message queue is busy, try again later.");
       return;
     }
-
-    if (liftID < 1) {
-      sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Lift ID must be positive");
+    if (publishStatus != HttpServletResponse.SC_CREATED) {
+      sendErrorResponse(response, publishStatus, "Failed to send message to queue.");
       return;
     }
 
-    // Prepare message for RabbitMQ
-    JsonObject message = new JsonObject();
-    message.addProperty("resortID", resortID);
-    message.addProperty("seasonID", seasonID);
-    message.addProperty("dayID", dayID);
-    message.addProperty("skierID", skierID);
-    message.addProperty("time", time);
-    message.addProperty("liftID", liftID);
+    response.setStatus(HttpServletResponse.SC_CREATED);
+    response.setContentType("application/json");
+    response.getWriter().write(SUCCESS_BODY);
+  }
 
-    boolean sentSuccessfully = sendMessageToQueue(message.toString());
+  /**
+   * The client's Idempotency-Key, or a server-assigned ID when there is none; null if the
+   * header is present but empty, too long or not printable ASCII.
+   */
+  private String messageIdFor(HttpServletRequest request) {
+    String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+    if (key == null) {
+      return serverMessagePrefix + Long.toHexString(serverMessageIds.incrementAndGet());
+    }
+    if (key.isEmpty() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+      return null;
+    }
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c < 0x21 || c > 0x7e) {
+        return null;
+      }
+    }
+    return key;
+  }
 
-    if (!sentSuccessfully) {
-      sendErrorResponse(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to send message to queue.");
-      return;
+  private byte[] encodeMessage(LiftRideParser parser) {
+    if (binaryMessages) {
+      return LiftRideCodec.encodeBinary(parser.getResortID(), parser.getSeasonID(), parser.getDayID(),
+          parser.getSkierID(), parser.getTime(), parser.getLiftID());
     }
+    return LiftRideCodec.encodeJson(parser.getResortID(), parser.getSeasonID(), parser.getDayID(),
+        parser.getSkierID(), parser.getTime(), parser.getLiftID());
+  }
 
-    response.setStatus(HttpServletResponse.SC_CREATED);
-    response.setContentType("application/json");
-    JsonObject successResponse = new JsonObject();
-    successResponse.addProperty("message", "Lift ride recorded successfully");
-    response.getWriter().write(gson.toJson(successResponse));
+  // Blocks until the batch carrying this message has been confirmed by the broker
+  // Returns 201 once confirmed, 503 when no channel or confirm arrived in time, else 500
+  private int sendMessageToQueue(byte[] message, AMQP.BasicProperties properties, String routingKey) {
+    try {
+      publisher.publish(message, properties, routingKey).get(confirmTimeoutMillis * 2, TimeUnit.MILLISECONDS);
+      return HttpServletResponse.SC_CREATED;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+    } catch (TimeoutException e) {
+      return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+    } catch (ExecutionException e) {
+      return publishFailureStatus(e.getCause());
+    }
   }
 
-  private boolean sendMessageToQueue(String message) {
-    Channel channel = null;
+  static int publishFailureStatus(Throwable cause) {
+    if (cause instanceof ChannelPoolExhaustedException || cause instanceof PublishRejectedException
+        || cause instanceof TimeoutException) {
+      return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+    }
+    publishFailureLog.log(Level.WARNING, "Publish failed", cause);
+    return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+  }
+
+  private int intInitParam(String name, int defaultValue) throws ServletException {
+    String value = getInitParameter(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
     try {
-      channel = channelPool.borrowObject();
-      channel.queueDeclare(QUEUE_NAME, true, false, false, null);
-      channel.basicPublish("", QUEUE_NAME, null, message.getBytes(StandardCharsets.UTF_8));
-      System.out.println("Message sent to queue: " + message);
-      return true;
-    } catch (Exception e) {
-      e.printStackTrace();
-      return false;
-    } finally {
-      if (channel != null) {
-        try {
-          channelPool.returnObject(channel);
-        } catch (Exception e) {
-          e.printStackTrace();
-        }
-      }
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid init-param " + name + ": " + value, e);
     }
   }
 
   @Override
   public void destroy() {
+    if (admission != null) {
+      log(admission.statsReport());
+      admission.close();
+    }
+    if (publisher != null) {
+      publisher.close();
+    }
+    if (responseExecutor != null) {
+      responseExecutor.shutdown();
+    }
+    if (queryCache != null) {
+      log(queryCache.statsReport());
+    }
+    if (channelPool != null) {
+      log(channelPool.statsReport());
+      channelPool.close();
+    }
     try {
-      if (rabbitMQConnection != null) {
+      if (ownsConnection && rabbitMQConnection != null) {
         rabbitMQConnection.close();
       }
     } catch (Exception e) {
-      e.printStackTrace();
+      log("Failed to close RabbitMQ connection", e);
     }
   }
 
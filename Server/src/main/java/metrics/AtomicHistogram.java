@@ -0,0 +1,72 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram that request threads record into without locking.
+ *
+ * Each bucket is a LongAdder, so threads recording similar latencies at the same time spread
+ * over separate cells instead of contending on one counter. Bucket bounds follow a 1-2.5-5
+ * series from 25 µs to 10 s, the cumulative "le" layout Prometheus expects, so quantiles are
+ * computed by the scraper rather than on the request path.
+ */
+public final class AtomicHistogram {
+  static final long[] BOUNDS_MICROS = {
+      25, 50, 100, 250, 500,
+      1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+      1_000_000, 2_500_000, 5_000_000, 10_000_000
+  };
+
+  // One more bucket than bounds for values above the last bound (+Inf)
+  private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length + 1];
+  private final LongAdder sumMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+  public AtomicHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void recordNanos(long nanos) {
+    recordMicros(nanos / 1000);
+  }
+
+  public void recordMicros(long micros) {
+    // An exact match belongs to that bound's bucket (le is inclusive), otherwise the next one up
+    int index = Arrays.binarySearch(BOUNDS_MICROS, micros);
+    buckets[index >= 0 ? index : -index - 1].increment();
+    sumMicros.add(micros);
+    maxMicros.accumulate(micros);
+  }
+
+  /**
+   * Per-bucket counts, not cumulative; the last entry is the overflow bucket. Recordings that
+   * race with the snapshot may be missing from it but are never double counted.
+   */
+  public long[] bucketCounts() {
+    long[] counts = new long[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  public long getSumMicros() {
+    return sumMicros.sum();
+  }
+
+  public long getMaxMicros() {
+    return maxMicros.get();
+  }
+}
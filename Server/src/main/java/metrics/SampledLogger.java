@@ -0,0 +1,40 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Rate-limited logging for messages that could otherwise be written once per request.
+ *
+ * Nothing is formatted or counted when the level is disabled. Otherwise at most one record per
+ * interval reaches the logger, carrying the number of similar messages suppressed since the
+ * previous one, so a failing broker can't turn every request into a synchronous console write.
+ */
+public final class SampledLogger {
+  private final Logger logger;
+  private final long intervalNanos;
+  private final AtomicLong nextAllowed;
+  private final LongAdder suppressed = new LongAdder();
+
+  public SampledLogger(Logger logger, long intervalMillis) {
+    this.logger = logger;
+    this.intervalNanos = intervalMillis * 1_000_000L;
+    this.nextAllowed = new AtomicLong(System.nanoTime());
+  }
+
+  public void log(Level level, String message, Throwable thrown) {
+    if (!logger.isLoggable(level)) {
+      return;
+    }
+    long now = System.nanoTime();
+    long next = nextAllowed.get();
+    if (now - next < 0 || !nextAllowed.compareAndSet(next, now + intervalNanos)) {
+      suppressed.increment();
+      return;
+    }
+    long skipped = suppressed.sumThenReset();
+    logger.log(level, skipped == 0 ? message : message + " (" + skipped + " similar messages suppressed)", thrown);
+  }
+}
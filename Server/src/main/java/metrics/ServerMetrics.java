@@ -0,0 +1,137 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Server-side metrics registry, rendered in the Prometheus text exposition format.
+ *
+ * Histograms and gauges are registered once at servlet init; the request path only touches
+ * the returned {@link AtomicHistogram}s and {@link #countResponse}, never the registry itself.
+ * The instance is shared with the metrics servlet through the servlet context.
+ */
+public class ServerMetrics {
+  public static final String CONTEXT_ATTRIBUTE = ServerMetrics.class.getName();
+  private static final String[] BOUND_LABELS = new String[AtomicHistogram.BOUNDS_MICROS.length];
+
+  static {
+    for (int i = 0; i < BOUND_LABELS.length; i++) {
+      BOUND_LABELS[i] = BigDecimal.valueOf(AtomicHistogram.BOUNDS_MICROS[i], 6).stripTrailingZeros().toPlainString();
+    }
+  }
+
+  // Metric families in registration order, so the output is stable between scrapes
+  private final Map<String, Family> families = new LinkedHashMap<>();
+  private final ConcurrentHashMap<Integer, LongAdder> responses = new ConcurrentHashMap<>();
+
+  /**
+   * Registers a latency histogram as one labelled series of a _seconds histogram family.
+   */
+  public synchronized AtomicHistogram histogram(String name, String help, String label, String labelValue,
+      AtomicHistogram histogram) {
+    family(name, help, "histogram").series.add(new Series(label + "=\"" + labelValue + "\"", histogram, null));
+    return histogram;
+  }
+
+  public AtomicHistogram histogram(String name, String help, String label, String labelValue) {
+    return histogram(name, help, label, labelValue, new AtomicHistogram());
+  }
+
+  public synchronized void gauge(String name, String help, LongSupplier value) {
+    family(name, help, "gauge").series.add(new Series(null, null, value));
+  }
+
+  public synchronized void counter(String name, String help, LongSupplier value) {
+    family(name, help, "counter").series.add(new Series(null, null, value));
+  }
+
+  public void countResponse(int status) {
+    LongAdder count = responses.get(status);
+    if (count == null) {
+      count = responses.computeIfAbsent(status, code -> new LongAdder());
+    }
+    count.increment();
+  }
+
+  public long getResponseCount(int status) {
+    LongAdder count = responses.get(status);
+    return count == null ? 0 : count.sum();
+  }
+
+  public synchronized void writeTo(StringBuilder out) {
+    header(out, "skier_responses_total", "HTTP responses by status code", "counter");
+    for (Map.Entry<Integer, LongAdder> entry : new TreeMap<>(responses).entrySet()) {
+      out.append("skier_responses_total{code=\"").append(entry.getKey()).append("\"} ")
+          .append(entry.getValue().sum()).append('\n');
+    }
+
+    for (Family family : families.values()) {
+      header(out, family.name, family.help, family.type);
+      for (Series series : family.series) {
+        if (series.histogram != null) {
+          writeHistogram(out, family.name, series.labels, series.histogram);
+        } else {
+          out.append(family.name).append(' ').append(series.value.getAsLong()).append('\n');
+        }
+      }
+    }
+  }
+
+  private static void writeHistogram(StringBuilder out, String name, String labels, AtomicHistogram histogram) {
+    long[] counts = histogram.bucketCounts();
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i];
+      out.append(name).append("_bucket{").append(labels).append(",le=\"")
+          .append(i < BOUND_LABELS.length ? BOUND_LABELS[i] : "+Inf").append("\"} ")
+          .append(cumulative).append('\n');
+    }
+    out.append(name).append("_sum{").append(labels).append("} ").append(histogram.getSumMicros() / 1e6).append('\n');
+    out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+  }
+
+  private static void header(StringBuilder out, String name, String help, String type) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private Family family(String name, String help, String type) {
+    Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+    if (!family.type.equals(type)) {
+      throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+    }
+    return family;
+  }
+
+  private static final class Family {
+    private final String name;
+    private final String help;
+    private final String type;
+    private final List<Series> series = new ArrayList<>();
+
+    private Family(String name, String help, String type) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+    }
+  }
+
+  private static final class Series {
+    private final String labels;
+    private final AtomicHistogram histogram;
+    private final LongSupplier value;
+
+    private Series(String labels, AtomicHistogram histogram, LongSupplier value) {
+      this.labels = labels;
+      this.histogram = histogram;
+      this.value = value;
+    }
+  }
+}
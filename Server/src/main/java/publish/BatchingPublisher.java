@@ -0,0 +1,231 @@
+package publish;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import metrics.SampledLogger;
+import rmqpool.RMQChannelPool;
+
+/**
+ * Publishing stage that sits between the servlet and RabbitMQ.
+ *
+ * Request threads hand over message bodies and get a future back. A small set of publisher
+ * threads coalesce pending messages into batches (up to batchSize, or whatever arrived within
+ * lingerMillis of the first message), publish each batch on a pooled confirm-mode channel and
+ * wait for the broker's confirms. Each future completes on its own message's ack or nack.
+ */
+public class BatchingPublisher {
+  private static final SampledLogger returnFailureLog =
+      new SampledLogger(Logger.getLogger(BatchingPublisher.class.getName()), 10_000);
+
+  private final RMQChannelPool channelPool;
+  private final String exchange;
+  private final String routingKey;
+  private final int batchSize;
+  private final long lingerNanos;
+  private final long confirmTimeoutMillis;
+
+  private final BlockingQueue<PendingMessage> pending;
+  private final Thread[] workers;
+  private volatile boolean running = true;
+
+  public BatchingPublisher(RMQChannelPool channelPool, String exchange, String routingKey,
+      int batchSize, long lingerMillis, int publisherThreads, long confirmTimeoutMillis) {
+    this.channelPool = channelPool;
+    this.exchange = exchange;
+    this.routingKey = routingKey;
+    this.batchSize = batchSize;
+    this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    this.confirmTimeoutMillis = confirmTimeoutMillis;
+    this.pending = new LinkedBlockingQueue<>();
+    this.workers = new Thread[publisherThreads];
+    for (int i = 0; i < publisherThreads; i++) {
+      workers[i] = new Thread(this::publishLoop, "rmq-publisher-" + i);
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+  }
+
+  /**
+   * Queues a message for publishing. The returned future completes once the broker has
+   * confirmed the message, or exceptionally if it was nacked ({@link PublishRejectedException}),
+   * its confirm timed out or it could not be published.
+   */
+  public CompletableFuture<Void> publish(byte[] body, AMQP.BasicProperties properties) {
+    return publish(body, properties, routingKey);
+  }
+
+  /**
+   * As {@link #publish(byte[], AMQP.BasicProperties)}, with a routing key for this message,
+   * e.g. its shard when publishing to a sharded exchange. One batch may mix routing keys.
+   */
+  public CompletableFuture<Void> publish(byte[] body, AMQP.BasicProperties properties, String routingKey) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    if (!running) {
+      future.completeExceptionally(new IllegalStateException("Publisher is closed"));
+      return future;
+    }
+    pending.add(new PendingMessage(body, properties, routingKey, future));
+    return future;
+  }
+
+  private void publishLoop() {
+    List<PendingMessage> batch = new ArrayList<>(batchSize);
+    while (running || !pending.isEmpty()) {
+      try {
+        PendingMessage first = pending.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        fillBatch(batch);
+        publishBatch(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failAll(batch, e);
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  // Take whatever is already queued, then linger for stragglers until the batch is full
+  private void fillBatch(List<PendingMessage> batch) throws InterruptedException {
+    pending.drainTo(batch, batchSize - batch.size());
+    long deadline = System.nanoTime() + lingerNanos;
+    while (batch.size() < batchSize) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return;
+      }
+      PendingMessage next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+      pending.drainTo(batch, batchSize - batch.size());
+    }
+  }
+
+  private void publishBatch(List<PendingMessage> batch) {
+    Channel channel = null;
+    ConfirmListener listener = null;
+    boolean reusable = false;
+    // Each message is settled by its own ack or nack, so one rejected message (e.g. over a
+    // reject-publish queue limit) doesn't fail the ones the broker accepted
+    ConcurrentNavigableMap<Long, PendingMessage> unconfirmed = new ConcurrentSkipListMap<>();
+    try {
+      channel = channelPool.borrowObject();
+      listener = channel.addConfirmListener(
+          (seqNo, multiple) -> settle(unconfirmed, seqNo, multiple, null),
+          (seqNo, multiple) -> settle(unconfirmed, seqNo, multiple,
+              new PublishRejectedException("Broker rejected the message")));
+      for (PendingMessage message : batch) {
+        // Registered before publishing: the confirm can arrive before basicPublish returns
+        unconfirmed.put(channel.getNextPublishSeqNo(), message);
+        channel.basicPublish(exchange, message.routingKey, message.properties, message.body);
+      }
+      // Returns once every confirm has arrived, after the listener has settled each message. A
+      // nack leaves the channel usable; a timeout leaves confirms outstanding, so drop it
+      channel.waitForConfirms(confirmTimeoutMillis);
+      reusable = true;
+      if (!unconfirmed.isEmpty()) {
+        throw new IOException(unconfirmed.size() + " messages were never confirmed");
+      }
+    } catch (Exception e) {
+      // Only reaches messages not already settled by their own confirm
+      failAll(batch, e);
+    } finally {
+      if (channel != null) {
+        if (listener != null) {
+          channel.removeConfirmListener(listener);
+        }
+        try {
+          if (reusable) {
+            channelPool.returnObject(channel);
+          } else {
+            channelPool.invalidateObject(channel);
+          }
+        } catch (Exception e) {
+          returnFailureLog.log(Level.WARNING, "Failed to return channel to the pool", e);
+        }
+      }
+    }
+  }
+
+  // Completes the confirmed message, or every one up to seqNo for a multiple confirm
+  private static void settle(ConcurrentNavigableMap<Long, PendingMessage> unconfirmed, long seqNo,
+      boolean multiple, Throwable rejection) {
+    Map<Long, PendingMessage> confirmed = multiple
+        ? unconfirmed.headMap(seqNo, true)
+        : unconfirmed.subMap(seqNo, true, seqNo, true);
+    for (Long key : confirmed.keySet()) {
+      PendingMessage message = confirmed.remove(key);
+      if (message == null) {
+        continue;
+      }
+      if (rejection == null) {
+        message.future.complete(null);
+      } else {
+        message.future.completeExceptionally(rejection);
+      }
+    }
+  }
+
+  private static void failAll(List<PendingMessage> batch, Throwable cause) {
+    for (PendingMessage message : batch) {
+      message.future.completeExceptionally(cause);
+    }
+  }
+
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Stops accepting new messages and waits for the publisher threads to flush what is queued.
+   */
+  public void close() {
+    running = false;
+    for (Thread worker : workers) {
+      try {
+        worker.join(confirmTimeoutMillis + 1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    PendingMessage leftover;
+    while ((leftover = pending.poll()) != null) {
+      leftover.future.completeExceptionally(new IllegalStateException("Publisher is closed"));
+    }
+  }
+
+  private static final class PendingMessage {
+    private final byte[] body;
+    private final AMQP.BasicProperties properties;
+    private final String routingKey;
+    private final CompletableFuture<Void> future;
+
+    private PendingMessage(byte[] body, AMQP.BasicProperties properties, String routingKey,
+        CompletableFuture<Void> future) {
+      this.body = body;
+      this.properties = properties;
+      this.routingKey = routingKey;
+      this.future = future;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package publish;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the broker nacks a published message, e.g. because the queue is at its
+ * x-max-length with the reject-publish overflow policy. Like an exhausted channel pool this
+ * is back-pressure (HTTP 503), not a broker failure.
+ */
+public class PublishRejectedException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  public PublishRejectedException(String message) {
+    super(message);
+  }
+}
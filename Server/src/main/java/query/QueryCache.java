@@ -0,0 +1,146 @@
+package query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, TTL-expiring LRU cache for read query results.
+ *
+ * Split into independently locked segments so concurrent readers rarely contend; each segment
+ * is an access-ordered LinkedHashMap that evicts its least recently used entry once it holds
+ * more than its share of maxEntries.
+ */
+public class QueryCache<K, V> {
+  private static final int SEGMENTS = 16;
+
+  private final Segment<K, V>[] segments;
+  private final long ttlNanos;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public QueryCache(int maxEntries, long ttlMillis) {
+    this.ttlNanos = ttlMillis * 1_000_000L;
+    int perSegment = Math.max(1, maxEntries / SEGMENTS);
+    segments = newSegmentArray(SEGMENTS);
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment<>(perSegment, evictions);
+    }
+  }
+
+  /**
+   * Returns the cached value, or null if absent or expired.
+   */
+  public V get(K key) {
+    Segment<K, V> segment = segmentFor(key);
+    long now = System.nanoTime();
+    synchronized (segment) {
+      Entry<V> entry = segment.get(key);
+      if (entry != null) {
+        if (now - entry.expiresAt < 0) {
+          hits.increment();
+          return entry.value;
+        }
+        segment.remove(key);
+        expirations.increment();
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  public void put(K key, V value) {
+    Segment<K, V> segment = segmentFor(key);
+    Entry<V> entry = new Entry<>(value, System.nanoTime() + ttlNanos);
+    synchronized (segment) {
+      segment.put(key, entry);
+    }
+  }
+
+  public void invalidateAll() {
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <K, V> Segment<K, V>[] newSegmentArray(int length) {
+    return new Segment[length];
+  }
+
+  private Segment<K, V> segmentFor(K key) {
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    return segments[h & (SEGMENTS - 1)];
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getExpirations() {
+    return expirations.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public String statsReport() {
+    long h = getHits();
+    long m = getMisses();
+    return String.format("QueryCache: %d entries, %d hits, %d misses (%.1f%% hit), %d expired, %d evicted",
+        size(), h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m), getExpirations(), getEvictions());
+  }
+
+  private static final class Entry<V> {
+    private final V value;
+    private final long expiresAt;
+
+    private Entry(V value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+    private final LongAdder evictions;
+
+    private Segment(int capacity, LongAdder evictions) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+      this.evictions = evictions;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+      if (size() > capacity) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+}
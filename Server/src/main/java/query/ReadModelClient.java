@@ -0,0 +1,61 @@
+package query;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Fetches aggregate query results from the consumer's read API (RMQConsumer's QueryServer).
+ * Responses are passed through as-is so they can be cached and replayed verbatim.
+ */
+public class ReadModelClient {
+  private final HttpClient client;
+  private final String baseUrl;
+  private final Duration timeout;
+
+  public ReadModelClient(String baseUrl, long timeoutMillis) {
+    this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    this.timeout = Duration.ofMillis(timeoutMillis);
+    this.client = HttpClient.newBuilder()
+        .connectTimeout(timeout)
+        .version(HttpClient.Version.HTTP_1_1)
+        .build();
+  }
+
+  /**
+   * @param path query path starting with "/", e.g. "/resorts/1/seasons/2025/day/1/skiers"
+   */
+  public QueryResult fetch(String path) throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder()
+        .uri(URI.create(baseUrl + path))
+        .timeout(timeout)
+        .GET()
+        .build();
+    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    return new QueryResult(response.statusCode(), response.body());
+  }
+
+  /**
+   * Status code and JSON body of a read query.
+   */
+  public static final class QueryResult {
+    private final int status;
+    private final String body;
+
+    public QueryResult(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+
+    public int getStatus() {
+      return status;
+    }
+
+    public String getBody() {
+      return body;
+    }
+  }
+}
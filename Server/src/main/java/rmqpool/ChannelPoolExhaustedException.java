@@ -0,0 +1,15 @@
+package rmqpool;
+
+import java.io.IOException;
+
+/**
+ * Thrown when no channel could be borrowed within the pool's borrow timeout.
+ * Callers should treat this as a temporary overload (HTTP 503), not a broker failure.
+ */
+public class ChannelPoolExhaustedException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  public ChannelPoolExhaustedException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -15,6 +15,7 @@ package rmqpool;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.pool2.BasePooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
@@ -26,18 +27,39 @@ public class RMQChannelFactory extends BasePooledObjectFactory<Channel> {
   
   // Valid RMQ connection  
   private final Connection connection;
+  // put every created channel into publisher confirm mode
+  private final boolean publisherConfirms;
   // used to count created channels for debugging
   private int count;
+  // channels the broker refused or failed to open
+  private final AtomicLong creationFailures = new AtomicLong();
 
   public RMQChannelFactory(Connection connection) {
+    this(connection, false);
+  }
+
+  public RMQChannelFactory(Connection connection, boolean publisherConfirms) {
     this.connection = connection;     
+    this.publisherConfirms = publisherConfirms;
     count = 0;
   }
 
   @Override
   synchronized public Channel create() throws IOException {
+     Channel chan;
+     try {
+       chan = connection.createChannel();
+       if (chan == null) {
+         throw new IOException("Connection has no channels left (channel-max reached)");
+       }
+       if (publisherConfirms) {
+         chan.confirmSelect();
+       }
+     } catch (IOException | RuntimeException e) {
+       creationFailures.incrementAndGet();
+       throw e;
+     }
      count ++;
-     Channel chan = connection.createChannel();     
      // Uncomment the line below to validate the expected number of channels are being created
      // System.out.println("Channel created: " + count);
      return chan;
@@ -50,10 +72,29 @@ public class RMQChannelFactory extends BasePooledObjectFactory<Channel> {
     return new DefaultPooledObject<>(channel);
   }
   
-  public int getChannelCount() {
+  // A channel closed by a broker error (e.g. a failed confirm) is dead and must be replaced
+  @Override
+  public boolean validateObject(PooledObject<Channel> p) {
+    return p.getObject().isOpen();
+  }
+
+  @Override
+  public void destroyObject(PooledObject<Channel> p) {
+    Channel channel = p.getObject();
+    try {
+      if (channel.isOpen()) {
+        channel.close();
+      }
+    } catch (Exception e) {
+      // already going away; nothing more to release
+    }
+  }
+
+  synchronized public int getChannelCount() {
       return count;
   }
 
-  // for all other methods, the no-op implementation
-  // in BasePooledObjectFactory will suffice
+  public long getCreationFailures() {
+      return creationFailures.get();
+  }
 }
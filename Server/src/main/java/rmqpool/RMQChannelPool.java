@@ -8,58 +8,146 @@ package rmqpool;
 
 import com.rabbitmq.client.Channel;
 import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.time.Duration;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import metrics.AtomicHistogram;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
 
 /**
- * A simple RabbitMQ channel pool based on a BlockingQueue implementation
- * 
+ * A RabbitMQ channel pool built on the commons-pool2 GenericObjectPool.
+ *
+ * Channels are validated on borrow and return, so channels closed by a broker error are
+ * destroyed and replaced rather than handed out again. Borrowing waits at most the configured
+ * timeout and then fails fast with {@link ChannelPoolExhaustedException}. The pool grows on
+ * demand up to maxTotal and an evictor shrinks idle channels back towards minIdle.
  */
 public class RMQChannelPool {
-  
-  // used to store and distribute channels  
-  private final BlockingQueue<Channel> pool;
-  // fixed size pool
-  private int capacity;
+
+  private static final Duration EVICTION_INTERVAL = Duration.ofSeconds(30);
+  private static final Duration IDLE_BEFORE_SHRINK = Duration.ofSeconds(60);
+
+  // used to store and distribute channels
+  private final GenericObjectPool<Channel> pool;
   // used to create channels
-  private RMQChannelFactory factory;
+  private final RMQChannelFactory factory;
+  // time callers spend in borrowObject, including borrows that time out
+  private final AtomicHistogram borrowWait = new AtomicHistogram();
 
-  
+  /**
+   * Fixed size pool that waits up to 5 seconds for a channel, as a drop-in for the old pool.
+   */
   public RMQChannelPool(int maxSize, RMQChannelFactory factory) {
-    this.capacity = maxSize;
-    pool = new LinkedBlockingQueue<>(capacity);
+    this(maxSize, maxSize, 5000, factory);
+  }
+
+  public RMQChannelPool(int minIdle, int maxTotal, long borrowTimeoutMillis, RMQChannelFactory factory) {
     this.factory = factory;
-    for (int i = 0; i < capacity; i++) {
-        Channel chan;        
-        try {
-            chan = factory.create();        
-            pool.put(chan);
-        } catch (IOException | InterruptedException ex) {
-            Logger.getLogger(RMQChannelPool.class.getName()).log(Level.SEVERE, null, ex);
-        }
+    GenericObjectPoolConfig<Channel> config = new GenericObjectPoolConfig<>();
+    config.setMinIdle(minIdle);
+    config.setMaxIdle(maxTotal);
+    config.setMaxTotal(maxTotal);
+    config.setBlockWhenExhausted(true);
+    config.setMaxWait(Duration.ofMillis(borrowTimeoutMillis));
+    config.setTestOnBorrow(true);
+    config.setTestOnReturn(true);
+    config.setTestWhileIdle(true);
+    config.setTimeBetweenEvictionRuns(EVICTION_INTERVAL);
+    config.setSoftMinEvictableIdleTime(IDLE_BEFORE_SHRINK);
+    // Several web apps in one container would otherwise fight over the JMX name
+    config.setJmxEnabled(false);
+    pool = new GenericObjectPool<>(factory, config);
 
+    try {
+      pool.preparePool();
+    } catch (Exception ex) {
+      // Missing channels are created on demand by borrowObject
+      Logger.getLogger(RMQChannelPool.class.getName()).log(Level.SEVERE, "Failed to pre-create channels", ex);
     }
   }
 
   public Channel borrowObject() throws IOException {
-
+    long start = System.nanoTime();
     try {
-      return pool.take();
-    } catch (InterruptedException e) {
-      throw new RuntimeException("Error: no channels available" + e.toString());
+      return pool.borrowObject();
+    } catch (NoSuchElementException e) {
+      throw new ChannelPoolExhaustedException("Error: no channels available within "
+          + pool.getMaxWaitDuration().toMillis() + " ms", e);
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Error: failed to borrow channel", e);
+    } finally {
+      borrowWait.recordNanos(System.nanoTime() - start);
     }
   }
 
   public void returnObject(Channel channel) throws Exception {
     if (channel != null) {
-      pool.add(channel);
+      pool.returnObject(channel);
     }
   }
-  
+
+  /**
+   * Destroys a channel the caller knows is broken instead of returning it.
+   */
+  public void invalidateObject(Channel channel) throws Exception {
+    if (channel != null) {
+      pool.invalidateObject(channel);
+    }
+  }
+
+  public int getActiveCount() {
+    return pool.getNumActive();
+  }
+
+  public int getIdleCount() {
+    return pool.getNumIdle();
+  }
+
+  public int getWaiterCount() {
+    return pool.getNumWaiters();
+  }
+
+  public int getMaxTotal() {
+    return pool.getMaxTotal();
+  }
+
+  public long getMeanBorrowWaitMillis() {
+    return pool.getMeanBorrowWaitTimeMillis();
+  }
+
+  public long getMaxBorrowWaitMillis() {
+    return pool.getMaxBorrowWaitTimeMillis();
+  }
+
+  public AtomicHistogram getBorrowWaitHistogram() {
+    return borrowWait;
+  }
+
+  public long getCreatedCount() {
+    return pool.getCreatedCount();
+  }
+
+  public long getDestroyedCount() {
+    return pool.getDestroyedCount();
+  }
+
+  public long getCreationFailures() {
+    return factory.getCreationFailures();
+  }
+
+  public String statsReport() {
+    return String.format("RMQChannelPool: %d active, %d idle, %d waiting, borrow wait mean %d ms / max %d ms, "
+            + "%d created, %d destroyed, %d creation failures",
+        getActiveCount(), getIdleCount(), getWaiterCount(), getMeanBorrowWaitMillis(), getMaxBorrowWaitMillis(),
+        getCreatedCount(), getDestroyedCount(), getCreationFailures());
+  }
+
   public void close() {
-      // pool.close();
+    pool.close();
   }
 }
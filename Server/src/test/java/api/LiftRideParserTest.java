@@ -0,0 +1,176 @@
+package api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * LiftRideParser.parseBody against a copy of the servlet's original reader + Gson handling.
+ */
+class LiftRideParserTest {
+  private static final Gson GSON = new Gson();
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      // Canonical
+      "{\"time\":217,\"liftID\":21}",
+      "{\n  \"time\": 217,\n  \"liftID\": 21\n}\n",
+      "{\"liftID\": 21, \"time\": 217}",
+      "{\"time\": 217, \"liftID\": 21, \"device\": \"gate-7\", \"tags\": [\"rfid\", 1.5e3], \"meta\": {\"retry\": false}}",
+      "{\"time\":0,\"liftID\":1}",
+      "{\"time\":1440,\"liftID\":2147483647}",
+      "{\"time\":-0,\"liftID\":1}",
+      "{\"time\":1441,\"liftID\":1}",
+      "{\"time\":-1,\"liftID\":1}",
+      "{\"time\":5,\"liftID\":0}",
+      "{\"time\":5,\"liftID\":-2147483648}",
+      "{\"time\":5,\"liftID\":3,\"time\":7}",
+      "{\"time\":null,\"liftID\":3}",
+      "{\"time\":5}",
+      "{}",
+      "",
+      "   \n\t ",
+      // Other numeric forms, which getAsInt accepted
+      "{\"time\":5.0,\"liftID\":3}",
+      "{\"time\":5.7,\"liftID\":3}",
+      "{\"time\":1e2,\"liftID\":3}",
+      "{\"time\":5,\"liftID\":3E0}",
+      "{\"time\":05,\"liftID\":3}",
+      "{\"time\":4294967301,\"liftID\":3}",
+      "{\"time\":99999999999999999999,\"liftID\":3}",
+      "{\"time\":\"5\",\"liftID\":\"3\"}",
+      "{\"time\":\"+5\",\"liftID\":3}",
+      "{\"time\":\"\\u0035\",\"liftID\":3}",
+      "{\"time\":\" 5\",\"liftID\":3}",
+      "{\"time\":\"5.0\",\"liftID\":3}",
+      "{\"time\":[5],\"liftID\":3}",
+      "{\"time\":true,\"liftID\":3}",
+      "{\"time\":{\"v\":5},\"liftID\":3}",
+      "{\"time\":NaN,\"liftID\":3}",
+      // Lenient JSON
+      "{time:5,liftID:3}",
+      "{'time':'5','liftID':3}",
+      "{\"time\":5;\"liftID\":3}",
+      "{\"time\"=5,\"liftID\"=>3}",
+      "/* ride */ {\"time\":5,\"liftID\":3} // end",
+      "{\"time\":5,\"liftID\":3,}",
+      "{\"time\":5,\"liftID\":3,\"note\":unquoted}",
+      "{\"t\\u0069me\":5,\"liftID\":3}",
+      // Line breaks the reader dropped
+      "{\"time\":1\n2,\"liftID\":3}",
+      "{\"ti\r\nme\":12,\"liftID\":3}",
+      // Malformed
+      "{\"time\":5,\"liftID\":3",
+      "{\"time\":5,\"liftID\":3}}",
+      "{\"time\":5,\"liftID\":3} x",
+      "[1,2]",
+      "\"text\"",
+      "{\"time\":5,\"liftID\":3,\"tags\":[1,,2]}",
+      "null",
+  })
+  void matchesTheGsonPath(String body) throws IOException {
+    assertEquals(baseline(body, null), parse(body, null));
+  }
+
+  @Test
+  void matchesTheGsonPathForOtherCharsets() throws IOException {
+    String canonical = "{\"time\":5,\"liftID\":3}";
+    assertEquals(baseline(canonical, "UTF-16"), parse(canonical, "UTF-16"));
+    String accented = "{\"time\":5,\"liftID\":3,\"gate\":\"\u00e9\"}";
+    assertEquals(baseline(accented, "UTF-8"), parse(accented, "UTF-8"));
+  }
+
+  @Test
+  void acceptsBodiesLargerThanTheRetainedBuffer() throws IOException {
+    String body = "{\"time\":5,\"liftID\":3,\"pad\":\"" + "x".repeat(200_000) + "\"}";
+    assertEquals(baseline(body, null), parse(body, null));
+    assertEquals("5/3", parse("{\"time\":5,\"liftID\":3}", null));
+  }
+
+  // Both used to throw out of doPost
+  @Test
+  void reportsWhatUsedToBeServerErrors() throws IOException {
+    assertEquals("500", baseline("/* no ride */", null));
+    assertEquals(LiftRideParser.INVALID_JSON, parse("/* no ride */", null));
+    assertEquals("500", baseline("{\"time\":[5,6],\"liftID\":3}", null));
+    assertEquals(LiftRideParser.INVALID_FIELDS, parse("{\"time\":[5,6],\"liftID\":3}", null));
+  }
+
+  @Test
+  void parsesThePath() {
+    LiftRideParser parser = new LiftRideParser();
+    assertNull(parser.parsePath("/12/seasons/2025/days/3/skiers/4567"));
+    assertEquals(12, parser.getResortID());
+    assertEquals(2025, parser.getSeasonID());
+    assertEquals(3, parser.getDayID());
+    assertEquals(4567, parser.getSkierID());
+    assertEquals(LiftRideParser.INVALID_SEASON, parser.parsePath("/12/seasons/25/days/3/skiers/4567"));
+    assertEquals(LiftRideParser.INVALID_NUMBER, parser.parsePath("/12/seasons/2025/days/x/skiers/4567"));
+  }
+
+  private static String parse(String body, String encoding) throws IOException {
+    LiftRideParser parser = LiftRideParser.forCurrentThread();
+    String error = parser.parseBody(new ByteArrayInputStream(body.getBytes(charset(encoding))), encoding);
+    return error != null ? error : parser.getTime() + "/" + parser.getLiftID();
+  }
+
+  private static Charset charset(String encoding) {
+    return encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+  }
+
+  // The servlet's original body handling; "500" where it threw out of doPost
+  private static String baseline(String body, String encoding) throws IOException {
+    StringBuilder jsonBody = new StringBuilder();
+    String line;
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new ByteArrayInputStream(body.getBytes(charset(encoding))), charset(encoding)))) {
+      while ((line = reader.readLine()) != null) {
+        jsonBody.append(line);
+      }
+    }
+    if (jsonBody.toString().trim().isEmpty()) {
+      return "Empty request body.";
+    }
+    JsonObject jsonObject;
+    try {
+      jsonObject = GSON.fromJson(jsonBody.toString(), JsonObject.class);
+    } catch (JsonSyntaxException e) {
+      return "Invalid JSON format.";
+    }
+    try {
+      if (!jsonObject.has("time") || jsonObject.get("time").isJsonNull()
+          || !jsonObject.has("liftID") || jsonObject.get("liftID").isJsonNull()) {
+        return "Missing required fields: time and liftID.";
+      }
+      int time;
+      int liftID;
+      try {
+        time = jsonObject.get("time").getAsInt();
+        liftID = jsonObject.get("liftID").getAsInt();
+      } catch (UnsupportedOperationException | NumberFormatException e) {
+        return "Invalid time or liftID.";
+      }
+      if (time < 0 || time > 1440) {
+        return "Time must be between 0 and 1440";
+      }
+      if (liftID < 1) {
+        return "Lift ID must be positive";
+      }
+      return time + "/" + liftID;
+    } catch (RuntimeException e) {
+      return "500";
+    }
+  }
+}
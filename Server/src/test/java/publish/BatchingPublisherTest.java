@@ -0,0 +1,63 @@
+package publish;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import broker.InMemoryBroker;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import rmqpool.RMQChannelFactory;
+import rmqpool.RMQChannelPool;
+
+class BatchingPublisherTest {
+  private static final String QUEUE = "ski_lift_queue";
+  private static final int QUEUE_LIMIT = 1025;
+  private static final int MESSAGES = 2000;
+
+  /**
+   * A queue at x-max-length with reject-publish nacks whatever arrives past the limit, so the
+   * batch that crosses it gets both acks and nacks. Only the nacked messages may fail.
+   */
+  @Test
+  void failsOnlyTheNackedMessagesOfABatch() throws Exception {
+    InMemoryBroker broker = new InMemoryBroker();
+    Connection connection = broker.newConnection();
+    Channel admin = connection.createChannel();
+    admin.queueDeclare(QUEUE, true, false, false, Map.of("x-max-length", QUEUE_LIMIT, "x-overflow", "reject-publish"));
+    RMQChannelPool pool = new RMQChannelPool(2, new RMQChannelFactory(connection, true));
+    // One publisher thread keeps publish order, so the first QUEUE_LIMIT messages are the accepted ones
+    BatchingPublisher publisher = new BatchingPublisher(pool, "", QUEUE, 500, 1000, 1, 5000);
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < MESSAGES; i++) {
+      futures.add(publisher.publish(new byte[] {(byte) i}, new AMQP.BasicProperties()));
+    }
+    try {
+      for (int i = 0; i < MESSAGES; i++) {
+        CompletableFuture<Void> future = futures.get(i);
+        if (i < QUEUE_LIMIT) {
+          future.get(10, TimeUnit.SECONDS);
+        } else {
+          ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS),
+              "message " + i + " was nacked but succeeded");
+          assertInstanceOf(PublishRejectedException.class, failure.getCause());
+        }
+      }
+    } finally {
+      publisher.close();
+      pool.close();
+      connection.close();
+    }
+    assertEquals(QUEUE_LIMIT, broker.getReadyCount());
+    assertEquals(MESSAGES - QUEUE_LIMIT, broker.getRejected());
+  }
+}
@@ -0,0 +1,586 @@
+package broker;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.CancelCallback;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmCallback;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.impl.AMQImpl;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * An in-process stand-in for RabbitMQ, good enough to run SkierServlet and the consumer
+ * unchanged: the server's pooled confirm channels, admission probes and sharded exchange, and
+ * the consumer's prefetch, batched multiple-acks, nacks with requeue and cancel.
+ *
+ * Connections and channels are dynamic proxies implementing only the Channel and Connection
+ * methods those components call; anything else throws UnsupportedOperationException so a new
+ * dependency on the broker shows up at once. Each basicConsume gets its own delivery thread,
+ * which keeps deliveries on a channel serial as the real client does. Confirms are immediate:
+ * a publish is confirmed to the channel's confirm listeners once it is in its queues, or nacked
+ * when x-overflow=reject-publish refuses it.
+ *
+ * Every message remembers when it was accepted, and the time from acceptance to its final ack
+ * is reported to an optional listener, so with a consumer that acks after applying a ride this
+ * measures ingest latency.
+ *
+ * For fault-injection tests, {@link #setAckLossRate} loses a share of acks: everything a lost
+ * ack covered is redelivered, as when the channel it was sent on fails before it arrives.
+ */
+public class InMemoryBroker {
+  private static final long POLL_MILLIS = 20;
+
+  private final Map<String, BrokerQueue> queues = new ConcurrentHashMap<>();
+  // exchange -> routing key -> bound queues
+  private final Map<String, Map<String, List<BrokerQueue>>> bindings = new ConcurrentHashMap<>();
+  private final LongConsumer ackLatencyMicros;
+  private final AtomicInteger channelNumbers = new AtomicInteger();
+  private final AtomicInteger consumerTags = new AtomicInteger();
+
+  private final AtomicLong accepted = new AtomicLong();
+  private final AtomicLong acked = new AtomicLong();
+  private final AtomicLong discarded = new AtomicLong();
+  private final AtomicLong redelivered = new AtomicLong();
+  private final AtomicLong unroutable = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private volatile long firstAcceptNanos;
+  private volatile long lastAckNanos;
+  private volatile double ackLossRate;
+
+  public InMemoryBroker() {
+    this(micros -> { });
+  }
+
+  /**
+   * @param ackLatencyMicros called with each acked message's accept-to-ack time in microseconds,
+   *     from the acking thread
+   */
+  public InMemoryBroker(LongConsumer ackLatencyMicros) {
+    this.ackLatencyMicros = ackLatencyMicros;
+  }
+
+  /**
+   * Loses each basicAck with the given probability; the deliveries it covered are redelivered.
+   */
+  public void setAckLossRate(double ackLossRate) {
+    this.ackLossRate = ackLossRate;
+  }
+
+  public Connection newConnection() {
+    return new BrokerConnection().proxy();
+  }
+
+  private List<BrokerQueue> route(String exchange, String routingKey) {
+    if (exchange.isEmpty()) {
+      BrokerQueue queue = queues.get(routingKey);
+      return queue == null ? List.of() : List.of(queue);
+    }
+    Map<String, List<BrokerQueue>> keys = bindings.get(exchange);
+    List<BrokerQueue> bound = keys == null ? null : keys.get(routingKey);
+    return bound == null ? List.of() : bound;
+  }
+
+  private void settled(Message message, boolean ack) {
+    long now = System.nanoTime();
+    if (ack) {
+      acked.incrementAndGet();
+      lastAckNanos = now;
+      ackLatencyMicros.accept(TimeUnit.NANOSECONDS.toMicros(now - message.acceptedNanos));
+    } else {
+      discarded.incrementAndGet();
+    }
+  }
+
+  /**
+   * Waits until every accepted message has been acked or discarded, or the timeout passes.
+   *
+   * @return true if nothing is left in a queue or unacked
+   */
+  public boolean awaitSettled(long timeoutMillis) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (getOutstanding() > 0) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+      TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+    }
+    return true;
+  }
+
+  /**
+   * Messages accepted but not yet acked or discarded: ready plus unacked.
+   */
+  public long getOutstanding() {
+    return accepted.get() - acked.get() - discarded.get();
+  }
+
+  public long getReadyCount() {
+    long ready = 0;
+    for (BrokerQueue queue : queues.values()) {
+      ready += queue.ready.size();
+    }
+    return ready;
+  }
+
+  public long getAccepted() {
+    return accepted.get();
+  }
+
+  public long getAcked() {
+    return acked.get();
+  }
+
+  public long getRedelivered() {
+    return redelivered.get();
+  }
+
+  public long getUnroutable() {
+    return unroutable.get();
+  }
+
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  public long getFirstAcceptNanos() {
+    return firstAcceptNanos;
+  }
+
+  public long getLastAckNanos() {
+    return lastAckNanos;
+  }
+
+  private static final class Message {
+    private final String exchange;
+    private final String routingKey;
+    private final AMQP.BasicProperties properties;
+    private final byte[] body;
+    private final long acceptedNanos;
+    private volatile boolean redeliver;
+
+    private Message(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body,
+        long acceptedNanos) {
+      this.exchange = exchange;
+      this.routingKey = routingKey;
+      this.properties = properties;
+      this.body = body;
+      this.acceptedNanos = acceptedNanos;
+    }
+  }
+
+  private static final class BrokerQueue {
+    private final Map<String, Object> arguments;
+    private final int maxLength;
+    private final boolean rejectPublish;
+    private final LinkedBlockingDeque<Message> ready = new LinkedBlockingDeque<>();
+    private final AtomicInteger consumers = new AtomicInteger();
+
+    private BrokerQueue(Map<String, Object> arguments) {
+      this.arguments = arguments == null ? Map.of() : new HashMap<>(arguments);
+      Object limit = this.arguments.get("x-max-length");
+      this.maxLength = limit instanceof Number ? ((Number) limit).intValue() : 0;
+      this.rejectPublish = "reject-publish".equals(this.arguments.get("x-overflow"));
+    }
+  }
+
+  private final class BrokerConnection {
+    private final List<BrokerChannel> channels = new CopyOnWriteArrayList<>();
+    private volatile boolean open = true;
+
+    private Connection proxy() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "createChannel":
+                if (!open) {
+                  throw new IOException("Connection is closed");
+                }
+                BrokerChannel created = new BrokerChannel(this);
+                channels.add(created);
+                return created.proxy();
+              case "isOpen":
+                return open;
+              case "close":
+              case "abort":
+                open = false;
+                for (BrokerChannel channel : channels) {
+                  channel.close();
+                }
+                return null;
+              case "getChannelMax":
+                return 0;
+              case "addShutdownListener":
+              case "removeShutdownListener":
+                return null;
+              case "equals":
+                return proxy == args[0];
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              case "toString":
+                return "InMemoryBroker connection";
+              default:
+                throw new UnsupportedOperationException("Connection." + method.getName());
+            }
+          });
+    }
+  }
+
+  /**
+   * Channel state: confirm outcome since the last wait, prefetch, and unacked deliveries by tag.
+   */
+  private final class BrokerChannel {
+    private final BrokerConnection connection;
+    private final int number = channelNumbers.incrementAndGet();
+    private final TreeMap<Long, Unacked> unacked = new TreeMap<>();
+    private final Map<String, Thread> consumers = new ConcurrentHashMap<>();
+    private volatile boolean open = true;
+    private int prefetch;
+    private long nextTag;
+    private long nextPublishSeqNo = 1;
+    private final List<ConfirmListener> confirmListeners = new CopyOnWriteArrayList<>();
+    private boolean nackedSinceWait;
+
+    private BrokerChannel(BrokerConnection connection) {
+      this.connection = connection;
+    }
+
+    private Channel proxy() {
+      return (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[] {Channel.class},
+          (proxy, method, args) -> {
+            String name = method.getName();
+            if (!open && !name.equals("isOpen") && !name.equals("close") && !name.equals("abort")
+                && !name.equals("equals") && !name.equals("hashCode") && !name.equals("toString")) {
+              throw new IOException("Channel " + number + " is closed");
+            }
+            switch (name) {
+              case "isOpen":
+                return open;
+              case "close":
+              case "abort":
+                close();
+                return null;
+              case "getChannelNumber":
+                return number;
+              case "confirmSelect":
+                return new AMQImpl.Confirm.SelectOk();
+              case "basicQos":
+                setPrefetch((Integer) args[args.length == 3 ? 1 : 0]);
+                return new AMQImpl.Basic.QosOk();
+              case "getNextPublishSeqNo":
+                return currentPublishSeqNo();
+              case "addConfirmListener":
+                if (args.length == 1) {
+                  confirmListeners.add((ConfirmListener) args[0]);
+                  return null;
+                }
+                return addConfirmListener((ConfirmCallback) args[0], (ConfirmCallback) args[1]);
+              case "removeConfirmListener":
+                return confirmListeners.remove(args[0]);
+              case "basicPublish":
+                long seqNo = takePublishSeqNo();
+                boolean acked = publish((String) args[0], (String) args[1],
+                    (AMQP.BasicProperties) args[args.length - 2], (byte[]) args[args.length - 1]);
+                for (ConfirmListener listener : confirmListeners) {
+                  if (acked) {
+                    listener.handleAck(seqNo, false);
+                  } else {
+                    listener.handleNack(seqNo, false);
+                  }
+                }
+                return null;
+              case "waitForConfirms":
+                return takeConfirmOutcome();
+              case "waitForConfirmsOrDie":
+                if (!takeConfirmOutcome()) {
+                  throw new IOException("nacks received");
+                }
+                return null;
+              case "queueDeclare":
+                return declareQueue((String) args[0], castArguments(args[4]));
+              case "queueDeclarePassive":
+                return declarePassive((String) args[0]);
+              case "exchangeDeclare":
+                bindings.computeIfAbsent((String) args[0], key -> new ConcurrentHashMap<>());
+                return new AMQImpl.Exchange.DeclareOk();
+              case "queueBind":
+                bind((String) args[0], (String) args[1], (String) args[2]);
+                return new AMQImpl.Queue.BindOk();
+              case "basicConsume":
+                if (args.length != 4 || !(args[2] instanceof DeliverCallback)) {
+                  throw new UnsupportedOperationException("basicConsume" + Arrays.toString(args));
+                }
+                return consume((String) args[0], (Boolean) args[1], (DeliverCallback) args[2], (CancelCallback) args[3]);
+              case "basicCancel":
+                cancel((String) args[0]);
+                return null;
+              case "basicAck":
+                settle((Long) args[0], (Boolean) args[1], true, false);
+                return null;
+              case "basicNack":
+                settle((Long) args[0], (Boolean) args[1], false, (Boolean) args[2]);
+                return null;
+              case "basicReject":
+                settle((Long) args[0], false, false, (Boolean) args[1]);
+                return null;
+              case "addShutdownListener":
+              case "removeShutdownListener":
+                return null;
+              case "equals":
+                return proxy == args[0];
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              case "toString":
+                return "InMemoryBroker channel " + number;
+              default:
+                throw new UnsupportedOperationException("Channel." + name);
+            }
+          });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> castArguments(Object arguments) {
+      return (Map<String, Object>) arguments;
+    }
+
+    private synchronized void setPrefetch(int prefetch) {
+      this.prefetch = prefetch;
+    }
+
+    private synchronized long currentPublishSeqNo() {
+      return nextPublishSeqNo;
+    }
+
+    private synchronized long takePublishSeqNo() {
+      return nextPublishSeqNo++;
+    }
+
+    private ConfirmListener addConfirmListener(ConfirmCallback ack, ConfirmCallback nack) {
+      ConfirmListener listener = new ConfirmListener() {
+        @Override
+        public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+          ack.handle(deliveryTag, multiple);
+        }
+
+        @Override
+        public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+          nack.handle(deliveryTag, multiple);
+        }
+      };
+      confirmListeners.add(listener);
+      return listener;
+    }
+
+    // Returns false if any target queue refused the message, which nacks it
+    private boolean publish(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body) {
+      List<BrokerQueue> targets = route(exchange, routingKey);
+      if (targets.isEmpty()) {
+        // Unroutable without mandatory: dropped and still confirmed, as RabbitMQ does
+        unroutable.incrementAndGet();
+        return true;
+      }
+      boolean acked = true;
+      long now = System.nanoTime();
+      for (BrokerQueue queue : targets) {
+        // Best effort at the limit; a few messages over it under contention is fine here
+        if (queue.maxLength > 0 && queue.ready.size() >= queue.maxLength) {
+          if (queue.rejectPublish) {
+            rejected.incrementAndGet();
+            synchronized (this) {
+              nackedSinceWait = true;
+            }
+            acked = false;
+            continue;
+          }
+          // drop-head, the default overflow behaviour
+          if (queue.ready.pollFirst() != null) {
+            discarded.incrementAndGet();
+          }
+        }
+        if (accepted.getAndIncrement() == 0) {
+          firstAcceptNanos = now;
+        }
+        queue.ready.addLast(new Message(exchange, routingKey, properties, body, now));
+      }
+      return acked;
+    }
+
+    private synchronized boolean takeConfirmOutcome() {
+      boolean allAcked = !nackedSinceWait;
+      nackedSinceWait = false;
+      return allAcked;
+    }
+
+    private AMQP.Queue.DeclareOk declareQueue(String name, Map<String, Object> arguments) throws IOException {
+      BrokerQueue queue = queues.computeIfAbsent(name, key -> new BrokerQueue(arguments));
+      if (!queue.arguments.equals(arguments == null ? Map.of() : arguments)) {
+        // PRECONDITION_FAILED closes the channel
+        close();
+        throw new IOException("PRECONDITION_FAILED - inequivalent arguments for queue '" + name + "'");
+      }
+      return new AMQImpl.Queue.DeclareOk(name, queue.ready.size(), queue.consumers.get());
+    }
+
+    private AMQP.Queue.DeclareOk declarePassive(String name) throws IOException {
+      BrokerQueue queue = queues.get(name);
+      if (queue == null) {
+        close();
+        throw new IOException("NOT_FOUND - no queue '" + name + "'");
+      }
+      return new AMQImpl.Queue.DeclareOk(name, queue.ready.size(), queue.consumers.get());
+    }
+
+    private void bind(String queueName, String exchange, String routingKey) throws IOException {
+      BrokerQueue queue = queues.get(queueName);
+      Map<String, List<BrokerQueue>> keys = bindings.get(exchange);
+      if (queue == null || keys == null) {
+        close();
+        throw new IOException("NOT_FOUND - no queue '" + queueName + "' or exchange '" + exchange + "'");
+      }
+      List<BrokerQueue> bound = keys.computeIfAbsent(routingKey, key -> new CopyOnWriteArrayList<>());
+      if (!bound.contains(queue)) {
+        bound.add(queue);
+      }
+    }
+
+    private String consume(String queueName, boolean autoAck, DeliverCallback deliver, CancelCallback cancel)
+        throws IOException {
+      BrokerQueue queue = queues.get(queueName);
+      if (queue == null) {
+        close();
+        throw new IOException("NOT_FOUND - no queue '" + queueName + "'");
+      }
+      String tag = "consumer-" + consumerTags.incrementAndGet();
+      Thread thread = new Thread(() -> deliverLoop(queue, tag, autoAck, deliver), "broker-" + queueName + "-" + tag);
+      thread.setDaemon(true);
+      consumers.put(tag, thread);
+      queue.consumers.incrementAndGet();
+      thread.start();
+      return tag;
+    }
+
+    private void deliverLoop(BrokerQueue queue, String tag, boolean autoAck, DeliverCallback deliver) {
+      try {
+        while (open && consumers.containsKey(tag)) {
+          synchronized (this) {
+            if (prefetch > 0 && unacked.size() >= prefetch) {
+              wait(POLL_MILLIS);
+              continue;
+            }
+          }
+          Message message = queue.ready.pollFirst(POLL_MILLIS, TimeUnit.MILLISECONDS);
+          if (message == null) {
+            continue;
+          }
+          if (!open || !consumers.containsKey(tag)) {
+            queue.ready.addFirst(message);
+            break;
+          }
+          long deliveryTag;
+          synchronized (this) {
+            deliveryTag = ++nextTag;
+            if (!autoAck) {
+              unacked.put(deliveryTag, new Unacked(queue, message));
+            }
+          }
+          if (autoAck) {
+            settled(message, true);
+          }
+          try {
+            deliver.handle(tag, new Delivery(new Envelope(deliveryTag, message.redeliver, message.exchange,
+                message.routingKey), message.properties, message.body));
+          } catch (Exception e) {
+            System.err.println("Consumer " + tag + " failed on delivery " + deliveryTag + ": " + e);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        queue.consumers.decrementAndGet();
+      }
+    }
+
+    private void cancel(String tag) {
+      consumers.remove(tag);
+    }
+
+    private void settle(long deliveryTag, boolean multiple, boolean ack, boolean requeue) throws IOException {
+      List<Unacked> settled = null;
+      synchronized (this) {
+        SortedMap<Long, Unacked> range = multiple
+            ? unacked.headMap(deliveryTag, true) : unacked.subMap(deliveryTag, deliveryTag + 1);
+        if (!range.isEmpty()) {
+          settled = new ArrayList<>(range.values());
+          range.clear();
+          notifyAll();
+        }
+      }
+      if (settled == null) {
+        // PRECONDITION_FAILED - unknown delivery tag, which closes the channel
+        close();
+        throw new IOException("PRECONDITION_FAILED - unknown delivery tag " + deliveryTag);
+      }
+      boolean lost = ack && ackLossRate > 0 && ThreadLocalRandom.current().nextDouble() < ackLossRate;
+      for (Unacked delivery : settled) {
+        if (lost) {
+          requeue(delivery);
+        } else if (ack) {
+          settled(delivery.message, true);
+        } else if (requeue) {
+          requeue(delivery);
+        } else {
+          settled(delivery.message, false);
+        }
+      }
+    }
+
+    private void requeue(Unacked delivery) {
+      redelivered.incrementAndGet();
+      delivery.message.redeliver = true;
+      delivery.queue.ready.addFirst(delivery.message);
+    }
+
+    // Unacked deliveries go back to their queues when a channel closes
+    private void close() {
+      List<Unacked> returned;
+      synchronized (this) {
+        open = false;
+        consumers.clear();
+        returned = new ArrayList<>(unacked.values());
+        unacked.clear();
+        notifyAll();
+      }
+      connection.channels.remove(this);
+      returned.forEach(this::requeue);
+    }
+  }
+
+  private static final class Unacked {
+    private final BrokerQueue queue;
+    private final Message message;
+
+    private Unacked(BrokerQueue queue, Message message) {
+      this.queue = queue;
+      this.message = message;
+    }
+  }
+}